@@ -1,17 +1,32 @@
 package config;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import manager.Page;
 import manager.TaskManager;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 public abstract class BaseHttpHandler implements HttpHandler {
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
 
     protected final TaskManager manager;
     protected final Gson gson;
+    private final ResponseCache responseCache = new ResponseCache();
 
     public BaseHttpHandler(TaskManager manager) {
         this.manager = manager;
@@ -20,13 +35,190 @@ public abstract class BaseHttpHandler implements HttpHandler {
 
     // Отправка успешного ответа с текстом и статусом
     protected void sendText(HttpExchange exchange, String text, int statusCode) throws IOException {
-        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        sendBytes(exchange, text.getBytes(StandardCharsets.UTF_8), statusCode);
+    }
+
+    /**
+     * Отправляет коллекцию JSON-массивом, записывая элементы прямо в тело ответа
+     * чанками: память на запрос не зависит от размера коллекции. Каждый элемент
+     * сериализуется по своему фактическому классу, как и в gson.toJson(list).
+     * Если запись оборвётся на середине, клиент увидит незавершённый chunked-ответ.
+     */
+    protected void sendJsonArray(HttpExchange exchange, Iterable<?> items, int statusCode) throws IOException {
+        writeJsonArray(exchange, items, statusCode, false);
+    }
+
+    // Возвращает несжатую копию тела для кеша, если она запрошена и тело не слишком большое
+    private byte[] writeJsonArray(HttpExchange exchange, Iterable<?> items, int statusCode, boolean keepCopy)
+            throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        OutputStream body = new ResponseBodyStream(exchange, statusCode, negotiateEncoding(exchange));
+        ResponseCache.CopyingStream copy = keepCopy ? new ResponseCache.CopyingStream(body) : null;
+        try (JsonWriter writer = gson.newJsonWriter(new BufferedWriter(new OutputStreamWriter(
+                copy != null ? copy : body, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE))) {
+            writer.beginArray();
+            for (Object item : items) {
+                gson.toJson(item, item.getClass(), writer);
+            }
+            writer.endArray();
+        } finally {
+            exchange.close();
+        }
+        return copy != null ? copy.copy() : null;
+    }
+
+    /**
+     * Отправляет список целиком или, если в запросе есть limit или cursor, одну страницу.
+     * Курсор следующей страницы передаётся в заголовке X-Next-Cursor; на последней
+     * странице заголовка нет. Некорректные limit и cursor — 400.
+     * <p>
+     * Если менеджер отслеживает изменения, ответ получает ETag по счётчику изменений:
+     * совпавший If-None-Match даёт 304 без обращения к менеджеру, а тело, уже
+     * сериализованное при этом значении счётчика, отдаётся из кеша.
+     */
+    protected <T> void sendList(HttpExchange exchange, Supplier<? extends Iterable<T>> all,
+                                BiFunction<String, Integer, Page<T>> page) throws IOException {
+        sendList(exchange, all, page, manager::getModificationCount);
+    }
+
+    // То же, но ETag и кеш строятся по заданному счётчику (например, счётчику истории)
+    protected <T> void sendList(HttpExchange exchange, Supplier<? extends Iterable<T>> all,
+                                BiFunction<String, Integer, Page<T>> page, LongSupplier counter) throws IOException {
+        Map<String, String> query = queryParams(exchange);
+        String limitParam = query.get("limit");
+        String cursor = query.get("cursor");
+        boolean paged = limitParam != null || cursor != null;
+        int limit = DEFAULT_PAGE_SIZE;
+        if (limitParam != null) {
+            try {
+                limit = Integer.parseInt(limitParam);
+            } catch (NumberFormatException e) {
+                sendBadRequest(exchange, "Invalid limit");
+                return;
+            }
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            sendBadRequest(exchange, "limit must be between 1 and " + MAX_PAGE_SIZE);
+            return;
+        }
+
+        long modificationCount = counter.getAsLong();
+        String key = exchange.getRequestURI().getPath() + (paged ? "?limit=" + limit + "&cursor=" + cursor : "");
+        if (modificationCount >= 0) {
+            String etag = responseCache.etag(modificationCount);
+            exchange.getResponseHeaders().set("ETag", etag);
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            if (ResponseCache.matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            ResponseCache.Entry cached = responseCache.get(key, modificationCount);
+            if (cached != null) {
+                if (cached.nextCursor() != null) {
+                    exchange.getResponseHeaders().set("X-Next-Cursor", cached.nextCursor());
+                }
+                ContentEncoding encoding = cached.length() >= ContentEncoding.THRESHOLD_BYTES
+                        ? negotiateEncoding(exchange) : ContentEncoding.IDENTITY;
+                sendEncoded(exchange, cached.body(encoding), encoding, 200);
+                return;
+            }
+        }
+
+        Iterable<T> items;
+        String nextCursor = null;
+        if (paged) {
+            Page<T> result;
+            try {
+                result = page.apply(cursor, limit);
+            } catch (IllegalArgumentException e) {
+                sendBadRequest(exchange, "Invalid cursor");
+                return;
+            }
+            items = result.items();
+            nextCursor = result.nextCursor();
+            if (nextCursor != null) {
+                exchange.getResponseHeaders().set("X-Next-Cursor", nextCursor);
+            }
+        } else {
+            items = all.get();
+        }
+
+        if (modificationCount < 0) {
+            sendJsonArray(exchange, items, 200);
+            return;
+        }
+        byte[] copy = writeJsonArray(exchange, items, 200, true);
+        if (copy != null) {
+            responseCache.put(key, new ResponseCache.Entry(modificationCount, copy, nextCursor));
+        }
+    }
+
+    // Тело известной длины сжимается целиком, если клиент согласен и оно не меньше порога
+    private void sendBytes(HttpExchange exchange, byte[] bytes, int statusCode) throws IOException {
+        ContentEncoding encoding = bytes.length >= ContentEncoding.THRESHOLD_BYTES
+                ? negotiateEncoding(exchange) : ContentEncoding.IDENTITY;
+        sendEncoded(exchange, encoding.encode(bytes), encoding, statusCode);
+    }
+
+    private void sendEncoded(HttpExchange exchange, byte[] payload, ContentEncoding encoding, int statusCode)
+            throws IOException {
         exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
-        exchange.sendResponseHeaders(statusCode, bytes.length);
-        exchange.getResponseBody().write(bytes);
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (encoding.token() != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding.token());
+        }
+        exchange.sendResponseHeaders(statusCode, payload.length);
+        exchange.getResponseBody().write(payload);
         exchange.close();
     }
 
+    private ContentEncoding negotiateEncoding(HttpExchange exchange) {
+        return ContentEncoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    // Параметры строки запроса; при повторе параметра берётся первое значение
+    protected Map<String, String> queryParams(HttpExchange exchange) {
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(name, value);
+        }
+        return params;
+    }
+
+    // ETag задачи — номер её версии
+    protected void setETag(HttpExchange exchange, long version) {
+        exchange.getResponseHeaders().set("ETag", "\"" + version + "\"");
+    }
+
+    /**
+     * Версия из заголовка If-Match или null, если заголовка нет или он равен "*".
+     * Нераспознанное значение (в том числе слабый ETag) не совпадает ни с одной версией.
+     */
+    protected Long ifMatchVersion(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("If-Match");
+        if (header == null || header.isBlank() || "*".equals(header.trim())) {
+            return null;
+        }
+        String tag = header.trim();
+        if (tag.length() >= 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
     // Ошибки и статусы
     protected void sendNotFound(HttpExchange exchange) throws IOException {
         sendText(exchange, "{\"error\": \"Not Found\"}", 404);
@@ -48,6 +240,10 @@ public abstract class BaseHttpHandler implements HttpHandler {
         sendText(exchange, message != null ? message : "Task intersects with another", 406);
     }
 
+    protected void sendPreconditionFailed(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, message != null ? message : "Precondition Failed", 412);
+    }
+
     protected void sendMethodNotAllowed(HttpExchange exchange, String message) throws IOException {
         sendText(exchange, message != null ? message : "Method Not Allowed", 405);
     }
@@ -0,0 +1,116 @@
+package config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Сжатие тела ответа, согласованное по заголовку Accept-Encoding.
+ * <p>
+ * Уровень сжатия — BEST_SPEED: на JSON задач он даёт почти тот же размер,
+ * что и уровень по умолчанию, при заметно меньших затратах процессора.
+ */
+enum ContentEncoding {
+    IDENTITY(null),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    // Меньшие тела не сжимаем: заголовки gzip и работа процессора не окупятся
+    static final int THRESHOLD_BYTES = 1024;
+    private static final int LEVEL = Deflater.BEST_SPEED;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    // Значение заголовка Content-Encoding или null для IDENTITY
+    String token() {
+        return token;
+    }
+
+    OutputStream wrap(OutputStream out) throws IOException {
+        switch (this) {
+            case GZIP:
+                return new GZIPOutputStream(out, BUFFER_SIZE) {
+                    {
+                        def.setLevel(LEVEL);
+                    }
+                };
+            case DEFLATE:
+                return new DeflaterOutputStream(out, new Deflater(LEVEL), BUFFER_SIZE) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        def.end();
+                    }
+                };
+            default:
+                return out;
+        }
+    }
+
+    byte[] encode(byte[] body) {
+        if (this == IDENTITY) {
+            return body;
+        }
+        ByteArrayOutputStream result = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (OutputStream out = wrap(result)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new IllegalStateException("Ошибка сжатия в памяти", e);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Выбирает кодирование с наибольшим q среди gzip и deflate; при равенстве — gzip.
+     * "*" относится к кодированиям, не названным явно. q=0 запрещает кодирование.
+     */
+    static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if ("gzip".equals(coding) || "x-gzip".equals(coding)) {
+                gzip = Math.max(gzip, q);
+            } else if ("deflate".equals(coding)) {
+                deflate = Math.max(deflate, q);
+            } else if ("*".equals(coding)) {
+                any = Math.max(any, q);
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : IDENTITY;
+    }
+}
@@ -0,0 +1,80 @@
+package config;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Тело ответа заранее неизвестной длины.
+ * <p>
+ * Первые ContentEncoding.THRESHOLD_BYTES байт придерживаются: если ответ уложился
+ * в них, он уходит обычным ответом с Content-Length и без сжатия. Иначе заголовки
+ * отправляются с chunked-кодированием и, если клиент согласился, со сжатием,
+ * а дальше данные идут потоком — память на запрос остаётся постоянной.
+ */
+final class ResponseBodyStream extends OutputStream {
+    private final HttpExchange exchange;
+    private final int statusCode;
+    private final ContentEncoding encoding;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream(ContentEncoding.THRESHOLD_BYTES);
+    private OutputStream body;
+    private boolean closed;
+
+    ResponseBodyStream(HttpExchange exchange, int statusCode, ContentEncoding encoding) {
+        this.exchange = exchange;
+        this.statusCode = statusCode;
+        this.encoding = encoding;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (body == null) {
+            if (pending.size() + len <= ContentEncoding.THRESHOLD_BYTES) {
+                pending.write(b, off, len);
+                return;
+            }
+            startStreaming();
+        }
+        body.write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (body != null) {
+            body.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (body == null) {
+            byte[] bytes = pending.toByteArray();
+            exchange.sendResponseHeaders(statusCode, bytes.length == 0 ? -1 : bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.getResponseBody().close();
+        } else {
+            body.close();
+        }
+    }
+
+    private void startStreaming() throws IOException {
+        if (encoding.token() != null) {
+            exchange.getResponseHeaders().set("Content-Encoding", encoding.token());
+        }
+        exchange.sendResponseHeaders(statusCode, 0);
+        body = encoding.wrap(exchange.getResponseBody());
+        pending.writeTo(body);
+        pending = null;
+    }
+}
@@ -0,0 +1,143 @@
+package config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Кеш сериализованных списков одного обработчика.
+ * <p>
+ * Запись действительна, пока не изменился счётчик изменений менеджера, поэтому
+ * отдельной инвалидации нет: после изменения запись просто перестаёт совпадать.
+ * В ETag кроме счётчика входит случайная эпоха обработчика — после перезапуска
+ * сервера счётчик начинается заново, и старый ETag не должен совпасть с новым.
+ */
+final class ResponseCache {
+    static final int MAX_ENTRIES = 32;
+    static final int MAX_BODY_BYTES = 1024 * 1024;
+
+    /**
+     * Сериализованный ответ. Сжатые варианты считаются при первом запросе
+     * с таким кодированием и дальше переиспользуются.
+     */
+    static final class Entry {
+        private final long modificationCount;
+        private final byte[] body;
+        private final String nextCursor;
+        private final Map<ContentEncoding, byte[]> encoded = new EnumMap<>(ContentEncoding.class);
+
+        Entry(long modificationCount, byte[] body, String nextCursor) {
+            this.modificationCount = modificationCount;
+            this.body = body;
+            this.nextCursor = nextCursor;
+        }
+
+        long modificationCount() {
+            return modificationCount;
+        }
+
+        String nextCursor() {
+            return nextCursor;
+        }
+
+        int length() {
+            return body.length;
+        }
+
+        synchronized byte[] body(ContentEncoding encoding) {
+            if (encoding == ContentEncoding.IDENTITY) {
+                return body;
+            }
+            return encoded.computeIfAbsent(encoding, e -> e.encode(body));
+        }
+    }
+
+    private final String epoch = Long.toHexString(ThreadLocalRandom.current().nextLong());
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    String etag(long modificationCount) {
+        // Слабый ETag: один и тот же список в разных Content-Encoding
+        return "W/\"b" + epoch + "-" + modificationCount + "\"";
+    }
+
+    synchronized Entry get(String key, long modificationCount) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.modificationCount() == modificationCount ? entry : null;
+    }
+
+    synchronized void put(String key, Entry entry) {
+        Entry current = entries.get(key);
+        if (current == null || current.modificationCount() <= entry.modificationCount()) {
+            entries.put(key, entry);
+        }
+    }
+
+    // Слабое сравнение из If-None-Match: префикс W/ не учитывается, "*" совпадает с любым
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = stripWeak(candidate.trim());
+            if ("*".equals(tag) || opaque.equals(tag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+
+    /**
+     * Пишет в поток ответа и параллельно копирует тело, пока оно не длиннее
+     * MAX_BODY_BYTES. Большие ответы по-прежнему идут потоком и не кешируются.
+     */
+    static final class CopyingStream extends FilterOutputStream {
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CopyingStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            keep(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            keep(b, off, len);
+        }
+
+        // Копия тела или null, если оно оказалось слишком большим
+        byte[] copy() {
+            return copy == null ? null : copy.toByteArray();
+        }
+
+        private void keep(byte[] b, int off, int len) {
+            if (copy == null) {
+                return;
+            }
+            if (copy.size() + len > MAX_BODY_BYTES) {
+                copy = null;
+            } else {
+                copy.write(b, off, len);
+            }
+        }
+    }
+}
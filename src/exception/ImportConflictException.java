@@ -0,0 +1,22 @@
+package exception;
+
+import task.Task;
+
+import java.util.List;
+
+public class ImportConflictException extends TaskIntersectionException {
+    private final List<Conflict> conflicts;
+
+    public ImportConflictException(String message, List<Conflict> conflicts) {
+        super(message);
+        this.conflicts = List.copyOf(conflicts);
+    }
+
+    // Все найденные пары пересекающихся задач; хотя бы одна из пары — импортируемая
+    public List<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    public record Conflict(Task first, Task second) {
+    }
+}
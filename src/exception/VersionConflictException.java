@@ -0,0 +1,14 @@
+package exception;
+
+public class VersionConflictException extends RuntimeException {
+    private final long actualVersion;
+
+    public VersionConflictException(String message, long actualVersion) {
+        super(message);
+        this.actualVersion = actualVersion;
+    }
+
+    public long getActualVersion() {
+        return actualVersion;
+    }
+}
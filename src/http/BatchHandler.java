@@ -0,0 +1,122 @@
+package http;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import config.BaseHttpHandler;
+import exception.TaskIntersectionException;
+import manager.BatchOperation;
+import manager.TaskManager;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * POST /batch — атомарный пакет изменений. Тело — JSON-массив операций:
+ * <pre>
+ * [{"action": "CREATE", "type": "EPIC", "task": {...}},
+ *  {"action": "CREATE", "type": "SUBTASK", "task": {..., "epicId": -1}},
+ *  {"action": "UPDATE", "type": "TASK", "task": {"id": 5, ...}},
+ *  {"action": "DELETE", "type": "SUBTASK", "id": 7}]
+ * </pre>
+ * Отрицательный epicId подзадачи ссылается на эпик, созданный операцией с номером -epicId-1.
+ * Ответ — массив результатов операций (null для удалений).
+ */
+public class BatchHandler extends BaseHttpHandler {
+
+    public BatchHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendMethodNotAllowed(exchange, "Only POST is supported for /batch");
+                return;
+            }
+            InputStream is = exchange.getRequestBody();
+            String body = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+
+            List<BatchOperation> operations;
+            try {
+                operations = parseOperations(body);
+            } catch (JsonParseException | IllegalArgumentException | IllegalStateException | DateTimeException e) {
+                sendBadRequest(exchange, "Invalid batch: " + e.getMessage());
+                return;
+            }
+
+            try {
+                List<Task> results = manager.applyBatch(operations);
+                manager.awaitDurability();
+                sendText(exchange, gson.toJson(results), 200);
+            } catch (TaskIntersectionException e) {
+                sendHasIntersections(exchange, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                sendConflict(exchange, e.getMessage());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
+            sendServerError(exchange);
+        }
+    }
+
+    private List<BatchOperation> parseOperations(String body) {
+        JsonElement root = JsonParser.parseString(body);
+        if (!root.isJsonArray()) {
+            throw new IllegalArgumentException("expected JSON array");
+        }
+        JsonArray array = root.getAsJsonArray();
+        List<BatchOperation> operations = new ArrayList<>(array.size());
+        for (int i = 0; i < array.size(); i++) {
+            JsonObject item = array.get(i).getAsJsonObject();
+            BatchOperation.Action action = BatchOperation.Action.valueOf(required(item, "action", i).getAsString());
+            TaskType type = TaskType.valueOf(required(item, "type", i).getAsString());
+            if (action == BatchOperation.Action.DELETE) {
+                operations.add(BatchOperation.delete(type, required(item, "id", i).getAsInt()));
+                continue;
+            }
+            JsonElement payload = item.get("task");
+            if (payload == null || !payload.isJsonObject()) {
+                throw new IllegalArgumentException("operation " + i + " has no task");
+            }
+            Task task = switch (type) {
+                case TASK -> gson.fromJson(payload, Task.class);
+                case EPIC -> toEpic(gson.fromJson(payload, Epic.class), i);
+                case SUBTASK -> gson.fromJson(payload, SubTask.class);
+            };
+            operations.add(new BatchOperation(action, type, task, task.getId()));
+        }
+        return operations;
+    }
+
+    private static JsonElement required(JsonObject item, String name, int index) {
+        JsonElement value = item.get(name);
+        if (value == null || value.isJsonNull()) {
+            throw new IllegalArgumentException("operation " + index + " has no " + name);
+        }
+        return value;
+    }
+
+    // Подзадачи и расчётные поля эпика задаёт менеджер, из запроса берутся только id, имя и описание
+    private static Epic toEpic(Epic parsed, int index) {
+        if (parsed.getName() == null || parsed.getName().isBlank()
+                || parsed.getDescription() == null || parsed.getDescription().isBlank()) {
+            throw new IllegalArgumentException("operation " + index + " has invalid epic data");
+        }
+        Epic epic = new Epic(parsed.getName(), parsed.getDescription());
+        epic.setId(parsed.getId());
+        return epic;
+    }
+}
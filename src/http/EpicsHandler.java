@@ -4,14 +4,13 @@ import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import config.BaseHttpHandler;
 import config.GsonFactory;
+import exception.VersionConflictException;
 import manager.TaskManager;
 import task.Epic;
-import task.SubTask;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 public class EpicsHandler extends BaseHttpHandler {
     private final Gson gson = GsonFactory.createGson();
@@ -32,22 +31,21 @@ public class EpicsHandler extends BaseHttpHandler {
                     // GET /epics/{id}
                     try {
                         int id = Integer.parseInt(segments[2]);
-                        manager.getEpic(id)
-                                .map(epic -> {
+                        manager.getEpic(id).ifPresentOrElse(
+                                epic -> {
                                     try {
+                                        setETag(exchange, epic.getVersion());
                                         sendText(exchange, gson.toJson(epic), 200);
                                     } catch (IOException e) {
                                         throw new RuntimeException(e);
                                     }
-                                    return null;
-                                })
-                                .orElseGet(() -> {
+                                },
+                                () -> {
                                     try {
                                         sendNotFound(exchange);
                                     } catch (IOException e) {
                                         throw new RuntimeException(e);
                                     }
-                                    return null;
                                 });
                     } catch (NumberFormatException e) {
                         sendBadRequest(exchange, "Invalid epic ID");
@@ -57,8 +55,8 @@ public class EpicsHandler extends BaseHttpHandler {
                     // GET /epics/{id}/subtasks
                     try {
                         int epicId = Integer.parseInt(segments[2]);
-                        List<SubTask> subtasks = manager.getSubtasksForEpic(epicId);
-                        sendText(exchange, gson.toJson(subtasks), 200);
+                        sendList(exchange, () -> manager.getSubtasksForEpic(epicId),
+                                (cursor, limit) -> manager.getSubtasksForEpicPage(epicId, cursor, limit));
                     } catch (NumberFormatException e) {
                         sendBadRequest(exchange, "Invalid epic ID");
                     }
@@ -66,8 +64,7 @@ public class EpicsHandler extends BaseHttpHandler {
                 }
 
                 // GET /epics
-                List<Epic> epics = manager.getAllEpics();
-                sendText(exchange, gson.toJson(epics), 200);
+                sendList(exchange, manager::getAllEpics, manager::getEpicsPage);
                 return;
             }
 
@@ -84,12 +81,22 @@ public class EpicsHandler extends BaseHttpHandler {
 
                 try {
                     if (epic.getId() != 0) {
-                        manager.updateEpic(epic);
+                        Long expectedVersion = ifMatchVersion(exchange);
+                        Epic updated = expectedVersion == null
+                                ? manager.updateEpic(epic)
+                                : manager.updateEpic(epic, expectedVersion);
+                        manager.awaitDurability();
+                        setETag(exchange, updated.getVersion());
                         sendText(exchange, "Epic updated", 200);
                     } else {
-                        manager.createEpic(epic);
+                        Epic created = manager.createEpic(epic);
+                        manager.awaitDurability();
+                        setETag(exchange, created.getVersion());
                         sendText(exchange, "Epic created", 201);
                     }
+                } catch (VersionConflictException e) {
+                    setETag(exchange, e.getActualVersion());
+                    sendPreconditionFailed(exchange, e.getMessage());
                 } catch (IllegalArgumentException e) {
                     sendNotFound(exchange);
                 }
@@ -102,6 +109,7 @@ public class EpicsHandler extends BaseHttpHandler {
                     try {
                         int id = Integer.parseInt(segments[2]);
                         manager.deleteEpic(id);
+                        manager.awaitDurability();
                         sendText(exchange, "Epic deleted", 200);
                     } catch (NumberFormatException e) {
                         sendBadRequest(exchange, "Invalid epic ID");
@@ -109,6 +117,7 @@ public class EpicsHandler extends BaseHttpHandler {
                 } else {
                     // DELETE /epics
                     manager.deleteAllEpics();
+                    manager.awaitDurability();
                     sendText(exchange, "All epics deleted", 200);
                 }
                 return;
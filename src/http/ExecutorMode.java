@@ -0,0 +1,10 @@
+package http;
+
+public enum ExecutorMode {
+    // все запросы по очереди в потоке-диспетчере HttpServer (прежнее поведение)
+    SINGLE_THREAD,
+    // фиксированный пул платформенных потоков размера poolSize
+    FIXED_POOL,
+    // виртуальный поток на каждый запрос (Java 21+); на более старых JVM — как FIXED_POOL
+    VIRTUAL_THREADS
+}
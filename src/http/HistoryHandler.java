@@ -3,10 +3,8 @@ package http;
 import com.sun.net.httpserver.HttpExchange;
 import config.BaseHttpHandler;
 import manager.TaskManager;
-import task.Task;
 
 import java.io.IOException;
-import java.util.List;
 
 public class HistoryHandler extends BaseHttpHandler {
     public HistoryHandler(TaskManager manager) {
@@ -17,8 +15,7 @@ public class HistoryHandler extends BaseHttpHandler {
     public void handle(HttpExchange exchange) throws IOException {
         try {
             if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-                List<Task> history = manager.getHistory();
-                sendText(exchange, gson.toJson(history), 200);
+                sendList(exchange, manager::getHistory, manager::getHistoryPage, manager::getHistoryModificationCount);
             } else {
                 sendMethodNotAllowed(exchange, "Only GET is allowed for /history");
             }
@@ -0,0 +1,71 @@
+package http;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнители запросов для HttpTaskServer по выбранному режиму.
+ */
+final class HttpExecutors {
+    private HttpExecutors() {
+    }
+
+    /**
+     * Возвращает исполнитель для режима или null для SINGLE_THREAD —
+     * тогда HttpServer обрабатывает запросы в своём потоке-диспетчере.
+     */
+    static ExecutorService create(HttpServerSettings settings) {
+        switch (settings.getExecutorMode()) {
+            case FIXED_POOL:
+                return Executors.newFixedThreadPool(settings.getPoolSize(), workerThreads());
+            case VIRTUAL_THREADS:
+                return virtualThreadPerTask(settings);
+            default:
+                return null;
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() появился в Java 21, поэтому ищем его рефлексией
+    private static final Method VIRTUAL_THREAD_FACTORY = findVirtualThreadFactory();
+
+    // Есть ли в этой JVM виртуальные потоки
+    static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * Виртуальный поток на запрос. Без виртуальных потоков — тот же пул, что и для FIXED_POOL:
+     * платформенный поток на каждый запрос без ограничения числа потоков под нагрузкой
+     * исчерпал бы память.
+     */
+    private static ExecutorService virtualThreadPerTask(HttpServerSettings settings) {
+        if (VIRTUAL_THREAD_FACTORY == null) {
+            return Executors.newFixedThreadPool(settings.getPoolSize(), workerThreads());
+        }
+        try {
+            return (ExecutorService) VIRTUAL_THREAD_FACTORY.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Не удалось создать исполнитель на виртуальных потоках", e);
+        }
+    }
+
+    private static Method findVirtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory workerThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return task -> {
+            Thread thread = new Thread(task, "http-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package http;
+
+import java.time.Duration;
+
+/**
+ * Настройки HttpTaskServer.
+ * Неизменяемый объект: методы with* возвращают копию с изменённым параметром.
+ */
+public final class HttpServerSettings {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_BACKLOG = 128;
+    private static final int DEFAULT_POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final long DEFAULT_MAX_REQUEST_BODY_BYTES = 1024 * 1024;
+    private static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final int port;
+    private final int backlog;
+    private final ExecutorMode executorMode;
+    private final int poolSize;
+    private final long maxRequestBodyBytes;
+    private final Duration drainTimeout;
+
+    private HttpServerSettings(int port, int backlog, ExecutorMode executorMode, int poolSize,
+                               long maxRequestBodyBytes, Duration drainTimeout) {
+        this.port = port;
+        this.backlog = backlog;
+        this.executorMode = executorMode;
+        this.poolSize = poolSize;
+        this.maxRequestBodyBytes = maxRequestBodyBytes;
+        this.drainTimeout = drainTimeout;
+    }
+
+    // Виртуальные потоки, если JVM их поддерживает, иначе ограниченный пул платформенных потоков
+    public static HttpServerSettings defaults() {
+        ExecutorMode mode = HttpExecutors.virtualThreadsAvailable() ? ExecutorMode.VIRTUAL_THREADS : ExecutorMode.FIXED_POOL;
+        return new HttpServerSettings(DEFAULT_PORT, DEFAULT_BACKLOG, mode, DEFAULT_POOL_SIZE,
+                DEFAULT_MAX_REQUEST_BODY_BYTES, DEFAULT_DRAIN_TIMEOUT);
+    }
+
+    // 0 — любой свободный порт, фактический можно узнать через HttpTaskServer.getPort()
+    public HttpServerSettings withPort(int port) {
+        if (port < 0 || port > 65535) {
+            throw new IllegalArgumentException("port должен быть в диапазоне 0..65535");
+        }
+        return new HttpServerSettings(port, backlog, executorMode, poolSize, maxRequestBodyBytes, drainTimeout);
+    }
+
+    // Длина очереди ещё не принятых соединений; 0 — значение по умолчанию системы
+    public HttpServerSettings withBacklog(int backlog) {
+        if (backlog < 0) {
+            throw new IllegalArgumentException("backlog не может быть отрицательным");
+        }
+        return new HttpServerSettings(port, backlog, executorMode, poolSize, maxRequestBodyBytes, drainTimeout);
+    }
+
+    public HttpServerSettings withExecutorMode(ExecutorMode executorMode) {
+        if (executorMode == null) {
+            throw new IllegalArgumentException("executorMode не может быть null");
+        }
+        return new HttpServerSettings(port, backlog, executorMode, poolSize, maxRequestBodyBytes, drainTimeout);
+    }
+
+    // Число потоков для режима FIXED_POOL
+    public HttpServerSettings withPoolSize(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("poolSize должен быть больше 0");
+        }
+        return new HttpServerSettings(port, backlog, executorMode, poolSize, maxRequestBodyBytes, drainTimeout);
+    }
+
+    // Запросы с телом больше этого размера отклоняются с кодом 413
+    public HttpServerSettings withMaxRequestBodyBytes(long maxRequestBodyBytes) {
+        if (maxRequestBodyBytes <= 0) {
+            throw new IllegalArgumentException("maxRequestBodyBytes должен быть больше 0");
+        }
+        return new HttpServerSettings(port, backlog, executorMode, poolSize, maxRequestBodyBytes, drainTimeout);
+    }
+
+    // Сколько stop() ждёт завершения уже начатых запросов
+    public HttpServerSettings withDrainTimeout(Duration drainTimeout) {
+        if (drainTimeout == null || drainTimeout.isNegative()) {
+            throw new IllegalArgumentException("drainTimeout не может быть null или отрицательным");
+        }
+        return new HttpServerSettings(port, backlog, executorMode, poolSize, maxRequestBodyBytes, drainTimeout);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    public long getMaxRequestBodyBytes() {
+        return maxRequestBodyBytes;
+    }
+
+    public Duration getDrainTimeout() {
+        return drainTimeout;
+    }
+}
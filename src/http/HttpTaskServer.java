@@ -1,41 +1,92 @@
 package http;
 
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
 import manager.Managers;
 import manager.TaskManager;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class HttpTaskServer {
     private final HttpServer server;
     private final TaskManager manager;
+    private final HttpServerSettings settings;
+    private final ExecutorService executor;
+    private final RequestGate gate;
 
     public HttpTaskServer(TaskManager manager) throws IOException {
-        this.manager = manager;
-        server = HttpServer.create(new InetSocketAddress(8080), 0);
-
-        server.createContext("/tasks", new TasksHandler(manager));
-        server.createContext("/epics",
-                new EpicsHandler(manager));
-        server.createContext("/subtasks", new SubtasksHandler(manager));
-        server.createContext("/history", new HistoryHandler(manager));
-        server.createContext("/prioritized", new PrioritizedHandler(manager));
+        this(manager, HttpServerSettings.defaults());
+    }
+
+    /**
+     * Если запросы обрабатываются несколькими потоками, а переданный менеджер
+     * не потокобезопасен, он оборачивается в ConcurrentTaskManager.
+     */
+    public HttpTaskServer(TaskManager manager, HttpServerSettings settings) throws IOException {
+        this.settings = settings;
+        this.executor = HttpExecutors.create(settings);
+        this.manager = executor == null ? manager : Managers.threadSafe(manager);
+        this.gate = new RequestGate(settings.getMaxRequestBodyBytes());
+        server = HttpServer.create(new InetSocketAddress(settings.getPort()), settings.getBacklog());
+        server.setExecutor(executor);
+
+        register("/tasks", new TasksHandler(this.manager));
+        register("/epics", new EpicsHandler(this.manager));
+        register("/subtasks", new SubtasksHandler(this.manager));
+        register("/history", new HistoryHandler(this.manager));
+        register("/prioritized", new PrioritizedHandler(this.manager));
+        register("/batch", new BatchHandler(this.manager));
+    }
+
+    private void register(String path, HttpHandler handler) {
+        server.createContext(path, handler).getFilters().add(gate);
     }
 
     public void start() {
-        System.out.println("HTTP-сервер запущен на порту 8080");
         server.start();
+        System.out.println("HTTP-сервер запущен на порту " + getPort());
+    }
+
+    // Фактический порт — пригодится, если в настройках указан 0
+    public int getPort() {
+        return server.getAddress().getPort();
     }
 
+    /**
+     * Плавная остановка: новые запросы получают 503, начатые выполняются до конца
+     * (но не дольше drainTimeout), затем закрываются соединения, останавливаются
+     * рабочие потоки и сохраняются отложенные изменения менеджера.
+     */
     public void stop() {
+        long deadline = System.nanoTime() + settings.getDrainTimeout().toNanos();
+        try {
+            if (!gate.drain(settings.getDrainTimeout())) {
+                System.out.println("Не дождались завершения запросов: " + gate.inFlight());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        manager.flush();
+        manager.awaitDurability();
         System.out.println("HTTP-сервер остановлен");
     }
 
     public static void main(String[] args) throws IOException {
-        TaskManager manager = Managers.getDefault(); // InMemoryTaskManager
+        TaskManager manager = Managers.getConcurrentInMemory();
         HttpTaskServer server = new HttpTaskServer(manager);
         server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "http-shutdown"));
     }
-}
\ No newline at end of file
+}
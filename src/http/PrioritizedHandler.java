@@ -3,10 +3,8 @@ package http;
 import com.sun.net.httpserver.HttpExchange;
 import config.BaseHttpHandler;
 import manager.TaskManager;
-import task.Task;
 
 import java.io.IOException;
-import java.util.List;
 
 public class PrioritizedHandler extends BaseHttpHandler {
     public PrioritizedHandler(TaskManager manager) {
@@ -17,8 +15,7 @@ public class PrioritizedHandler extends BaseHttpHandler {
     public void handle(HttpExchange exchange) throws IOException {
         try {
             if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-                List<Task> prioritized = manager.getPrioritizedTasks();
-                sendText(exchange, gson.toJson(prioritized), 200);
+                sendList(exchange, manager::getPrioritizedTasks, manager::getPrioritizedTasksPage);
             } else {
                 sendMethodNotAllowed(exchange, "Only GET is supported for /tasks/prioritized");
             }
@@ -0,0 +1,127 @@
+package http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Фильтр перед всеми обработчиками HttpTaskServer.
+ * <p>
+ * Считает выполняющиеся запросы, чтобы stop() мог дождаться их завершения;
+ * после начала остановки отвечает на новые запросы 503 с «Connection: close»,
+ * и клиент уходит на другой экземпляр, не получая обрыва соединения.
+ * Тело запроса читается заранее и ограничивается maxRequestBodyBytes (413).
+ */
+final class RequestGate extends Filter {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final long maxRequestBodyBytes;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Object idle = new Object();
+    private volatile boolean draining;
+
+    RequestGate(long maxRequestBodyBytes) {
+        this.maxRequestBodyBytes = maxRequestBodyBytes;
+    }
+
+    @Override
+    public void doFilter(HttpExchange exchange, Chain chain) throws IOException {
+        // Сначала учитываем запрос, затем проверяем флаг: stop() либо дождётся его, либо он получит 503
+        inFlight.incrementAndGet();
+        try {
+            if (draining) {
+                reject(exchange, 503, "{\"error\": \"Service Unavailable\"}");
+                return;
+            }
+            byte[] body = readBody(exchange);
+            if (body == null) {
+                reject(exchange, 413, "{\"error\": \"Payload Too Large\"}");
+                return;
+            }
+            exchange.setStreams(new ByteArrayInputStream(body), null);
+            chain.doFilter(exchange);
+        } finally {
+            if (inFlight.decrementAndGet() == 0 && draining) {
+                synchronized (idle) {
+                    idle.notifyAll();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Учёт выполняющихся запросов и ограничение размера тела";
+    }
+
+    /**
+     * Перестаёт пропускать новые запросы и ждёт завершения начатых.
+     *
+     * @return true, если все запросы завершились до истечения timeout
+     */
+    boolean drain(Duration timeout) throws InterruptedException {
+        draining = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (idle) {
+            while (inFlight.get() > 0) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(idle, left);
+            }
+        }
+        return true;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    // Тело целиком или null, если оно длиннее допустимого
+    private byte[] readBody(HttpExchange exchange) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxRequestBodyBytes) {
+                    return null;
+                }
+            } catch (NumberFormatException e) {
+                // длину проверит чтение ниже
+            }
+        }
+        InputStream in = exchange.getRequestBody();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxRequestBodyBytes) {
+                return null;
+            }
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private void reject(HttpExchange exchange, int statusCode, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Connection", "close");
+        if (statusCode == 503) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+        }
+        exchange.sendResponseHeaders(statusCode, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
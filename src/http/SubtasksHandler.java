@@ -5,13 +5,13 @@ import com.sun.net.httpserver.HttpExchange;
 import config.BaseHttpHandler;
 import config.GsonFactory;
 import exception.TaskIntersectionException;
+import exception.VersionConflictException;
 import manager.TaskManager;
 import task.SubTask;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
 
 public class SubtasksHandler extends BaseHttpHandler {
     private final Gson gson = GsonFactory.createGson();
@@ -33,11 +33,11 @@ public class SubtasksHandler extends BaseHttpHandler {
                     try {
                         int id = Integer.parseInt(segments[2]);
                         manager.getSubtask(id)
-                                .map(gson::toJson)
                                 .ifPresentOrElse(
-                                        json -> {
+                                        subtask -> {
                                             try {
-                                                sendText(exchange, json, 200);
+                                                setETag(exchange, subtask.getVersion());
+                                                sendText(exchange, gson.toJson(subtask), 200);
                                             } catch (IOException e) {
                                                 throw new RuntimeException(e);
                                             }
@@ -57,8 +57,7 @@ public class SubtasksHandler extends BaseHttpHandler {
                 }
 
                 // GET /subtasks
-                List<SubTask> subtasks = manager.getAllSubTasks();
-                sendText(exchange, gson.toJson(subtasks), 200);
+                sendList(exchange, manager::getAllSubTasks, manager::getSubTasksPage);
                 return;
             }
 
@@ -77,12 +76,22 @@ public class SubtasksHandler extends BaseHttpHandler {
 
                 try {
                     if (subtask.getId() != 0) {
-                        manager.updateSubTask(subtask);
+                        Long expectedVersion = ifMatchVersion(exchange);
+                        SubTask updated = expectedVersion == null
+                                ? manager.updateSubTask(subtask)
+                                : manager.updateSubTask(subtask, expectedVersion);
+                        manager.awaitDurability();
+                        setETag(exchange, updated.getVersion());
                         sendText(exchange, "Subtask updated", 200);
                     } else {
-                        manager.createSubTask(subtask);
+                        SubTask created = manager.createSubTask(subtask);
+                        manager.awaitDurability();
+                        setETag(exchange, created.getVersion());
                         sendText(exchange, "Subtask created", 201);
                     }
+                } catch (VersionConflictException e) {
+                    setETag(exchange, e.getActualVersion());
+                    sendPreconditionFailed(exchange, e.getMessage());
                 } catch (TaskIntersectionException e) {
                     sendHasIntersections(exchange, e.getMessage());
                 } catch (IllegalArgumentException e) {
@@ -97,6 +106,7 @@ public class SubtasksHandler extends BaseHttpHandler {
                     try {
                         int id = Integer.parseInt(segments[2]);
                         manager.deleteSubtask(id);
+                        manager.awaitDurability();
                         sendText(exchange, "Subtask deleted (if existed)", 200);
                     } catch (NumberFormatException e) {
                         sendBadRequest(exchange, "Invalid subtask ID");
@@ -104,6 +114,7 @@ public class SubtasksHandler extends BaseHttpHandler {
                 } else {
                     // DELETE /subtasks
                     manager.deleteAllSubtasks();
+                    manager.awaitDurability();
                     sendText(exchange, "All subtasks deleted", 200);
                 }
                 return;
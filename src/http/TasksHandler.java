@@ -5,6 +5,7 @@ import com.sun.net.httpserver.HttpExchange;
 import config.BaseHttpHandler;
 import config.GsonFactory;
 import exception.TaskIntersectionException;
+import exception.VersionConflictException;
 import manager.TaskManager;
 import task.Task;
 import task.TaskType;
@@ -29,27 +30,24 @@ public class TasksHandler extends BaseHttpHandler {
 
             if ("GET".equals(method)) {
                 if (segments.length == 3 && "prioritized".equals(segments[2])) {
-                    sendText(exchange, gson.toJson(manager.getPrioritizedTasks()), 200);
+                    sendList(exchange, manager::getPrioritizedTasks, manager::getPrioritizedTasksPage);
                     return;
                 } else if (segments.length == 3) {
                     try {
                         int id = Integer.parseInt(segments[2]);
-                        manager.getTask(id)
-                                .map(task -> {
+                        manager.getTask(id).ifPresentOrElse(
+                                task -> {
+                                    setETag(exchange, task.getVersion());
                                     sendSafely(exchange, gson.toJson(task), 200);
-                                    return null;
-                                })
-                                .orElseGet(() -> {
-                                    sendSafelyNotFound(exchange);
-                                    return null;
-                                });
+                                },
+                                () -> sendSafelyNotFound(exchange));
                     } catch (NumberFormatException e) {
                         sendBadRequest(exchange, "Invalid task ID format");
                     }
                     return;
                 }
 
-                sendText(exchange, gson.toJson(manager.getAllTasks()), 200);
+                sendList(exchange, manager::getAllTasks, manager::getTasksPage);
                 return;
             }
 
@@ -65,12 +63,22 @@ public class TasksHandler extends BaseHttpHandler {
 
                 try {
                     if (task.getId() != 0) {
-                        manager.updateTask(task);
+                        Long expectedVersion = ifMatchVersion(exchange);
+                        Task updated = expectedVersion == null
+                                ? manager.updateTask(task)
+                                : manager.updateTask(task, expectedVersion);
+                        manager.awaitDurability();
+                        setETag(exchange, updated.getVersion());
                         sendText(exchange, "Task updated", 200);
                     } else {
-                        manager.createTask(task);
+                        Task created = manager.createTask(task);
+                        manager.awaitDurability();
+                        setETag(exchange, created.getVersion());
                         sendText(exchange, "Task created", 201);
                     }
+                } catch (VersionConflictException e) {
+                    setETag(exchange, e.getActualVersion());
+                    sendPreconditionFailed(exchange, e.getMessage());
                 } catch (TaskIntersectionException e) {
                     sendHasIntersections(exchange, e.getMessage());
                 } catch (IllegalArgumentException e) {
@@ -84,12 +92,14 @@ public class TasksHandler extends BaseHttpHandler {
                     try {
                         int id = Integer.parseInt(segments[2]);
                         manager.deleteTask(id);
+                        manager.awaitDurability();
                         sendText(exchange, "Task deleted", 200);
                     } catch (NumberFormatException e) {
                         sendBadRequest(exchange, "Invalid task ID");
                     }
                 } else {
                     manager.deleteAllTasks();
+                    manager.awaitDurability();
                     sendText(exchange, "All tasks deleted", 200);
                 }
                 return;
@@ -0,0 +1,53 @@
+package manager;
+
+import task.Task;
+import task.TaskType;
+
+/**
+ * Одна операция пакета для {@link TaskManager#applyBatch(java.util.List)}.
+ * <p>
+ * Для создания и обновления тип берётся из самой задачи, для удаления задаются тип и id.
+ * Подзадача может ссылаться на эпик, создаваемый раньше в том же пакете:
+ * в epicId записывается {@link #epicRef(int)} от номера операции, создающей эпик.
+ */
+public record BatchOperation(Action action, TaskType type, Task task, int id) {
+
+    public enum Action {
+        CREATE, UPDATE, DELETE
+    }
+
+    public BatchOperation {
+        if (action == null || type == null) {
+            throw new IllegalArgumentException("Не указано действие или тип операции.");
+        }
+        if (action != Action.DELETE && (task == null || task.getType() != type)) {
+            throw new IllegalArgumentException("Тип задачи не совпадает с типом операции.");
+        }
+    }
+
+    public static BatchOperation create(Task task) {
+        return new BatchOperation(Action.CREATE, typeOf(task), task, 0);
+    }
+
+    public static BatchOperation update(Task task) {
+        return new BatchOperation(Action.UPDATE, typeOf(task), task, task == null ? 0 : task.getId());
+    }
+
+    public static BatchOperation delete(TaskType type, int id) {
+        return new BatchOperation(Action.DELETE, type, null, id);
+    }
+
+    // Значение epicId подзадачи, ссылающееся на эпик из операции с номером operationIndex
+    public static int epicRef(int operationIndex) {
+        return -(operationIndex + 1);
+    }
+
+    // Id затрагиваемой задачи: у удаления — из операции, иначе — из самой задачи
+    int targetId() {
+        return task != null ? task.getId() : id;
+    }
+
+    private static TaskType typeOf(Task task) {
+        return task == null ? null : task.getType();
+    }
+}
@@ -0,0 +1,358 @@
+package manager;
+
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+import task.TaskType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Компактный двоичный формат снимка.
+ * <pre>
+ * "KNBN" | версия (1 байт) | varlong поколение снимка (с версии формата 4)
+ * словарь: varint число типов и их имена, varint число статусов и их имена (строки как ниже)
+ * varint число задач, затем для каждой задачи:
+ *   тип (1 байт, номер в словаре) | статус (1 байт, номер в словаре + 1, 0 — null)
+ *   varint id | varlong версия (с версии формата 3) | [varint epicId — только для подзадач]
+ *   имя и описание: varint (длина + 1, 0 — null) + UTF-8
+ *   startTime: varlong (0 — null, иначе ((zigzag(минута эпохи) &lt;&lt; 1) | есть_доли) + 1)
+ *              [varlong наносекунды внутри минуты, если есть доли]
+ *   duration: varlong (0 — null, иначе zigzag(минуты) + 1)
+ * varint длина истории, затем varint id задач истории
+ * CRC32 всего предыдущего содержимого (4 байта, big-endian)
+ * </pre>
+ * Время хранится в минутах эпохи, а доли минуты — только если они есть,
+ * поэтому формат не теряет точность по сравнению с CSV. Типы и статусы ссылаются на имена
+ * из словаря, а не на ordinal: перестановка или добавление констант не портит старые снимки.
+ * Версии 1 (без словаря, коды — ordinal), 2 (без версии задачи) и 3 (без поколения)
+ * по-прежнему читаются.
+ */
+final class BinarySnapshotCodec {
+    static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    static final int VERSION = 4;
+    // Версия без словаря: коды типа и статуса — ordinal на момент записи
+    private static final int ORDINAL_VERSION = 1;
+    // Первая версия формата, в которой хранится версия задачи
+    private static final int TASK_VERSION_SINCE = 3;
+    // Первая версия формата с поколением снимка в заголовке
+    private static final int GENERATION_SINCE = 4;
+
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinarySnapshotCodec() {
+    }
+
+    static boolean isBinary(ByteBuffer buffer) {
+        if (buffer.remaining() < MAGIC.length) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(buffer.position() + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static void write(SnapshotData snapshot, OutputStream out) throws IOException {
+        Encoder encoder = new Encoder(out);
+        encoder.bytes(MAGIC);
+        encoder.rawByte(VERSION);
+        encoder.varlong(snapshot.generation());
+        writeNames(encoder, TYPES);
+        writeNames(encoder, STATUSES);
+        encoder.varlong(snapshot.tasks().size());
+        for (Task task : snapshot.tasks()) {
+            writeTask(encoder, task);
+        }
+        encoder.varlong(snapshot.history().size());
+        for (int id : snapshot.history()) {
+            encoder.varlong(id);
+        }
+        encoder.finish();
+    }
+
+    /**
+     * Проверяет контрольную сумму и передаёт задачи получателю; возвращает id задач истории.
+     */
+    static List<Integer> read(FileChannel channel, long size, long windowSize, Consumer<Task> sink)
+            throws IOException {
+        if (size < MAGIC.length + 1 + Integer.BYTES) {
+            throw new ManagerSaveException("Двоичный снимок повреждён: слишком короткий файл");
+        }
+        long end = size - Integer.BYTES;
+        CRC32 crc = new CRC32();
+        MappedInput.updateChecksum(channel, 0, end, windowSize, crc);
+        ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES);
+        MappedSnapshotReader.readAt(channel, trailer, end);
+        if ((int) crc.getValue() != trailer.getInt(0)) {
+            throw new ManagerSaveException("Контрольная сумма двоичного снимка не совпадает");
+        }
+
+        Decoder decoder = new Decoder(new MappedInput(channel, 0, end, windowSize));
+        decoder.skip(MAGIC.length);
+        int version = decoder.rawByte();
+        if (version < ORDINAL_VERSION || version > VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия двоичного снимка: " + version);
+        }
+        if (version >= GENERATION_SINCE) {
+            decoder.varlong();
+        }
+        TaskType[] types = version == ORDINAL_VERSION ? TYPES : readNames(decoder, TaskType.class);
+        TaskStatus[] statuses = version == ORDINAL_VERSION ? STATUSES : readNames(decoder, TaskStatus.class);
+        int count = decoder.varint();
+        for (int i = 0; i < count; i++) {
+            sink.accept(readTask(decoder, types, statuses, version >= TASK_VERSION_SINCE));
+        }
+        int historySize = decoder.varint();
+        List<Integer> history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            history.add(decoder.varint());
+        }
+        return history;
+    }
+
+    // Поколение из заголовка; контрольная сумма не проверяется — это делает read
+    static long readGeneration(FileChannel channel, long size) {
+        Decoder decoder = new Decoder(new MappedInput(channel, 0, size, MappedInput.DEFAULT_WINDOW_SIZE));
+        decoder.skip(MAGIC.length);
+        return decoder.rawByte() >= GENERATION_SINCE ? decoder.varlong() : 0;
+    }
+
+    private static void writeNames(Encoder encoder, Enum<?>[] values) throws IOException {
+        encoder.varlong(values.length);
+        for (Enum<?> value : values) {
+            encoder.string(value.name());
+        }
+    }
+
+    // Таблица кодов снимка: i-й элемент — константа с i-м записанным именем
+    private static <E extends Enum<E>> E[] readNames(Decoder decoder, Class<E> type) {
+        int count = decoder.varint();
+        E[] table = Arrays.copyOf(type.getEnumConstants(), count);
+        for (int i = 0; i < count; i++) {
+            String name = decoder.string();
+            try {
+                table[i] = Enum.valueOf(type, name);
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new ManagerSaveException("Двоичный снимок содержит неизвестное значение " + type.getSimpleName()
+                        + ": " + name, e);
+            }
+        }
+        return table;
+    }
+
+    private static void writeTask(Encoder encoder, Task task) throws IOException {
+        encoder.rawByte(task.getType().ordinal());
+        encoder.rawByte(task.getStatus() == null ? 0 : task.getStatus().ordinal() + 1);
+        encoder.varlong(task.getId());
+        encoder.varlong(task.getVersion());
+        if (task instanceof SubTask subtask) {
+            encoder.varlong(subtask.getEpicId());
+        }
+        encoder.string(task.getName());
+        encoder.string(task.getDescription());
+
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            encoder.varlong(0);
+        } else {
+            long epochSecond = start.toEpochSecond(ZoneOffset.UTC);
+            long minute = Math.floorDiv(epochSecond, 60);
+            long nanosOfMinute = Math.floorMod(epochSecond, 60) * 1_000_000_000L + start.getNano();
+            boolean fraction = nanosOfMinute != 0;
+            encoder.varlong(((zigzag(minute) << 1) | (fraction ? 1 : 0)) + 1);
+            if (fraction) {
+                encoder.varlong(nanosOfMinute);
+            }
+        }
+
+        Duration duration = task.getDuration();
+        encoder.varlong(duration == null ? 0 : zigzag(duration.toMinutes()) + 1);
+    }
+
+    private static Task readTask(Decoder decoder, TaskType[] types, TaskStatus[] statuses, boolean versioned) {
+        TaskType type = code(types, decoder.rawByte());
+        int statusCode = decoder.rawByte();
+        TaskStatus status = statusCode == 0 ? null : code(statuses, statusCode - 1);
+        int id = decoder.varint();
+        long taskVersion = versioned ? decoder.varlong() : 1;
+        int epicId = type == TaskType.SUBTASK ? decoder.varint() : 0;
+        String name = decoder.string();
+        String description = decoder.string();
+
+        LocalDateTime start = null;
+        long startCode = decoder.varlong();
+        if (startCode != 0) {
+            long value = startCode - 1;
+            long minute = unzigzag(value >>> 1);
+            long nanosOfMinute = (value & 1) != 0 ? decoder.varlong() : 0;
+            long epochSecond = minute * 60 + nanosOfMinute / 1_000_000_000L;
+            start = LocalDateTime.ofEpochSecond(epochSecond, (int) (nanosOfMinute % 1_000_000_000L), ZoneOffset.UTC);
+        }
+        long durationCode = decoder.varlong();
+        Duration duration = durationCode == 0 ? null : Duration.ofMinutes(unzigzag(durationCode - 1));
+
+        return TaskConversionUtils.buildTask(id, type, name, status, description, epicId, start, duration,
+                taskVersion);
+    }
+
+    private static <E> E code(E[] table, int index) {
+        if (index >= table.length) {
+            throw new ManagerSaveException("Двоичный снимок повреждён: неизвестный код " + index);
+        }
+        return table[index];
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    // Буферизованная запись с подсчётом CRC32; сам OutputStream вызывается большими блоками
+    private static class Encoder {
+        private final OutputStream out;
+        private final CRC32 crc = new CRC32();
+        private final byte[] buffer = new byte[64 * 1024];
+        private int position;
+
+        Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        void rawByte(int value) throws IOException {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int chunk = Math.min(bytes.length - offset, buffer.length - position);
+                System.arraycopy(bytes, offset, buffer, position, chunk);
+                position += chunk;
+                offset += chunk;
+            }
+        }
+
+        void varlong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void string(String value) throws IOException {
+            if (value == null) {
+                varlong(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varlong(bytes.length + 1L);
+            bytes(bytes);
+        }
+
+        void finish() throws IOException {
+            drain();
+            int checksum = (int) crc.getValue();
+            out.write(new byte[]{
+                    (byte) (checksum >>> 24), (byte) (checksum >>> 16), (byte) (checksum >>> 8), (byte) checksum
+            });
+            out.flush();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.length - position < bytes) {
+                drain();
+            }
+        }
+
+        private void drain() throws IOException {
+            crc.update(buffer, 0, position);
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static class Decoder {
+        private final MappedInput input;
+        private byte[] scratch = new byte[256];
+
+        Decoder(MappedInput input) {
+            this.input = input;
+        }
+
+        void skip(int bytes) {
+            for (int i = 0; i < bytes; i++) {
+                rawByte();
+            }
+        }
+
+        int rawByte() {
+            int b = input.read();
+            if (b < 0) {
+                throw unexpectedEnd();
+            }
+            return b;
+        }
+
+        int varint() {
+            long value = varlong();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new ManagerSaveException("Двоичный снимок повреждён: некорректное число " + value);
+            }
+            return (int) value;
+        }
+
+        long varlong() {
+            long result = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = rawByte();
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new ManagerSaveException("Двоичный снимок повреждён: слишком длинное число");
+        }
+
+        String string() {
+            int code = varint();
+            if (code == 0) {
+                return null;
+            }
+            int length = code - 1;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            if (!input.readFully(scratch, 0, length)) {
+                throw unexpectedEnd();
+            }
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        private static ManagerSaveException unexpectedEnd() {
+            return new ManagerSaveException("Двоичный снимок повреждён: неожиданный конец данных");
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package manager;
+
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.util.List;
+
+/**
+ * Неизменяемый согласованный срез доски на момент версии {@code version}.
+ * <p>
+ * Списки неизменяемы и содержат копии задач: срез можно читать и сериализовать
+ * сколько угодно долго, не мешая изменениям менеджера. Задачи, эпики и подзадачи
+ * упорядочены по id, prioritized — как getPrioritizedTasks.
+ */
+public record BoardSnapshot(long version, List<Task> tasks, List<Epic> epics, List<SubTask> subtasks,
+                            List<Task> prioritized) {
+
+    static final BoardSnapshot EMPTY = new BoardSnapshot(0, List.of(), List.of(), List.of(), List.of());
+}
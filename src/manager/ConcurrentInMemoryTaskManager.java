@@ -0,0 +1,552 @@
+package manager;
+
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Вариант InMemoryTaskManager для общего доступа из многих потоков без глобальной блокировки.
+ * <p>
+ * Задачи, эпики и подзадачи лежат в ConcurrentHashMap, id выдаются через
+ * {@link IdAllocator}. Поэтому получение по id, создание эпика и чтение списков
+ * задач не берут никаких замков. Общие вторичные индексы защищены узкими замками:
+ * <ul>
+ *     <li>полосы задач ({@code taskStripes}) — обновление и удаление одной задачи:
+ *     проверка версии, перестановка в порядке по времени и запись в хранилище идут
+ *     одним шагом. Новой задаче полоса не нужна — её id до вставки никому не виден;</li>
+ *     <li>полосы эпиков ({@code epicStripes}) — связи подзадач с эпиком и пересчёт эпика.
+ *     Изменения подзадач разных эпиков идут параллельно;</li>
+ *     <li>{@code timeLock} — индекс пересечений и порядок по времени. Его берут только
+ *     операции, у которых прежний или новый интервал задан: задачи и подзадачи без
+ *     времени и смена статуса без изменения времени обходятся без него.</li>
+ * </ul>
+ * Порядок захвата, исключающий взаимоблокировки: boardLock на чтение, полосы эпиков
+ * по возрастанию номера, полосы задач, затем timeLock. Операции над всеми эпиками
+ * или задачами берут все полосы в том же порядке. История просмотров синхронизирована отдельно.
+ * <p>
+ * Списки (getAll*, getPrioritizedTasks) читаются из неизменяемого среза {@link BoardSnapshot},
+ * который пересобирается не чаще одного раза на версию доски.
+ * <p>
+ * Получение по id и история тоже отдают копии: эпик меняется на месте (список подзадач,
+ * статус и время) под полосой эпика, поэтому его копия снимается под той же полосой.
+ * Переданный в менеджер объект нельзя менять в обход него из другого потока: изменения
+ * передаются новым объектом (например, {@code copy()}) через update*.
+ */
+public class ConcurrentInMemoryTaskManager extends InMemoryTaskManager {
+    static final int DEFAULT_ID_BLOCK_SIZE = 32;
+    static final int EPIC_STRIPES = 64;
+    static final int TASK_STRIPES = 64;
+    // Какие части среза устарели
+    private static final int TASKS = 1;
+    private static final int EPICS = 2;
+    private static final int SUBTASKS = 4;
+
+    private final IdAllocator idAllocator;
+    private final ReentrantLock[] epicStripes = new ReentrantLock[EPIC_STRIPES];
+    private final ReentrantLock[] taskStripes = new ReentrantLock[TASK_STRIPES];
+    private final Object timeLock = new Object();
+
+    // Изменяющие операции держат boardLock на чтение, сборка среза — на запись
+    private final ReentrantReadWriteLock boardLock = new ReentrantReadWriteLock();
+    private final AtomicLong modCount = new AtomicLong();
+    private final AtomicInteger dirty = new AtomicInteger();
+    private volatile BoardSnapshot published = BoardSnapshot.EMPTY;
+
+    public ConcurrentInMemoryTaskManager() {
+        this(DEFAULT_ID_BLOCK_SIZE);
+    }
+
+    public ConcurrentInMemoryTaskManager(int idBlockSize) {
+        this.idAllocator = new IdAllocator(1, idBlockSize);
+        for (int i = 0; i < EPIC_STRIPES; i++) {
+            epicStripes[i] = new ReentrantLock();
+        }
+        for (int i = 0; i < TASK_STRIPES; i++) {
+            taskStripes[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    protected <V> Map<Integer, V> newStorage() {
+        return new ConcurrentHashMap<>();
+    }
+
+    // Страницы отдаются из среза, индекс id не нужен
+    @Override
+    IntIdIndex newIdIndex() {
+        return null;
+    }
+
+    @Override
+    protected NavigableMap<PriorityKey, Task> newScheduleMap() {
+        return new ConcurrentSkipListMap<>();
+    }
+
+    @Override
+    protected HistoryManager createHistoryManager() {
+        return new SynchronizedHistoryManager(Managers.getDefaultHistory());
+    }
+
+    @Override
+    protected int generateId() {
+        return idAllocator.next();
+    }
+
+    /*
+     * Задачу одновременно никто не меняет — вызывающий держит её полосу (задачи или эпика),
+     * поэтому её текущий ключ можно читать без timeLock. Задачи без времени нет в индексе
+     * пересечений, и порядок по времени для них меняется без timeLock.
+     */
+    @Override
+    protected void schedule(Task task, String conflictMessage) {
+        timed(hasInterval(task), () -> {
+            super.schedule(task, conflictMessage);
+            return null;
+        });
+    }
+
+    @Override
+    protected void reschedule(Task task, String conflictMessage) {
+        PriorityKey current = scheduledKey(task.getId());
+        PriorityKey next = PriorityKey.of(task);
+        if (current != null && current.equals(next)) {
+            // интервал не изменился: пересечений быть не может, достаточно заменить объект
+            replacePrioritized(current, task);
+            return;
+        }
+        timed(current != null && current.timed() || next.timed(), () -> {
+            super.reschedule(task, conflictMessage);
+            return null;
+        });
+    }
+
+    @Override
+    protected void addPrioritized(Task task) {
+        timed(hasInterval(task), () -> {
+            super.addPrioritized(task);
+            return null;
+        });
+    }
+
+    @Override
+    protected void removePrioritized(int id) {
+        PriorityKey current = scheduledKey(id);
+        timed(current != null && current.timed(), () -> {
+            super.removePrioritized(id);
+            return null;
+        });
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        return mutating(TASKS, () -> super.createTask(task));
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        return mutating(TASKS, () -> withTask(task.getId(), () -> super.updateTask(task)));
+    }
+
+    // Проверка версии и обновление — под одними и теми же замками (они повторно входимые)
+    @Override
+    public Task updateTask(Task task, long expectedVersion) {
+        return mutating(TASKS, () -> withTask(task.getId(), () -> super.updateTask(task, expectedVersion)));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        if (tasks.containsKey(id)) {
+            mutating(TASKS, () -> withTask(id, () -> {
+                super.deleteTask(id);
+                return null;
+            }));
+        }
+    }
+
+    /**
+     * Задачи удаляются по одной под своими полосами, а не очисткой хранилища:
+     * задача, созданная параллельно, либо удаляется вместе со всеми, либо остаётся целиком.
+     */
+    @Override
+    public void deleteAllTasks() {
+        mutating(TASKS, () -> {
+            for (int id : new ArrayList<>(tasks.keySet())) {
+                withTask(id, () -> {
+                    super.deleteTask(id);
+                    return null;
+                });
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        return mutating(EPICS, () -> super.createEpic(epic));
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return mutating(EPICS, () -> withEpics(epic.getId(), epic.getId(), () -> super.updateEpic(epic)));
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic, long expectedVersion) {
+        return mutating(EPICS, () -> withEpics(epic.getId(), epic.getId(),
+                () -> super.updateEpic(epic, expectedVersion)));
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        if (epics.containsKey(id)) {
+            mutating(EPICS | SUBTASKS, () -> withEpics(id, id, () -> {
+                super.deleteEpic(id);
+                return null;
+            }));
+        }
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        mutating(EPICS | SUBTASKS, () -> withAllEpics(() -> {
+            super.deleteAllEpics();
+            return null;
+        }));
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subtask) {
+        int epicId = subtask.getEpicId();
+        return mutating(EPICS | SUBTASKS, () -> withEpics(epicId, epicId, () -> super.createSubTask(subtask)));
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subtask) {
+        return mutating(EPICS | SUBTASKS, () ->
+                withSubtaskEpics(subtask.getId(), subtask.getEpicId(), () -> super.updateSubTask(subtask)));
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subtask, long expectedVersion) {
+        return mutating(EPICS | SUBTASKS, () -> withSubtaskEpics(subtask.getId(), subtask.getEpicId(),
+                () -> super.updateSubTask(subtask, expectedVersion)));
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        if (subtasks.containsKey(id)) {
+            mutating(EPICS | SUBTASKS, () -> withSubtaskEpics(id, 0, () -> {
+                super.deleteSubtask(id);
+                return null;
+            }));
+        }
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        mutating(EPICS | SUBTASKS, () -> withAllEpics(() -> {
+            super.deleteAllSubtasks();
+            return null;
+        }));
+    }
+
+    // Пакет может затронуть любые эпики: все полосы, затем timeLock — в общем порядке захвата
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) {
+        return mutating(TASKS | EPICS | SUBTASKS, () -> withAllEpics(() -> withAllTasks(() ->
+                timed(true, () -> super.applyBatch(operations)))));
+    }
+
+    @Override
+    public List<Task> importAll(Collection<? extends Task> items) {
+        return mutating(TASKS | EPICS | SUBTASKS, () -> withAllEpics(() -> withAllTasks(() ->
+                timed(true, () -> super.importAll(items)))));
+    }
+
+    @Override
+    public List<SubTask> getSubtasksForEpic(int epicId) {
+        return withEpics(epicId, epicId, () -> super.getSubtasksForEpic(epicId));
+    }
+
+    @Override
+    public Optional<Task> getTask(int id) {
+        return super.getTask(id).map(Task::copy);
+    }
+
+    @Override
+    public Optional<Epic> getEpic(int id) {
+        return withEpics(id, id, () -> super.getEpic(id).map(Epic::copy));
+    }
+
+    @Override
+    public Optional<SubTask> getSubtask(int id) {
+        return super.getSubtask(id).map(SubTask::copy);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = super.getHistory();
+        List<Task> copies = new ArrayList<>(history.size());
+        for (Task task : history) {
+            copies.add(task instanceof Epic epic ? withEpics(epic.getId(), epic.getId(), epic::copy) : task.copy());
+        }
+        return copies;
+    }
+
+    // Списки отдаются из последнего среза: без блокировок и без копирования на каждый запрос
+    @Override
+    public List<Task> getAllTasks() {
+        return snapshot().tasks();
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return snapshot().epics();
+    }
+
+    @Override
+    public List<SubTask> getAllSubTasks() {
+        return snapshot().subtasks();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return snapshot().prioritized();
+    }
+
+    // Страницы — срезы тех же неизменяемых списков; начало страницы ищется двоичным поиском
+    @Override
+    public Page<Task> getTasksPage(String cursor, int limit) {
+        return Pages.bySortedId(snapshot().tasks(), cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(String cursor, int limit) {
+        return Pages.bySortedId(snapshot().epics(), cursor, limit);
+    }
+
+    @Override
+    public Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return Pages.bySortedId(snapshot().subtasks(), cursor, limit);
+    }
+
+    @Override
+    public Page<SubTask> getSubtasksForEpicPage(int epicId, String cursor, int limit) {
+        return withEpics(epicId, epicId, () -> super.getSubtasksForEpicPage(epicId, cursor, limit));
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasksPage(String cursor, int limit) {
+        return Pages.bySortedPriority(snapshot().prioritized(), cursor, limit);
+    }
+
+    /**
+     * Счётчик базового класса растёт ещё под блокировками эпиков, а срез видит
+     * изменение только после увеличения modCount. Сумма обоих счётчиков растёт и
+     * после того, как изменение стало видно в срезе, поэтому ответ, закешированный
+     * в промежутке, не переживёт следующего чтения счётчика.
+     */
+    @Override
+    public long getModificationCount() {
+        return super.getModificationCount() + modCount.get();
+    }
+
+    /**
+     * Согласованный срез всей доски. Если с прошлого среза доска не менялась, возвращается
+     * он же без блокировок. Иначе первый читатель дожидается завершения начатых изменений,
+     * пересобирает изменившиеся части и публикует новый срез для всех остальных.
+     */
+    public BoardSnapshot snapshot() {
+        BoardSnapshot current = published;
+        if (current.version() == modCount.get()) {
+            return current;
+        }
+        boardLock.writeLock().lock();
+        try {
+            current = published;
+            long version = modCount.get();
+            if (current.version() != version) {
+                current = rebuild(current, version, dirty.getAndSet(0));
+                published = current;
+            }
+            return current;
+        } finally {
+            boardLock.writeLock().unlock();
+        }
+    }
+
+    // Вызывается без активных изменений: все изменяющие операции держат boardLock на чтение
+    private BoardSnapshot rebuild(BoardSnapshot previous, long version, int changed) {
+        List<Task> taskList = (changed & TASKS) != 0 ? copiesById(tasks.values()) : previous.tasks();
+        List<Epic> epicList = (changed & EPICS) != 0 ? copiesById(epics.values()) : previous.epics();
+        List<SubTask> subtaskList = (changed & SUBTASKS) != 0 ? copiesById(subtasks.values()) : previous.subtasks();
+        List<Task> prioritized = previous.prioritized();
+        if ((changed & (TASKS | SUBTASKS)) != 0) {
+            Map<Integer, Task> copies = new HashMap<>(taskList.size() + subtaskList.size());
+            taskList.forEach(t -> copies.put(t.getId(), t));
+            subtaskList.forEach(t -> copies.put(t.getId(), t));
+            List<Task> ordered = new ArrayList<>(copies.size());
+            for (Task task : super.getPrioritizedTasks()) {
+                ordered.add(copies.get(task.getId()));
+            }
+            prioritized = Collections.unmodifiableList(ordered);
+        }
+        return new BoardSnapshot(version, taskList, epicList, subtaskList, prioritized);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> List<T> copiesById(Collection<T> source) {
+        List<T> result = new ArrayList<>(source.size());
+        for (T task : source) {
+            result.add((T) task.copy());
+        }
+        result.sort(Comparator.comparingInt(Task::getId));
+        return Collections.unmodifiableList(result);
+    }
+
+    // Изменения идут параллельно друг с другом, но не со сборкой среза
+    private <R> R mutating(int kinds, Supplier<R> action) {
+        boardLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            dirty.getAndAccumulate(kinds, (a, b) -> a | b);
+            modCount.incrementAndGet();
+            boardLock.readLock().unlock();
+        }
+    }
+
+    static int stripeOf(int epicId) {
+        return Math.floorMod(epicId, EPIC_STRIPES);
+    }
+
+    private static boolean hasInterval(Task task) {
+        return task.getStartTime() != null && task.getEndTime() != null;
+    }
+
+    // timeLock берётся, только если операция затрагивает интервал
+    private <R> R timed(boolean needed, Supplier<R> action) {
+        if (!needed) {
+            return action.get();
+        }
+        synchronized (timeLock) {
+            return action.get();
+        }
+    }
+
+    private <R> R withTask(int id, Supplier<R> action) {
+        ReentrantLock stripe = taskStripes[Math.floorMod(id, TASK_STRIPES)];
+        stripe.lock();
+        try {
+            return action.get();
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Захватывает полосы двух эпиков (можно одного и того же) по возрастанию номера
+    private <R> R withEpics(int firstEpicId, int secondEpicId, Supplier<R> action) {
+        int a = stripeOf(firstEpicId);
+        int b = stripeOf(secondEpicId);
+        ReentrantLock low = epicStripes[Math.min(a, b)];
+        ReentrantLock high = epicStripes[Math.max(a, b)];
+        low.lock();
+        try {
+            if (high != low) {
+                high.lock();
+            }
+            try {
+                return action.get();
+            } finally {
+                if (high != low) {
+                    high.unlock();
+                }
+            }
+        } finally {
+            low.unlock();
+        }
+    }
+
+    /**
+     * Захватывает полосы текущего эпика подзадачи и целевого эпика (0 — только текущего).
+     * Текущий эпик читается до захвата, поэтому после захвата он перепроверяется:
+     * если подзадачу успели перенести, захват повторяется.
+     */
+    private <R> R withSubtaskEpics(int subtaskId, int targetEpicId, Supplier<R> action) {
+        while (true) {
+            int linked = linkedEpicId(subtaskId);
+            int first = linked != 0 ? linked : targetEpicId;
+            int second = targetEpicId != 0 ? targetEpicId : first;
+            Object[] result = withEpics(first, second, () ->
+                    linkedEpicId(subtaskId) == linked ? new Object[]{action.get()} : null);
+            if (result != null) {
+                @SuppressWarnings("unchecked")
+                R value = (R) result[0];
+                return value;
+            }
+        }
+    }
+
+    private <R> R withAllEpics(Supplier<R> action) {
+        return withAll(epicStripes, action);
+    }
+
+    private <R> R withAllTasks(Supplier<R> action) {
+        return withAll(taskStripes, action);
+    }
+
+    private static <R> R withAll(ReentrantLock[] stripes, Supplier<R> action) {
+        int locked = 0;
+        try {
+            for (ReentrantLock stripe : stripes) {
+                stripe.lock();
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private static class SynchronizedHistoryManager implements HistoryManager {
+        private final HistoryManager delegate;
+
+        SynchronizedHistoryManager(HistoryManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void add(Task task) {
+            delegate.add(task);
+        }
+
+        @Override
+        public synchronized List<Task> getHistory() {
+            return delegate.getHistory();
+        }
+
+        @Override
+        public synchronized void remove(int id) {
+            delegate.remove(id);
+        }
+    }
+}
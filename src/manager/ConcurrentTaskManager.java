@@ -0,0 +1,319 @@
+package manager;
+
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Потокобезопасная обёртка над любым TaskManager.
+ * <p>
+ * Изменения выполняются под блокировкой записи, поэтому выдача id, проверка пересечений
+ * и пересчёт эпиков атомарны. Чтение списков идёт под блокировкой чтения и может выполняться
+ * параллельно. Получение задачи по id тоже меняет историю просмотров, поэтому, помимо
+ * блокировки чтения, такие вызовы упорядочены между собой отдельным замком истории.
+ * <p>
+ * Наружу отдаются копии задач, снятые под блокировкой: читатель видит согласованное
+ * состояние и не может случайно изменить данные менеджера в обход его методов.
+ * По той же причине в менеджер передаются копии аргументов, а присвоенный id
+ * записывается в исходный объект, как это делает InMemoryTaskManager.
+ */
+public class ConcurrentTaskManager implements TaskManager {
+    private final TaskManager delegate;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object historyLock = new Object();
+
+    public ConcurrentTaskManager(TaskManager delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate не может быть null");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Task createTask(Task task) {
+        Task created = write(() -> delegate.createTask(task.copy()).copy());
+        task.setId(created.getId());
+        return created;
+    }
+
+    @Override
+    public Epic createEpic(Epic epic) {
+        Epic created = write(() -> delegate.createEpic(epic.copy()).copy());
+        epic.setId(created.getId());
+        return created;
+    }
+
+    @Override
+    public SubTask createSubTask(SubTask subtask) {
+        SubTask created = write(() -> delegate.createSubTask(subtask.copy()).copy());
+        subtask.setId(created.getId());
+        return created;
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subtask) {
+        return write(() -> delegate.updateSubTask(subtask.copy()).copy());
+    }
+
+    @Override
+    public Task updateTask(Task task) {
+        return write(() -> delegate.updateTask(task.copy()).copy());
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic) {
+        return write(() -> delegate.updateEpic(epic.copy()).copy());
+    }
+
+    @Override
+    public Task updateTask(Task task, long expectedVersion) {
+        return write(() -> delegate.updateTask(task.copy(), expectedVersion).copy());
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subtask, long expectedVersion) {
+        return write(() -> delegate.updateSubTask(subtask.copy(), expectedVersion).copy());
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic, long expectedVersion) {
+        return write(() -> delegate.updateEpic(epic.copy(), expectedVersion).copy());
+    }
+
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) {
+        if (operations == null) {
+            throw new IllegalArgumentException("Пакет операций не может быть null.");
+        }
+        List<BatchOperation> copies = new ArrayList<>(operations.size());
+        for (BatchOperation operation : operations) {
+            copies.add(operation == null || operation.task() == null ? operation
+                    : new BatchOperation(operation.action(), operation.type(), operation.task().copy(), operation.id()));
+        }
+        List<Task> applied = write(() -> {
+            List<Task> results = new ArrayList<>(copies.size());
+            for (Task task : delegate.applyBatch(copies)) {
+                results.add(task == null ? null : task.copy());
+            }
+            return results;
+        });
+        // как и create*, записываем присвоенные id в исходные объекты
+        for (int i = 0; i < operations.size(); i++) {
+            if (applied.get(i) != null && operations.get(i).action() == BatchOperation.Action.CREATE) {
+                operations.get(i).task().setId(applied.get(i).getId());
+            }
+        }
+        return applied;
+    }
+
+    @Override
+    public List<Task> importAll(Collection<? extends Task> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Список импорта не может быть null.");
+        }
+        List<Task> originals = new ArrayList<>(items);
+        List<Task> copies = new ArrayList<>(originals.size());
+        for (Task item : originals) {
+            copies.add(item == null ? null : item.copy());
+        }
+        List<Task> imported = write(() -> copies(delegate.importAll(copies)));
+        for (int i = 0; i < originals.size(); i++) {
+            originals.get(i).setId(imported.get(i).getId());
+        }
+        return imported;
+    }
+
+    @Override
+    public Optional<Task> getTask(int id) {
+        return viewed(() -> delegate.getTask(id).map(Task::copy));
+    }
+
+    @Override
+    public Optional<Epic> getEpic(int id) {
+        return viewed(() -> delegate.getEpic(id).map(Epic::copy));
+    }
+
+    @Override
+    public Optional<SubTask> getSubtask(int id) {
+        return viewed(() -> delegate.getSubtask(id).map(SubTask::copy));
+    }
+
+    @Override
+    public void deleteTask(int id) {
+        write(() -> {
+            delegate.deleteTask(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteEpic(int id) {
+        write(() -> {
+            delegate.deleteEpic(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteSubtask(int id) {
+        write(() -> {
+            delegate.deleteSubtask(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllTasks() {
+        write(() -> {
+            delegate.deleteAllTasks();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllEpics() {
+        write(() -> {
+            delegate.deleteAllEpics();
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteAllSubtasks() {
+        write(() -> {
+            delegate.deleteAllSubtasks();
+            return null;
+        });
+    }
+
+    @Override
+    public List<Task> getAllTasks() {
+        return read(() -> copies(delegate.getAllTasks()));
+    }
+
+    @Override
+    public List<Epic> getAllEpics() {
+        return read(() -> copies(delegate.getAllEpics()));
+    }
+
+    @Override
+    public List<SubTask> getAllSubTasks() {
+        return read(() -> copies(delegate.getAllSubTasks()));
+    }
+
+    @Override
+    public List<SubTask> getSubtasksForEpic(int epicId) {
+        return read(() -> copies(delegate.getSubtasksForEpic(epicId)));
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return viewed(() -> copies(delegate.getHistory()));
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return read(() -> copies(delegate.getPrioritizedTasks()));
+    }
+
+    @Override
+    public Page<Task> getTasksPage(String cursor, int limit) {
+        return read(() -> copies(delegate.getTasksPage(cursor, limit)));
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(String cursor, int limit) {
+        return read(() -> copies(delegate.getEpicsPage(cursor, limit)));
+    }
+
+    @Override
+    public Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return read(() -> copies(delegate.getSubTasksPage(cursor, limit)));
+    }
+
+    @Override
+    public Page<SubTask> getSubtasksForEpicPage(int epicId, String cursor, int limit) {
+        return read(() -> copies(delegate.getSubtasksForEpicPage(epicId, cursor, limit)));
+    }
+
+    @Override
+    public Page<Task> getHistoryPage(String cursor, int limit) {
+        return viewed(() -> copies(delegate.getHistoryPage(cursor, limit)));
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasksPage(String cursor, int limit) {
+        return read(() -> copies(delegate.getPrioritizedTasksPage(cursor, limit)));
+    }
+
+    @Override
+    public long getModificationCount() {
+        return delegate.getModificationCount();
+    }
+
+    @Override
+    public long getHistoryModificationCount() {
+        return delegate.getHistoryModificationCount();
+    }
+
+    // Ожидание диска — вне блокировок, чтобы не задерживать других
+    @Override
+    public void awaitDurability() {
+        delegate.awaitDurability();
+    }
+
+    @Override
+    public void flush() {
+        write(() -> {
+            delegate.flush();
+            return null;
+        });
+    }
+
+    private <R> R write(Supplier<R> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <R> R read(Supplier<R> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Чтение, которое трогает историю просмотров
+    private <R> R viewed(Supplier<R> action) {
+        return read(() -> {
+            synchronized (historyLock) {
+                return action.get();
+            }
+        });
+    }
+
+    private static <T extends Task> Page<T> copies(Page<T> page) {
+        return new Page<>(copies(page.items()), page.nextCursor());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Task> List<T> copies(List<T> source) {
+        List<T> result = new ArrayList<>(source.size());
+        for (T task : source) {
+            result.add((T) task.copy());
+        }
+        return result;
+    }
+}
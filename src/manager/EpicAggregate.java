@@ -0,0 +1,98 @@
+package manager;
+
+import task.Epic;
+import task.SubTask;
+import task.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Инкрементальные агрегаты эпика по его подзадачам: количество подзадач по статусам
+ * и отсортированные мультимножества времени начала и окончания.
+ * <p>
+ * Добавление и удаление подзадачи стоят O(log k), где k — число подзадач эпика.
+ * Вклад каждой подзадачи запоминается при добавлении, поэтому удаление корректно,
+ * даже если объект подзадачи был изменён снаружи.
+ */
+class EpicAggregate {
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+    private int newCount;
+    private int doneCount;
+
+    void add(SubTask subtask) {
+        remove(subtask.getId());
+        Contribution contribution = new Contribution(subtask.getStatus(), subtask.getStartTime(), subtask.getEndTime());
+        contributions.put(subtask.getId(), contribution);
+        if (contribution.status == TaskStatus.NEW) newCount++;
+        if (contribution.status == TaskStatus.DONE) doneCount++;
+        if (contribution.start != null) starts.merge(contribution.start, 1, Integer::sum);
+        if (contribution.end != null) ends.merge(contribution.end, 1, Integer::sum);
+    }
+
+    void remove(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        if (contribution.status == TaskStatus.NEW) newCount--;
+        if (contribution.status == TaskStatus.DONE) doneCount--;
+        if (contribution.start != null) decrement(starts, contribution.start);
+        if (contribution.end != null) decrement(ends, contribution.end);
+    }
+
+    int size() {
+        return contributions.size();
+    }
+
+    /**
+     * Переносит статус и временные поля в эпик.
+     */
+    void applyTo(Epic epic) {
+        int total = contributions.size();
+        if (total == 0) {
+            epic.setStatus(TaskStatus.NEW);
+            epic.setStartTime(null);
+            epic.setEndTime(null);
+            return;
+        }
+
+        if (doneCount == total) epic.setStatus(TaskStatus.DONE);
+        else if (newCount == total) epic.setStatus(TaskStatus.NEW);
+        else epic.setStatus(TaskStatus.IN_PROGRESS);
+
+        if (!starts.isEmpty() && !ends.isEmpty()) {
+            LocalDateTime start = starts.firstKey();
+            LocalDateTime end = ends.lastKey();
+            epic.setStartTime(start);
+            epic.setEndTime(end);
+            epic.setDuration(Duration.between(start, end).truncatedTo(ChronoUnit.MINUTES));
+        } else {
+            epic.setStartTime(null);
+            epic.setEndTime(null);
+            epic.setDuration(Duration.ZERO);
+        }
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> multiset, LocalDateTime key) {
+        multiset.computeIfPresent(key, (k, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static class Contribution {
+        private final TaskStatus status;
+        private final LocalDateTime start;
+        private final LocalDateTime end;
+
+        Contribution(TaskStatus status, LocalDateTime start, LocalDateTime end) {
+            this.status = status;
+            this.start = start;
+            this.end = end;
+        }
+    }
+}
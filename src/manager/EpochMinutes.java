@@ -0,0 +1,41 @@
+package manager;
+
+import java.time.LocalDateTime;
+
+/**
+ * Компактный ключ момента времени для индексов и сравнений расписания.
+ * <p>
+ * Ключ — номер минуты от эпохи, умноженный на 2; младший бит отмечает момент внутри минуты
+ * (с секундами или наносекундами). Ключи упорядочены так же, как сами моменты, поэтому
+ * сравниваются как long, а полный LocalDateTime нужен только при равных ключах с младшим
+ * битом — оба момента внутри одной и той же минуты. Отсутствующему времени соответствует
+ * NONE, больший любого ключа: задачи без времени идут в конце. Ни вычисление ключа,
+ * ни сравнение не создают объектов.
+ */
+final class EpochMinutes {
+    static final long NONE = Long.MAX_VALUE - 1;
+
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private EpochMinutes() {
+    }
+
+    static long of(LocalDateTime time) {
+        if (time == null) {
+            return NONE;
+        }
+        long minute = time.toLocalDate().toEpochDay() * MINUTES_PER_DAY + time.getHour() * 60L + time.getMinute();
+        boolean inside = time.getSecond() != 0 || time.getNano() != 0;
+        return minute << 1 | (inside ? 1 : 0);
+    }
+
+    /**
+     * Сравнивает моменты по ключам; time и otherTime — те же моменты целиком.
+     */
+    static int compare(long key, LocalDateTime time, long otherKey, LocalDateTime otherTime) {
+        if (key != otherKey) {
+            return Long.compare(key, otherKey);
+        }
+        return (key & 1) == 0 ? 0 : time.compareTo(otherTime);
+    }
+}
@@ -3,228 +3,744 @@ package manager;
 import task.Epic;
 import task.SubTask;
 import task.Task;
+import task.TaskType;
 
 import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
+    static final String CHECKSUM_PREFIX = "#crc32,";
+    // Первая строка CSV-снимка: с ней снимок обязан заканчиваться контрольной суммой
+    static final String FORMAT_PREFIX = "#snapshot,";
+    static final int CSV_FORMAT_VERSION = 3;
+    // Общий поток для отложенного сохранения истории просмотров всех менеджеров.
+    // Методы, меняющие состояние, синхронизированы, чтобы это сохранение с ними не пересекалось.
+    private static final ScheduledExecutorService HISTORY_FLUSHER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "history-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Предел паузы между повторами неудавшегося фонового сохранения истории
+    private static final long MAX_FLUSH_RETRY_DELAY_MS = TimeUnit.MINUTES.toMillis(1);
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
     private final Path filePath;
+    private final StorageSettings settings;
+    private final TaskJournal journal;
+    // true, пока менеджер восстанавливается из файла: изменения не нужно сохранять повторно
+    private boolean restoring;
+    // Просмотры, ещё не попавшие в файл: флаг для снимка и список id для журнала
+    private boolean historyDirty;
+    private final List<Integer> pendingViews = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+    // Первая ошибка фонового сохранения, ещё не выброшенная из flush()/close(), и число повторов подряд
+    private ManagerSaveException backgroundFailure;
+    private int flushRetries;
+    private boolean closed;
+    // Записи выполняемого пакета (операция, данные) или null вне applyBatch
+    private List<String[]> batchRecords;
+    // Поколение снимка: растёт при каждом сжатии, им же помечается новый журнал
+    private long generation;
+    // Номер последней записи журнала, сделанной операциями потока, — её ждёт awaitDurability
+    private final ThreadLocal<Long> unsyncedSeq = new ThreadLocal<>();
 
     public FileBackedTaskManager(Path filePath) {
+        this(filePath, StorageSettings.defaults());
+    }
+
+    public FileBackedTaskManager(Path filePath, StorageSettings settings) {
+        this(filePath, settings, false);
+        if (journal != null) {
+            // Новая доска: старые снимок и журнал не должны смешиваться с новыми записями
+            compact();
+        }
+    }
+
+    private FileBackedTaskManager(Path filePath, StorageSettings settings, boolean restoring) {
         if (filePath == null) {
             throw new IllegalArgumentException("filePath не может быть null");
         }
+        if (settings == null) {
+            throw new IllegalArgumentException("settings не может быть null");
+        }
         this.filePath = filePath;
+        this.settings = settings;
+        this.restoring = restoring;
+        this.journal = settings.getMode() == PersistenceMode.JOURNAL
+                ? new TaskJournal(TaskJournal.pathFor(filePath),
+                settings.getFsyncPolicy(), settings.getFsyncInterval().toNanos())
+                : null;
     }
 
     @Override
-    public Task createTask(Task task) {
+    public synchronized Task createTask(Task task) {
         Task created = super.createTask(task);
-        save();
+        persist(TaskJournal.PUT, TaskConversionUtils.taskToCSV(created));
         return created;
     }
 
     @Override
-    public Epic createEpic(Epic epic) {
+    public synchronized Epic createEpic(Epic epic) {
         Epic created = super.createEpic(epic);
-        save();
+        persist(TaskJournal.PUT, TaskConversionUtils.taskToCSV(created));
         return created;
     }
 
     @Override
-    public SubTask createSubTask(SubTask subTask) {
+    public synchronized SubTask createSubTask(SubTask subTask) {
         SubTask created = super.createSubTask(subTask);
-        save();
+        persist(TaskJournal.PUT, TaskConversionUtils.taskToCSV(created));
         return created;
     }
 
     @Override
-    public Task updateTask(Task task) {
+    public synchronized Task updateTask(Task task) {
         Task updated = super.updateTask(task);
-        save();
+        persist(TaskJournal.PUT, TaskConversionUtils.taskToCSV(updated));
         return updated;
     }
 
     @Override
-    public Epic updateEpic(Epic epic) {
+    public synchronized Epic updateEpic(Epic epic) {
         Epic updated = super.updateEpic(epic);
-        save();
+        persist(TaskJournal.PUT, TaskConversionUtils.taskToCSV(updated));
         return updated;
     }
 
     @Override
-    public SubTask updateSubTask(SubTask subtask) {
+    public synchronized SubTask updateSubTask(SubTask subtask) {
         SubTask updated = super.updateSubTask(subtask);
-        save();
+        persist(TaskJournal.PUT, TaskConversionUtils.taskToCSV(updated));
         return updated;
     }
 
+    // Проверка версии и запись выполняются под тем же замком, что и обычное обновление
+    @Override
+    public synchronized Task updateTask(Task task, long expectedVersion) {
+        return super.updateTask(task, expectedVersion);
+    }
+
+    @Override
+    public synchronized Epic updateEpic(Epic epic, long expectedVersion) {
+        return super.updateEpic(epic, expectedVersion);
+    }
+
+    @Override
+    public synchronized SubTask updateSubTask(SubTask subtask, long expectedVersion) {
+        return super.updateSubTask(subtask, expectedVersion);
+    }
+
     @Override
-    public void deleteTask(int id) {
+    public synchronized void deleteTask(int id) {
         super.deleteTask(id);
-        save();
+        persist(TaskJournal.DELETE, String.valueOf(id));
     }
 
     @Override
-    public void deleteEpic(int id) {
+    public synchronized void deleteEpic(int id) {
         super.deleteEpic(id);
-        save();
+        persist(TaskJournal.DELETE, String.valueOf(id));
     }
 
     @Override
-    public void deleteSubtask(int id) {
+    public synchronized void deleteSubtask(int id) {
         super.deleteSubtask(id);
-        save();
+        persist(TaskJournal.DELETE, String.valueOf(id));
     }
 
     @Override
-    public void deleteAllTasks() {
+    public synchronized void deleteAllTasks() {
         super.deleteAllTasks();
-        save();
+        persist(TaskJournal.CLEAR, TaskType.TASK.name());
     }
 
     @Override
-    public void deleteAllEpics() {
+    public synchronized void deleteAllEpics() {
         super.deleteAllEpics();
-        save();
+        persist(TaskJournal.CLEAR, TaskType.EPIC.name());
     }
 
     @Override
-    public void deleteAllSubtasks() {
+    public synchronized void deleteAllSubtasks() {
         super.deleteAllSubtasks();
-        save();
+        persist(TaskJournal.CLEAR, TaskType.SUBTASK.name());
     }
 
     @Override
-    public Optional<Task> getTask(int id) {
+    public synchronized Optional<Task> getTask(int id) {
         Optional<Task> task = super.getTask(id);
-        save();
+        task.ifPresent(t -> markViewed(id));
         return task;
     }
 
     @Override
-    public Optional<SubTask> getSubtask(int id) {
+    public synchronized Optional<SubTask> getSubtask(int id) {
         Optional<SubTask> sub = super.getSubtask(id);
-        save();
+        sub.ifPresent(t -> markViewed(id));
         return sub;
     }
 
     @Override
-    public Optional<Epic> getEpic(int id) {
+    public synchronized Optional<Epic> getEpic(int id) {
         Optional<Epic> epic = super.getEpic(id);
-        save();
+        epic.ifPresent(t -> markViewed(id));
         return epic;
     }
 
-    protected void save() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath.toFile()))) {
-            writer.write("id,type,name,status,description,epic,startTime,duration");
-            writer.newLine();
+    /**
+     * Пакет сохраняется один раз после применения: в режиме SNAPSHOT — одним снимком,
+     * в режиме JOURNAL — записью BATCH, которая при восстановлении применяется целиком.
+     */
+    @Override
+    public synchronized List<Task> applyBatch(List<BatchOperation> operations) {
+        batchRecords = new ArrayList<>();
+        List<String[]> records = batchRecords;
+        List<Task> results;
+        try {
+            results = super.applyBatch(operations);
+        } finally {
+            // прерванный пакет откатан в памяти, поэтому его записи просто отбрасываются
+            batchRecords = null;
+        }
+        if (!records.isEmpty()) {
+            persistBatch(records);
+        }
+        return results;
+    }
 
-            for (Task task : getAllTasks()) {
-                writer.write(TaskConversionUtils.taskToCSV(task));
-                writer.newLine();
+    // Импорт сохраняется так же, как пакет: эпики раньше подзадач, чтобы журнал воспроизводился по порядку
+    @Override
+    public synchronized List<Task> importAll(Collection<? extends Task> items) {
+        List<Task> imported = super.importAll(items);
+        List<String[]> records = new ArrayList<>(imported.size());
+        for (Task item : imported) {
+            if (item instanceof Epic) {
+                records.add(new String[]{TaskJournal.PUT, TaskConversionUtils.taskToCSV(item)});
             }
-            for (Epic epic : getAllEpics()) {
-                writer.write(TaskConversionUtils.taskToCSV(epic));
-                writer.newLine();
+        }
+        for (Task item : imported) {
+            if (!(item instanceof Epic)) {
+                records.add(new String[]{TaskJournal.PUT, TaskConversionUtils.taskToCSV(item)});
             }
-            for (SubTask sub : getAllSubTasks()) {
-                writer.write(TaskConversionUtils.taskToCSV(sub));
-                writer.newLine();
+        }
+        if (!records.isEmpty()) {
+            persistBatch(records);
+        }
+        return imported;
+    }
+
+    private void persistBatch(List<String[]> records) {
+        if (journal == null) {
+            save();
+            historyDirty = false;
+            return;
+        }
+        appendPendingViews();
+        unsyncedSeq.set(journal.appendBatch(records));
+        if (journal.size() >= settings.getCompactionThreshold()) {
+            compact();
+        }
+    }
+
+    // В режиме SNAPSHOT перезаписывает файл, в режиме JOURNAL дописывает одну запись в журнал
+    private void persist(String operation, String payload) {
+        if (restoring) {
+            return;
+        }
+        if (batchRecords != null) {
+            batchRecords.add(new String[]{operation, payload});
+            return;
+        }
+        if (journal == null) {
+            save();
+            historyDirty = false;
+            return;
+        }
+        appendPendingViews();
+        unsyncedSeq.set(journal.append(operation, payload));
+        if (journal.size() >= settings.getCompactionThreshold()) {
+            compact();
+        }
+    }
+
+    /**
+     * Просмотр меняет только историю, поэтому файл не перезаписывается:
+     * история помечается изменённой и сохраняется при следующем изменении данных,
+     * при {@link #flush()}/{@link #close()} или фоновым потоком не позже чем через
+     * historyMaxStaleness.
+     */
+    private void markViewed(int id) {
+        if (restoring) {
+            return;
+        }
+        Duration maxStaleness = settings.getHistoryMaxStaleness();
+        if (maxStaleness.isZero()) {
+            persist(TaskJournal.VIEW, String.valueOf(id));
+            return;
+        }
+        if (journal != null) {
+            pendingViews.add(id);
+        }
+        historyDirty = true;
+        if (scheduledFlush == null && !closed) {
+            scheduledFlush = HISTORY_FLUSHER.schedule(this::flushInBackground,
+                    maxStaleness.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void appendPendingViews() {
+        for (int id : pendingViews) {
+            unsyncedSeq.set(journal.append(TaskJournal.VIEW, String.valueOf(id)));
+        }
+        pendingViews.clear();
+    }
+
+    /**
+     * Фоновое сохранение истории. При ошибке история остаётся помеченной, сохранение
+     * повторяется с удваивающейся паузой (не больше минуты), а сама ошибка запоминается
+     * и выбрасывается из ближайшего {@link #flush()} или {@link #close()}.
+     */
+    private synchronized void flushInBackground() {
+        scheduledFlush = null;
+        try {
+            flushHistory();
+            flushRetries = 0;
+        } catch (ManagerSaveException e) {
+            if (backgroundFailure == null) {
+                backgroundFailure = e;
             }
+            if (historyDirty && !closed) {
+                long delay = Math.min(settings.getHistoryMaxStaleness().toMillis() << Math.min(flushRetries, 16),
+                        MAX_FLUSH_RETRY_DELAY_MS);
+                flushRetries++;
+                scheduledFlush = HISTORY_FLUSHER.schedule(this::flushInBackground, delay, TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            // фоновую запись никто не ждёт
+            unsyncedSeq.remove();
+        }
+    }
 
-            writer.newLine();
-            String history = TaskConversionUtils.historyToString(historyManager);
-            if (!history.isBlank()) {
-                writer.write(history);
+    /**
+     * Сохраняет накопленные изменения истории просмотров, если они есть.
+     * Если до этого не удалось фоновое сохранение, его ошибка выбрасывается здесь,
+     * даже когда сама запись прошла успешно.
+     */
+    @Override
+    public synchronized void flush() {
+        ManagerSaveException failure = backgroundFailure;
+        backgroundFailure = null;
+        try {
+            flushHistory();
+        } catch (ManagerSaveException e) {
+            if (failure != null) {
+                e.addSuppressed(failure);
             }
+            throw e;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при сохранении в файл", e);
+    private void flushHistory() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (!historyDirty) {
+            return;
         }
+        if (journal == null) {
+            save();
+        } else {
+            appendPendingViews();
+            if (journal.size() >= settings.getCompactionThreshold()) {
+                compact();
+            }
+        }
+        historyDirty = false;
     }
 
-    public static FileBackedTaskManager loadFromFile(Path filePath) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(filePath);
-        List<String> lines;
+    /**
+     * Ждёт, пока операции вызывающего потока станут надёжными согласно {@link FsyncPolicy}:
+     * ожидается ровно последняя запись журнала, сделанная этим потоком, а не всё, что успели
+     * дописать другие. Вызывается после операции и вне блокировок менеджера, чтобы
+     * параллельные запросы разделяли один общий fsync.
+     */
+    @Override
+    public void awaitDurability() {
+        Long seq = unsyncedSeq.get();
+        if (seq != null) {
+            unsyncedSeq.remove();
+            journal.awaitDurable(seq);
+        }
+    }
 
+    /**
+     * Записывает полный снимок следующего поколения и начинает журнал этого поколения.
+     * Сбой между двумя шагами не страшен: старый журнал помечен прежним поколением
+     * и при загрузке пропускается.
+     */
+    public synchronized void compact() {
+        pendingViews.clear();
+        generation++;
+        save();
+        historyDirty = false;
+        if (journal != null) {
+            unsyncedSeq.set(journal.reset(generation));
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
         try {
-            lines = Files.readAllLines(filePath);
+            flush();
+        } finally {
+            closed = true;
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Ошибка при закрытии журнала", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Записывает снимок атомарно: сначала во временный файл рядом с основным,
+     * затем (при политике fsync, отличной от OS_DEFAULT) сбрасывает его на диск и
+     * переименовывает поверх старого снимка. Сбой посередине записи оставляет
+     * прежний снимок нетронутым. Формат задаётся {@link StorageSettings#getSnapshotFormat()};
+     * оба формата заканчиваются CRC32 содержимого.
+     */
+    protected void save() {
+        writeSnapshotFile(filePath, snapshotData(), settings.getSnapshotFormat(),
+                settings.getFsyncPolicy() != FsyncPolicy.OS_DEFAULT, this::wrapSnapshotStream);
+    }
+
+    private SnapshotData snapshotData() {
+        List<Task> all = new ArrayList<>(tasks.size() + epics.size() + subtasks.size());
+        all.addAll(getAllTasks());
+        all.addAll(getAllEpics());
+        all.addAll(getAllSubTasks());
+        List<Integer> history = new ArrayList<>();
+        for (Task task : historyManager.getHistory()) {
+            history.add(task.getId());
+        }
+        return new SnapshotData(all, history, generation);
+    }
+
+    private static void writeSnapshotFile(Path target, SnapshotData snapshot, SnapshotFormat format,
+                                          boolean fsync, UnaryOperator<OutputStream> wrapper) {
+        Path tempPath = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tempPath.toFile())) {
+                OutputStream stream = wrapper.apply(out);
+                if (format == SnapshotFormat.BINARY) {
+                    BinarySnapshotCodec.write(snapshot, stream);
+                } else {
+                    writeCsvSnapshot(snapshot, stream);
+                }
+                if (fsync) {
+                    out.getFD().sync();
+                }
+            }
+            Files.move(tempPath, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (fsync) {
+                syncDirectory(target);
+            }
         } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка при чтении файла", e);
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new ManagerSaveException("Ошибка при сохранении в файл", e);
+        }
+    }
+
+    private static void writeCsvSnapshot(SnapshotData snapshot, OutputStream out) throws IOException {
+        CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(checked, StandardCharsets.UTF_8));
+        writer.write(FORMAT_PREFIX + CSV_FORMAT_VERSION + "," + snapshot.generation());
+        writer.newLine();
+        writer.write("id,type,name,status,description,epic,startTime,duration,version");
+        writer.newLine();
+
+        for (Task task : snapshot.tasks()) {
+            writer.write(TaskConversionUtils.taskToCSV(task));
+            writer.newLine();
+        }
+
+        writer.newLine();
+        StringJoiner history = new StringJoiner(",");
+        for (int id : snapshot.history()) {
+            history.add(String.valueOf(id));
+        }
+        writer.write(history.toString());
+        writer.newLine();
+        writer.flush();
+
+        writer.write(CHECKSUM_PREFIX + checksumToHex(checked.getChecksum().getValue()));
+        writer.newLine();
+        writer.flush();
+    }
+
+    // Точка расширения для тестов с имитацией сбоя во время записи снимка
+    protected OutputStream wrapSnapshotStream(OutputStream out) {
+        return out;
+    }
+
+    // fsync каталога, чтобы переименование тоже пережило сбой питания
+    private static void syncDirectory(Path file) {
+        Path directory = file.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException | UnsupportedOperationException ignored) {
+            // не все платформы позволяют открыть каталог как канал
         }
+    }
+
+    private static String checksumToHex(long value) {
+        return String.format("%08x", value);
+    }
 
-        if (lines.size() <= 1) {  // файл пустой или только заголовок
-            return manager;
+    /**
+     * Переписывает снимок source в формате format в файл target (например, CSV в двоичный).
+     * Формат исходного файла определяется по содержимому; source и target могут совпадать.
+     * Журнал не переносится: перед конвертацией журнального хранилища вызовите {@link #compact()}.
+     */
+    public static void convertSnapshot(Path source, Path target, SnapshotFormat format) {
+        if (format == null) {
+            throw new IllegalArgumentException("format не может быть null");
         }
+        writeSnapshotFile(target, readSnapshotFile(source), format, true, UnaryOperator.identity());
+    }
+
+    // Читает снимок любого формата целиком в память (для конвертации)
+    private static SnapshotData readSnapshotFile(Path filePath) {
+        List<Task> allTasks = new ArrayList<>();
+        List<Integer> history = MappedSnapshotReader.read(filePath, allTasks::add);
+        return new SnapshotData(allTasks, history, MappedSnapshotReader.readGeneration(filePath));
+    }
 
-        Map<Integer, Task> allTasks = new HashMap<>();
-        boolean readingHistory = false;
-        List<Integer> historyIds = new ArrayList<>();
+    public static FileBackedTaskManager loadFromFile(Path filePath) {
+        return loadFromFile(filePath, StorageSettings.defaults());
+    }
 
-        for (int i = 1; i < lines.size(); i++) {
-            String line = lines.get(i);
+    /**
+     * Восстанавливает менеджер из снимка и дописанного после него журнала (если он есть).
+     * Снимок может быть записан в любом из форматов {@link SnapshotFormat}; он читается через
+     * отображение файла в память за один проход, задачи сразу попадают в менеджер.
+     */
+    public static FileBackedTaskManager loadFromFile(Path filePath, StorageSettings settings) {
+        return loadFromFile(filePath, settings, MappedSnapshotReader.MIN_CHUNK_SIZE);
+    }
 
-            if (line.isBlank()) {
-                readingHistory = true;
-                continue;
+    static FileBackedTaskManager loadFromFile(Path filePath, StorageSettings settings, long minChunkSize) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings, true);
+        ForkJoinPool pool = settings.getLoadParallelism() > 1
+                ? new ForkJoinPool(settings.getLoadParallelism()) : null;
+        try {
+            List<Integer> history = MappedSnapshotReader.read(filePath, manager::acceptSnapshotTask,
+                    MappedInput.DEFAULT_WINDOW_SIZE, pool, minChunkSize);
+            manager.finishSnapshot(history, pool);
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
             }
+        }
 
-            if (!readingHistory) {
-                try {
-                    Task task = TaskConversionUtils.taskFromCSV(line);
-                    int id = task.getId();
-                    allTasks.put(id, task);
-
-                    if (task instanceof Epic) {
-                        manager.epics.put(id, (Epic) task);
-                    } else if (task instanceof SubTask) {
-                        manager.subtasks.put(id, (SubTask) task);
-                    } else {
-                        manager.tasks.put(id, task);
+        manager.generation = MappedSnapshotReader.readGeneration(filePath);
+        List<String> records = TaskJournal.readRecords(TaskJournal.pathFor(filePath));
+        long journalGeneration = TaskJournal.generationOf(records);
+        if (journalGeneration > manager.generation) {
+            throw new ManagerSaveException("Журнал поколения " + journalGeneration
+                    + " новее снимка поколения " + manager.generation);
+        }
+        // Журнал прежнего поколения уже вошёл в снимок: сбой случился посреди сжатия.
+        // Журнал без поколения — записанный до его появления, поверх снимка поколения 0.
+        boolean stale = journalGeneration < manager.generation
+                && (journalGeneration >= 0 || manager.generation > 0);
+        records = stale ? List.of() : TaskJournal.operations(records);
+        boolean tornBatch = false;
+        for (int i = 0; i < records.size(); i++) {
+            String record = records.get(i);
+            try {
+                if (record.startsWith(TaskJournal.BATCH + ",")) {
+                    int count = Integer.parseInt(record.substring(TaskJournal.BATCH.length() + 1));
+                    if (records.size() - i - 1 < count) {
+                        // пакет не успел записаться целиком — его не было
+                        tornBatch = true;
+                        break;
                     }
-
-                    manager.nextId = Math.max(manager.nextId, id + 1);
-                } catch (Exception e) {
-                    throw new ManagerSaveException("Ошибка при разборе строки: " + line, e);
-                }
-            } else {
-                try {
-                    historyIds = TaskConversionUtils.historyFromString(line);
-                } catch (Exception e) {
-                    throw new ManagerSaveException("Ошибка при разборе истории: " + line, e);
+                    manager.replayBatch(records.subList(i + 1, i + 1 + count));
+                    i += count;
+                } else {
+                    manager.replay(record);
                 }
+            } catch (RuntimeException e) {
+                throw new ManagerSaveException("Ошибка при воспроизведении журнала: " + record, e);
             }
         }
-
-        for (SubTask sub : manager.subtasks.values()) {
-            Epic epic = manager.epics.get(sub.getEpicId());
-            if (epic != null) {
-                epic.getSubtaskIds().add(sub.getId());
-            } else {
-                throw new ManagerSaveException("Подзадача ссылается на несуществующий эпик: " + sub.getId());
+        manager.restoring = false;
+
+        if (manager.journal != null && (tornBatch || journalGeneration < 0 && !records.isEmpty())) {
+            // остаток пакета или журнал без поколения не должны оказаться перед новыми записями
+            manager.compact();
+        } else if (manager.journal != null && journalGeneration != manager.generation) {
+            // журнала нет или он устарел — снимок уже полон, начинаем журнал его поколения
+            manager.journal.reset(manager.generation);
+        } else if (manager.journal != null) {
+            manager.journal.setSize(records.size());
+        } else {
+            // Журнал больше не ведётся — переносим его содержимое в снимок
+            if (!records.isEmpty()) {
+                manager.save();
+            }
+            try {
+                Files.deleteIfExists(TaskJournal.pathFor(filePath));
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при удалении журнала", e);
             }
         }
+        return manager;
+    }
 
-        for (Epic epic : manager.epics.values()) {
-            manager.recalculateEpicFields(epic);
+    private void acceptSnapshotTask(Task task) {
+        int id = task.getId();
+        if (task instanceof Epic epic) {
+            epics.put(id, epic);
+        } else if (task instanceof SubTask sub) {
+            subtasks.put(id, sub);
+        } else {
+            tasks.put(id, task);
         }
+        nextId = Math.max(nextId, id + 1);
+    }
+
+    // Связывает подзадачи с эпиками, пересчитывает эпики и восстанавливает историю
+    private void finishSnapshot(List<Integer> historyIds, ForkJoinPool pool) {
+        for (SubTask sub : subtasks.values()) {
+            if (!epics.containsKey(sub.getEpicId())) {
+                throw new ManagerSaveException("Подзадача ссылается на несуществующий эпик: " + sub.getId());
+            }
+        }
+        List<Task> timed = new ArrayList<>(tasks.size() + subtasks.size());
+        timed.addAll(tasks.values());
+        timed.addAll(subtasks.values());
+        addAllPrioritized(timed, pool);
+        rebuildEpicLinks(pool);
 
         for (int id : historyIds) {
-            Task task = allTasks.get(id);
+            Task task = tasks.get(id);
+            if (task == null) task = epics.get(id);
+            if (task == null) task = subtasks.get(id);
             if (task != null) {
-                manager.historyManager.add(task);
+                historyManager.add(task);
             }
         }
-
-        return manager;
     }
 
+    private void replay(String record) {
+        int comma = record.indexOf(',');
+        String operation = record.substring(0, comma);
+        String payload = record.substring(comma + 1);
+
+        switch (operation) {
+            case TaskJournal.PUT -> restore(TaskConversionUtils.taskFromCSV(payload));
+            case TaskJournal.DELETE -> {
+                int id = Integer.parseInt(payload);
+                deleteTask(id);
+                deleteEpic(id);
+                deleteSubtask(id);
+            }
+            case TaskJournal.CLEAR -> {
+                switch (TaskType.valueOf(payload)) {
+                    case TASK -> deleteAllTasks();
+                    case EPIC -> deleteAllEpics();
+                    case SUBTASK -> deleteAllSubtasks();
+                }
+            }
+            case TaskJournal.VIEW -> {
+                int id = Integer.parseInt(payload);
+                if (tasks.containsKey(id)) {
+                    getTask(id);
+                } else if (epics.containsKey(id)) {
+                    getEpic(id);
+                } else {
+                    getSubtask(id);
+                }
+            }
+            default -> throw new IllegalArgumentException("Неизвестная операция журнала: " + operation);
+        }
+    }
 
+    /**
+     * Записи пакета применяются по одной, но промежуточные состояния пакета могут
+     * пересекаться по времени (задачи менялись временем). Поэтому, как и в applyBatch,
+     * интервалы всех затронутых задач освобождаются заранее.
+     */
+    private void replayBatch(List<String> batch) {
+        for (String record : batch) {
+            String payload = record.substring(record.indexOf(',') + 1);
+            if (record.startsWith(TaskJournal.PUT + ",")) {
+                removePrioritized(TaskConversionUtils.taskFromCSV(payload).getId());
+            } else if (record.startsWith(TaskJournal.DELETE + ",")) {
+                int id = Integer.parseInt(payload);
+                removePrioritized(id);
+                epicSubtasks.getOrDefault(id, Collections.emptyNavigableMap()).keySet()
+                        .forEach(this::removePrioritized);
+            }
+        }
+        batch.forEach(this::replay);
+    }
 
-}
\ No newline at end of file
+    // Создаёт задачу с сохранённым id или обновляет уже существующую; версия берётся из записи, если она там есть
+    private void restore(Task task) {
+        int id = task.getId();
+        long version = task.getVersion();
+        int savedNextId = nextId;
+        nextId = id;
+        try {
+            if (task instanceof Epic epic) {
+                if (epics.containsKey(id)) updateEpic(epic);
+                else createEpic(epic);
+            } else if (task instanceof SubTask subtask) {
+                if (subtasks.containsKey(id)) updateSubTask(subtask);
+                else createSubTask(subtask);
+            } else {
+                if (tasks.containsKey(id)) updateTask(task);
+                else createTask(task);
+            }
+            if (version > 0) {
+                task.setVersion(version);
+            }
+        } finally {
+            nextId = Math.max(savedNextId, id + 1);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package manager;
+
+public enum FsyncPolicy {
+    // fsync после каждой пачки записей: операция надёжна, как только дождалась своей пачки
+    EVERY_OP,
+    // fsync не чаще одного раза за заданный интервал
+    EVERY_N_MS,
+    // без fsync — сброс на диск остаётся на усмотрение ОС
+    OS_DEFAULT
+}
@@ -0,0 +1,214 @@
+package manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Фоновый писатель с групповой фиксацией (group commit).
+ * <p>
+ * Записи от любых потоков складываются в очередь. Поток-писатель забирает всё
+ * накопившееся одной пачкой, пишет её одним вызовом и, в зависимости от
+ * {@link FsyncPolicy}, делает один fsync на всю пачку. Каждой записи присваивается
+ * порядковый номер; {@link #awaitDurable(long)} ждёт, пока запись с этим номером
+ * станет надёжной по выбранной политике.
+ */
+class GroupCommitWriter implements Closeable {
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final long fsyncIntervalNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition progress = lock.newCondition();
+    private final Thread thread;
+
+    private List<ByteBuffer> pending = new ArrayList<>();
+    private long submittedSeq;
+    private long writtenSeq;
+    private long durableSeq;
+    private long lastSyncNanos = System.nanoTime();
+    private IOException failure;
+    private boolean closed;
+
+    GroupCommitWriter(Path path, FsyncPolicy policy, long fsyncIntervalNanos) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.policy = policy;
+        this.fsyncIntervalNanos = fsyncIntervalNanos;
+        this.thread = new Thread(this::run, "journal-writer-" + path.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Ставит запись в очередь и возвращает её порядковый номер. Не ждёт записи на диск.
+     */
+    long submit(byte[] record) {
+        lock.lock();
+        try {
+            checkState();
+            pending.add(ByteBuffer.wrap(record));
+            hasWork.signal();
+            return ++submittedSeq;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ждёт, пока запись станет надёжной: после fsync для EVERY_OP и EVERY_N_MS,
+     * после записи в файл для OS_DEFAULT.
+     */
+    void awaitDurable(long seq) {
+        await(seq, true);
+    }
+
+    void awaitWritten(long seq) {
+        await(seq, false);
+    }
+
+    // Очищает файл; все ранее поставленные записи к этому моменту уже записаны
+    void truncate() {
+        lock.lock();
+        try {
+            awaitWritten(submittedSeq);
+            channel.truncate(0);
+            if (policy != FsyncPolicy.OS_DEFAULT) {
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при очистке журнала", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void await(long seq, boolean durable) {
+        lock.lock();
+        try {
+            while ((durable ? durableSeq : writtenSeq) < seq) {
+                if (failure != null) {
+                    throw new ManagerSaveException("Ошибка при записи в журнал", failure);
+                }
+                progress.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkState() {
+        if (failure != null) {
+            throw new ManagerSaveException("Ошибка при записи в журнал", failure);
+        }
+        if (closed) {
+            throw new ManagerSaveException("Журнал закрыт");
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<ByteBuffer> batch;
+            long batchSeq;
+            boolean closing;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && !closed) {
+                    if (policy == FsyncPolicy.EVERY_N_MS && durableSeq < writtenSeq) {
+                        long waitNanos = lastSyncNanos + fsyncIntervalNanos - System.nanoTime();
+                        if (waitNanos <= 0) {
+                            break;
+                        }
+                        hasWork.awaitNanos(waitNanos);
+                    } else {
+                        hasWork.await();
+                    }
+                }
+                if (pending.isEmpty() && closed && durableSeq == writtenSeq) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                batchSeq = submittedSeq;
+                closing = closed;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer[] buffers = batch.toArray(new ByteBuffer[0]);
+                long remaining = 0;
+                for (ByteBuffer buffer : buffers) {
+                    remaining += buffer.remaining();
+                }
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+                boolean sync = switch (policy) {
+                    case EVERY_OP -> true;
+                    case EVERY_N_MS -> closing || System.nanoTime() - lastSyncNanos >= fsyncIntervalNanos;
+                    case OS_DEFAULT -> false;
+                };
+                if (sync) {
+                    channel.force(false);
+                    lastSyncNanos = System.nanoTime();
+                }
+                publish(batchSeq, sync || policy == FsyncPolicy.OS_DEFAULT, null);
+            } catch (IOException e) {
+                publish(batchSeq, false, e);
+                return;
+            }
+        }
+    }
+
+    private void publish(long seq, boolean durable, IOException error) {
+        lock.lock();
+        try {
+            if (error != null) {
+                failure = error;
+            } else {
+                writtenSeq = seq;
+                if (durable) {
+                    durableSeq = seq;
+                }
+            }
+            progress.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
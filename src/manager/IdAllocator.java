@@ -0,0 +1,63 @@
+package manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Выдача id без общей блокировки.
+ * <p>
+ * Блоки из {@code blockSize} подряд идущих id забираются из общего счётчика одной атомарной
+ * операцией и раздаются из полос: поток берёт id из блока своей полосы (полоса выбирается
+ * по id потока), а к общему счётчику обращается, только когда блок полосы кончился.
+ * Блок принадлежит полосе, а не потоку, поэтому короткоживущие потоки (поток на запрос)
+ * не уносят с собой начатые блоки: неиспользованных id не больше
+ * STRIPES * (blockSize - 1) на весь менеджер. Id уникальны, в пределах одного потока
+ * возрастают. При blockSize = 1 id выдаются строго подряд, как обычным счётчиком.
+ */
+final class IdAllocator {
+    static final int STRIPES = 16;
+
+    private final AtomicInteger next;
+    private final int blockSize;
+    private final Block[] blocks = new Block[STRIPES];
+
+    IdAllocator(int firstId, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Размер блока id должен быть положительным: " + blockSize);
+        }
+        this.next = new AtomicInteger(firstId);
+        this.blockSize = blockSize;
+        for (int i = 0; i < STRIPES; i++) {
+            blocks[i] = new Block();
+        }
+    }
+
+    int next() {
+        if (blockSize == 1) {
+            return checked(next.getAndIncrement());
+        }
+        long threadId = Thread.currentThread().getId();
+        Block block = blocks[(int) (threadId ^ threadId >>> 16) & (STRIPES - 1)];
+        // замок полосы делят только потоки, попавшие в неё, и держится он несколько инструкций
+        synchronized (block) {
+            if (block.next == block.limit) {
+                int start = checked(next.getAndAdd(blockSize));
+                block.next = start;
+                block.limit = start + blockSize;
+            }
+            return block.next++;
+        }
+    }
+
+    private static int checked(int id) {
+        if (id <= 0) {
+            throw new IllegalStateException("Исчерпан диапазон id");
+        }
+        return id;
+    }
+
+    // Текущий блок полосы: next — следующий свободный id, limit — граница блока (не включительно)
+    private static final class Block {
+        private int next;
+        private int limit;
+    }
+}
@@ -0,0 +1,103 @@
+package manager;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Хранилище задач одного вида: карта id -> задача плюс упорядоченный набор id.
+ * <p>
+ * Поиск по id идёт в исходной карте (см. {@link InMemoryTaskManager#newStorage()}), а набор id
+ * ({@link IntIdIndex}) нужен для постраничной выдачи: следующая страница начинается
+ * с первого id после курсора и не требует обхода всего хранилища. Набор хранит только ключи, поэтому замена значения
+ * (в том числе через Map.Entry.setValue) его не затрагивает.
+ */
+final class IdOrderedStorage<V> extends AbstractMap<Integer, V> {
+    private final Map<Integer, V> values;
+    private final IntIdIndex ids;
+    private final Set<Entry<Integer, V>> entries = new EntrySet();
+
+    IdOrderedStorage(Map<Integer, V> values, IntIdIndex ids) {
+        this.values = values;
+        this.ids = ids;
+    }
+
+    @Override
+    public V get(Object key) {
+        return values.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return values.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return values.size();
+    }
+
+    @Override
+    public V put(Integer key, V value) {
+        V previous = values.put(key, value);
+        if (previous == null) {
+            ids.add(key);
+        }
+        return previous;
+    }
+
+    @Override
+    public V remove(Object key) {
+        V previous = values.remove(key);
+        if (previous != null) {
+            ids.remove((Integer) key);
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        values.clear();
+        ids.clear();
+    }
+
+    @Override
+    public Set<Entry<Integer, V>> entrySet() {
+        return entries;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<Integer, V>> {
+        @Override
+        public Iterator<Entry<Integer, V>> iterator() {
+            Iterator<Entry<Integer, V>> iterator = values.entrySet().iterator();
+            return new Iterator<>() {
+                private Entry<Integer, V> last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Entry<Integer, V> next() {
+                    last = iterator.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    Integer id = last.getKey();
+                    iterator.remove();
+                    ids.remove(id);
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return values.size();
+        }
+    }
+}
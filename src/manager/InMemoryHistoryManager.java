@@ -2,15 +2,13 @@ package manager;
 
 import task.Task;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class InMemoryHistoryManager implements HistoryManager {
-    private final Map<Integer, Node> nodeMap = new HashMap<>();
+    private final IntObjectMap<Node> nodeMap = new IntObjectMap<>();
     private Node head;
     private Node tail;
 
@@ -18,9 +16,9 @@ public class InMemoryHistoryManager implements HistoryManager {
     public void add(Task task) {
         if (task == null) return;
 
-        if (nodeMap.containsKey(task.getId())) {
-            removeNode(nodeMap.get(task.getId()));
-            nodeMap.remove(task.getId());
+        Node previous = nodeMap.remove(task.getId());
+        if (previous != null) {
+            removeNode(previous);
         }
 
         linkLast(task);
@@ -28,10 +26,9 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     @Override
     public void remove(int id) {
-        Node node = nodeMap.get(id);
+        Node node = nodeMap.remove(id);
         if (node != null) {
             removeNode(node);
-            nodeMap.remove(id);
         }
     }
 
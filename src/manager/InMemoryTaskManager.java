@@ -1,31 +1,80 @@
 package manager;
 
+import exception.ImportConflictException;
 import exception.TaskIntersectionException;
+import exception.VersionConflictException;
 import task.Epic;
 import task.SubTask;
 import task.Task;
-import task.TaskStatus;
+import task.TaskType;
 
-import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public class InMemoryTaskManager implements TaskManager {
 
-    private final Set<Task> prioritizedTasks = new TreeSet<>(
-            Comparator
-                    .comparing(Task::getStartTime, Comparator.nullsLast(Comparator.naturalOrder()))
-                    .thenComparing(Task::getId)
-    );
+    // Порядок по времени: ключ запоминается при добавлении, поэтому удаление по id
+    // не зависит от того, менялся ли объект задачи снаружи
+    private final NavigableMap<PriorityKey, Task> prioritizedTasks = newScheduleMap();
+    private final TaskIntervalIndex intervalIndex = new TaskIntervalIndex();
 
-    protected final Map<Integer, Task> tasks = new HashMap<>();
-    protected final Map<Integer, Epic> epics = new HashMap<>();
-    protected final Map<Integer, SubTask> subtasks = new HashMap<>();
+    // Id задач каждого вида по возрастанию — для постраничной выдачи; их ведут хранилища ниже
+    private final IntIdIndex taskIds = newIdIndex();
+    private final IntIdIndex epicIds = newIdIndex();
+    private final IntIdIndex subtaskIds = newIdIndex();
+    protected final Map<Integer, Task> tasks = idOrdered(taskIds);
+    protected final Map<Integer, Epic> epics = idOrdered(epicIds);
+    protected final Map<Integer, SubTask> subtasks = idOrdered(subtaskIds);
+    // Индекс подзадач по эпикам: epicId -> (subtaskId -> подзадача), упорядочено по id
+    protected final Map<Integer, NavigableMap<Integer, SubTask>> epicSubtasks = newStorage();
+    private final Map<Integer, Integer> subtaskEpicIds = newStorage();
+    private final Map<Integer, EpicAggregate> epicAggregates = newStorage();
     protected int nextId = 1;
 
-    protected final HistoryManager historyManager = Managers.getDefaultHistory();
+    private final Map<Integer, PriorityKey> priorityKeys = newStorage();
+
+    protected final HistoryManager historyManager = createHistoryManager();
+    // Растёт после каждого изменения данных; см. getModificationCount()
+    private final AtomicLong modificationCount = new AtomicLong();
+    // Растёт после каждого просмотра; см. getHistoryModificationCount()
+    private final AtomicLong viewCount = new AtomicLong();
+
+    /**
+     * Создаёт карты хранилища. Вызывается при инициализации полей, поэтому
+     * переопределение не должно обращаться к полям наследника.
+     */
+    protected <V> Map<Integer, V> newStorage() {
+        return new IntObjectMap<>();
+    }
+
+    /**
+     * Индекс id для постраничной выдачи. Наследник, отдающий страницы иначе (например,
+     * из среза), может вернуть null — тогда хранилища обходятся без индекса.
+     */
+    IntIdIndex newIdIndex() {
+        return new IntIdIndex();
+    }
+
+    private <V> Map<Integer, V> idOrdered(IntIdIndex ids) {
+        Map<Integer, V> values = newStorage();
+        return ids == null ? values : new IdOrderedStorage<>(values, ids);
+    }
+
+    protected NavigableMap<PriorityKey, Task> newScheduleMap() {
+        return new TreeMap<>();
+    }
+
+    protected HistoryManager createHistoryManager() {
+        return Managers.getDefaultHistory();
+    }
+
+    protected int generateId() {
+        return nextId++;
+    }
 
     private void validateUniqueId(int id) {
         if (tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id)) {
@@ -36,38 +85,40 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public Task createTask(Task task) {
         validateTaskData(task);
-        task.setId(nextId++);
-        if (hasIntersections(task)) {
-            throw new TaskIntersectionException("Задача пересекается по времени с другой задачей.");
-        }
+        task.setId(generateId());
+        task.setVersion(1);
+        schedule(task, "Задача пересекается по времени с другой задачей.");
         tasks.put(task.getId(), task);
-        prioritizedTasks.add(task);
+        markModified();
         return task;
     }
 
     @Override
     public Epic createEpic(Epic epic) {
-        epic.setId(nextId++);
+        epic.setId(generateId());
+        epic.setVersion(1);
+        // у нового эпика подзадач ещё нет: переданный список id не сохраняем
+        epic.getSubtaskIds().clear();
         epics.put(epic.getId(), epic);
+        markModified();
         return epic;
     }
 
     @Override
     public SubTask createSubTask(SubTask subtask) {
-        subtask.setId(nextId++);
+        subtask.setId(generateId());
         if (subtask.getStatus() == null) {
             throw new IllegalArgumentException("Статус подзадачи не может быть null.");
         }
         if (!epics.containsKey(subtask.getEpicId())) {
             throw new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден.");
         }
-        if (hasIntersections(subtask)) {
-            throw new TaskIntersectionException("Подзадача пересекается по времени с другой задачей.");
-        }
+        schedule(subtask, "Подзадача пересекается по времени с другой задачей.");
+        subtask.setVersion(1);
         subtasks.put(subtask.getId(), subtask);
-        prioritizedTasks.add(subtask);
-        epics.get(subtask.getEpicId()).getSubtaskIds().add(subtask.getId());
+        linkSubtask(subtask);
         updateEpicStatus(subtask.getEpicId());
+        markModified();
         return subtask;
     }
 
@@ -76,13 +127,23 @@ public class InMemoryTaskManager implements TaskManager {
         if (!subtasks.containsKey(subtask.getId())) {
             throw new IllegalArgumentException("Подзадача с ID " + subtask.getId() + " не найдена.");
         }
-        if (hasIntersections(subtask)) {
-            throw new TaskIntersectionException("Подзадача пересекается по времени с другой задачей.");
+        if (!epics.containsKey(subtask.getEpicId())) {
+            throw new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден.");
         }
+        reschedule(subtask, "Подзадача пересекается по времени с другой задачей.");
+        subtask.setVersion(subtasks.get(subtask.getId()).getVersion() + 1);
         subtasks.put(subtask.getId(), subtask);
-        prioritizedTasks.removeIf(t -> t.getId() == subtask.getId());
-        prioritizedTasks.add(subtask);
+        // В том же эпике достаточно заменить запись и вклад в агрегат: список id эпика не меняется
+        int previousEpicId = linkedEpicId(subtask.getId());
+        if (previousEpicId != subtask.getEpicId()) {
+            unlinkSubtask(subtask.getId());
+        }
+        linkSubtask(subtask);
+        if (previousEpicId != subtask.getEpicId() && epics.containsKey(previousEpicId)) {
+            updateEpicStatus(previousEpicId);
+        }
         updateEpicStatus(subtask.getEpicId());
+        markModified();
         return subtask;
     }
 
@@ -92,12 +153,10 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Задача с ID " + task.getId() + " не найдена.");
         }
         validateTaskData(task);
-        if (hasIntersections(task)) {
-            throw new TaskIntersectionException("Задача пересекается по времени с другой задачей.");
-        }
+        reschedule(task, "Задача пересекается по времени с другой задачей.");
+        task.setVersion(tasks.get(task.getId()).getVersion() + 1);
         tasks.put(task.getId(), task);
-        prioritizedTasks.removeIf(t -> t.getId() == task.getId());
-        prioritizedTasks.add(task);
+        markModified();
         return task;
     }
 
@@ -106,11 +165,41 @@ public class InMemoryTaskManager implements TaskManager {
         if (!epics.containsKey(epic.getId())) {
             throw new IllegalArgumentException("Эпик с ID " + epic.getId() + " не найден.");
         }
+        epic.getSubtaskIds().clear();
+        epic.getSubtaskIds().addAll(epicSubtasks.getOrDefault(epic.getId(), Collections.emptyNavigableMap()).keySet());
+        epic.setVersion(epics.get(epic.getId()).getVersion() + 1);
         epics.put(epic.getId(), epic);
         updateEpicStatus(epic.getId());
+        markModified();
         return epic;
     }
 
+    @Override
+    public Task updateTask(Task task, long expectedVersion) {
+        checkVersion(tasks.get(task.getId()), expectedVersion);
+        return updateTask(task);
+    }
+
+    @Override
+    public SubTask updateSubTask(SubTask subtask, long expectedVersion) {
+        checkVersion(subtasks.get(subtask.getId()), expectedVersion);
+        return updateSubTask(subtask);
+    }
+
+    @Override
+    public Epic updateEpic(Epic epic, long expectedVersion) {
+        checkVersion(epics.get(epic.getId()), expectedVersion);
+        return updateEpic(epic);
+    }
+
+    // Отсутствующую задачу не проверяем: update* сообщит, что она не найдена
+    private static void checkVersion(Task stored, long expectedVersion) {
+        if (stored != null && stored.getVersion() != expectedVersion) {
+            throw new VersionConflictException("Задача с ID " + stored.getId() + " изменена: версия "
+                    + stored.getVersion() + ", ожидалась " + expectedVersion + ".", stored.getVersion());
+        }
+    }
+
     private void validateTaskData(Task task) {
         if (task == null || task.getName() == null || task.getName().isBlank()
                 || task.getDescription() == null || task.getDescription().isBlank()
@@ -119,43 +208,170 @@ public class InMemoryTaskManager implements TaskManager {
         }
     }
 
-    private boolean isOverlapping(Task t1, Task t2) {
-        LocalDateTime start1 = t1.getStartTime();
-        LocalDateTime end1 = t1.getEndTime();
-        LocalDateTime start2 = t2.getStartTime();
-        LocalDateTime end2 = t2.getEndTime();
+    /**
+     * Проверяет пересечение и добавляет новую задачу в порядок по времени — одним шагом,
+     * чтобы потокобезопасные наследники могли выполнить его под одной блокировкой.
+     */
+    protected void schedule(Task task, String conflictMessage) {
+        if (intervalIndex.overlaps(task)) {
+            throw new TaskIntersectionException(conflictMessage);
+        }
+        addPrioritized(task);
+    }
+
+    /**
+     * То же для уже существующей задачи: прежний интервал заменяется новым.
+     */
+    protected void reschedule(Task task, String conflictMessage) {
+        if (intervalIndex.overlaps(task)) {
+            throw new TaskIntersectionException(conflictMessage);
+        }
+        removePrioritized(task.getId());
+        addPrioritized(task);
+    }
+
+    // Ключ, под которым задача сейчас стоит в порядке по времени, или null
+    protected PriorityKey scheduledKey(int id) {
+        return priorityKeys.get(id);
+    }
+
+    // Замена объекта задачи без изменения её места в порядке по времени
+    protected void replacePrioritized(PriorityKey key, Task task) {
+        prioritizedTasks.replace(key, task);
+    }
+
+    protected void addPrioritized(Task task) {
+        PriorityKey key = PriorityKey.of(task);
+        prioritizedTasks.put(key, task);
+        priorityKeys.put(task.getId(), key);
+        // задача без времени в индекс не попадает, и сам индекс ей трогать не нужно
+        if (key.timed()) {
+            intervalIndex.add(key);
+        }
+    }
+
+    /**
+     * Массовое добавление при загрузке: задачи один раз сортируются (параллельно, если передан пул),
+     * после чего индекс интервалов строится из отсортированного массива за O(N).
+     */
+    protected void addAllPrioritized(Collection<? extends Task> items, ForkJoinPool pool) {
+        Scheduled[] sorted = new Scheduled[items.size()];
+        int i = 0;
+        for (Task task : items) {
+            sorted[i++] = new Scheduled(PriorityKey.of(task), task);
+        }
+        if (pool == null) {
+            Arrays.sort(sorted);
+        } else {
+            pool.submit(() -> Arrays.parallelSort(sorted)).join();
+        }
+        PriorityKey[] keys = new PriorityKey[sorted.length];
+        for (i = 0; i < sorted.length; i++) {
+            PriorityKey key = sorted[i].key();
+            prioritizedTasks.put(key, sorted[i].task());
+            priorityKeys.put(key.id(), key);
+            keys[i] = key;
+        }
+        intervalIndex.addAllSorted(keys);
+    }
+
+    // Задача с ключом, посчитанным один раз до сортировки
+    private record Scheduled(PriorityKey key, Task task) implements Comparable<Scheduled> {
+        @Override
+        public int compareTo(Scheduled other) {
+            return key.compareTo(other.key);
+        }
+    }
+
+    protected void removePrioritized(int id) {
+        PriorityKey key = priorityKeys.remove(id);
+        if (key != null) {
+            prioritizedTasks.remove(key);
+            if (key.timed()) {
+                intervalIndex.remove(id);
+            }
+        }
+    }
 
-        if (start1 == null || end1 == null || start2 == null || end2 == null) {
-            return false;
+    protected void linkSubtask(SubTask subtask) {
+        SubTask previous = epicSubtasks.computeIfAbsent(subtask.getEpicId(), k -> new TreeMap<>())
+                .put(subtask.getId(), subtask);
+        subtaskEpicIds.put(subtask.getId(), subtask.getEpicId());
+        epicAggregates.computeIfAbsent(subtask.getEpicId(), k -> new EpicAggregate()).add(subtask);
+        Epic epic = epics.get(subtask.getEpicId());
+        // список id эпика повторяет epicSubtasks, поэтому проверять его перебором не нужно
+        if (epic != null && previous == null) {
+            epic.getSubtaskIds().add(subtask.getId());
         }
+    }
 
-        return start1.isBefore(end2) && start2.isBefore(end1);
+    // Id эпика, к которому сейчас привязана подзадача, или 0
+    protected int linkedEpicId(int subtaskId) {
+        return subtaskEpicIds.getOrDefault(subtaskId, 0);
+    }
+
+    // Возвращает id эпика, к которому была привязана подзадача, или 0
+    private int unlinkSubtask(int subtaskId) {
+        Integer epicId = subtaskEpicIds.remove(subtaskId);
+        if (epicId == null) {
+            return 0;
+        }
+        NavigableMap<Integer, SubTask> epicMap = epicSubtasks.get(epicId);
+        if (epicMap != null) {
+            epicMap.remove(subtaskId);
+        }
+        EpicAggregate aggregate = epicAggregates.get(epicId);
+        if (aggregate != null) {
+            aggregate.remove(subtaskId);
+        }
+        Epic epic = epics.get(epicId);
+        if (epic != null) {
+            epic.getSubtaskIds().remove(Integer.valueOf(subtaskId));
+        }
+        return epicId;
     }
 
-    private boolean hasIntersections(Task task) {
-        return prioritizedTasks.stream()
-                .filter(t -> t.getId() != task.getId())
-                .anyMatch(t -> isOverlapping(t, task));
+    private void removeSubtasksOfEpic(int epicId) {
+        epicAggregates.remove(epicId);
+        NavigableMap<Integer, SubTask> epicMap = epicSubtasks.remove(epicId);
+        if (epicMap == null) {
+            return;
+        }
+        for (int subId : epicMap.keySet()) {
+            historyManager.remove(subId);
+            subtasks.remove(subId);
+            subtaskEpicIds.remove(subId);
+            removePrioritized(subId);
+        }
     }
 
     @Override
     public Optional<Task> getTask(int id) {
         Optional<Task> task = Optional.ofNullable(tasks.get(id));
-        task.ifPresent(historyManager::add);
+        if (task.isPresent()) {
+            historyManager.add(task.get());
+            countView();
+        }
         return task;
     }
 
     @Override
     public Optional<Epic> getEpic(int id) {
         Optional<Epic> epic = Optional.ofNullable(epics.get(id));
-        epic.ifPresent(historyManager::add);
+        if (epic.isPresent()) {
+            historyManager.add(epic.get());
+            countView();
+        }
         return epic;
     }
 
     @Override
     public Optional<SubTask> getSubtask(int id) {
         Optional<SubTask> subtask = Optional.ofNullable(subtasks.get(id));
-        subtask.ifPresent(historyManager::add);
+        if (subtask.isPresent()) {
+            historyManager.add(subtask.get());
+            countView();
+        }
         return subtask;
     }
 
@@ -163,43 +379,50 @@ public class InMemoryTaskManager implements TaskManager {
     public void deleteTask(int id) {
         if (tasks.containsKey(id)) {
             historyManager.remove(id);
-            prioritizedTasks.removeIf(t -> t.getId() == id);
+            removePrioritized(id);
             tasks.remove(id);
+            markModified();
         }
     }
 
     @Override
     public void deleteEpic(int id) {
         if (epics.containsKey(id)) {
-            getSubtasksForEpic(id).forEach(sub -> {
-                historyManager.remove(sub.getId());
-                subtasks.remove(sub.getId());
-                prioritizedTasks.removeIf(t -> t.getId() == sub.getId());
-            });
+            removeSubtasksOfEpic(id);
             historyManager.remove(id);
             epics.remove(id);
+            markModified();
         }
     }
 
     @Override
     public void deleteSubtask(int id) {
         if (subtasks.containsKey(id)) {
-            SubTask subtask = subtasks.get(id);
-            prioritizedTasks.removeIf(t -> t.getId() == id);
+            removePrioritized(id);
             subtasks.remove(id);
-            Epic epic = epics.get(subtask.getEpicId());
-            if (epic != null) {
-                updateEpicStatus(epic.getId());
+            int epicId = unlinkSubtask(id);
+            if (epics.containsKey(epicId)) {
+                updateEpicStatus(epicId);
             }
             historyManager.remove(id);
+            markModified();
         }
     }
 
     @Override
     public List<SubTask> getSubtasksForEpic(int epicId) {
-        return subtasks.values().stream()
-                .filter(s -> s.getEpicId() == epicId)
-                .collect(Collectors.toList());
+        NavigableMap<Integer, SubTask> epicMap = epicSubtasks.get(epicId);
+        return epicMap == null ? new ArrayList<>() : new ArrayList<>(epicMap.values());
+    }
+
+    @Override
+    public Page<SubTask> getSubtasksForEpicPage(int epicId, String cursor, int limit) {
+        NavigableMap<Integer, SubTask> epicMap = epicSubtasks.get(epicId);
+        if (epicMap == null) {
+            Pages.checkLimit(limit);
+            return new Page<>(new ArrayList<>(), null);
+        }
+        return Pages.byId(epicMap, cursor, limit);
     }
 
     @Override
@@ -207,6 +430,21 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(tasks.values());
     }
 
+    @Override
+    public Page<Task> getTasksPage(String cursor, int limit) {
+        return Pages.byId(taskIds, tasks, cursor, limit);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(String cursor, int limit) {
+        return Pages.byId(epicIds, epics, cursor, limit);
+    }
+
+    @Override
+    public Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return Pages.byId(subtaskIds, subtasks, cursor, limit);
+    }
+
     @Override
     public List<Epic> getAllEpics() {
         return new ArrayList<>(epics.values());
@@ -219,78 +457,618 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void deleteAllTasks() {
-        tasks.values().forEach(task -> historyManager.remove(task.getId()));
-        prioritizedTasks.removeIf(t -> !(t instanceof SubTask));
+        tasks.values().forEach(task -> {
+            historyManager.remove(task.getId());
+            removePrioritized(task.getId());
+        });
         tasks.clear();
+        markModified();
     }
 
     @Override
     public void deleteAllEpics() {
         epics.values().forEach(epic -> {
-            getSubtasksForEpic(epic.getId()).forEach(sub -> {
-                historyManager.remove(sub.getId());
-                subtasks.remove(sub.getId());
-                prioritizedTasks.removeIf(t -> t.getId() == sub.getId());
-            });
+            removeSubtasksOfEpic(epic.getId());
             historyManager.remove(epic.getId());
         });
         epics.clear();
+        markModified();
     }
 
     @Override
     public void deleteAllSubtasks() {
-        subtasks.values().forEach(sub -> historyManager.remove(sub.getId()));
-        prioritizedTasks.removeIf(t -> t instanceof SubTask);
+        subtasks.values().forEach(sub -> {
+            historyManager.remove(sub.getId());
+            removePrioritized(sub.getId());
+        });
         subtasks.clear();
+        epicSubtasks.clear();
+        subtaskEpicIds.clear();
+        epicAggregates.clear();
+        epics.values().forEach(epic -> {
+            epic.getSubtaskIds().clear();
+            updateEpicStatus(epic.getId());
+        });
+        markModified();
     }
 
-    protected void updateEpicStatus(int epicId) {
+    @Override
+    public List<Task> applyBatch(List<BatchOperation> operations) {
+        if (operations == null) {
+            throw new IllegalArgumentException("Пакет операций не может быть null.");
+        }
+        Set<Integer> released = validateBatch(operations);
+        BatchBackup backup = backupBatch(released, operations);
+        // Итоговое расписание уже проверено, поэтому прежние интервалы затронутых задач
+        // освобождаются заранее: иначе задачи пакета не смогли бы обменяться временем
+        for (int id : released) {
+            removePrioritized(id);
+        }
+        List<Task> results = new ArrayList<>(operations.size());
+        int applied = 0;
+        try {
+            for (BatchOperation operation : operations) {
+                if (operation.action() == BatchOperation.Action.CREATE) {
+                    // id 0 до вызова create* отличает созданную задачу от не дошедшей до выдачи id
+                    operation.task().setId(0);
+                }
+                applied++;
+                results.add(applyOperation(operation, results));
+            }
+        } catch (RuntimeException e) {
+            rollbackBatch(backup, operations.subList(0, applied));
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Состояние, которое пакет может изменить, на момент до его применения.
+     * originals — прежние объекты обновляемых и удаляемых задач (объекты при обновлении
+     * заменяются, а не меняются, поэтому копии не нужны); epicSubtaskIds — прежний порядок
+     * подзадач затронутых эпиков: объекты эпиков пакет меняет на месте;
+     * history — история, если пакет что-то удаляет, иначе null.
+     */
+    private record BatchBackup(Map<Integer, Task> originals, Map<Integer, List<Integer>> epicSubtaskIds,
+                               List<Task> history) {
+    }
+
+    private BatchBackup backupBatch(Set<Integer> released, List<BatchOperation> operations) {
+        Map<Integer, Task> originals = new HashMap<>();
+        Map<Integer, List<Integer>> epicSubtaskIds = new HashMap<>();
+        for (int id : released) {
+            Task original = findStored(id);
+            if (original == null) {
+                continue;
+            }
+            originals.put(id, original);
+            if (original instanceof Epic) {
+                backupEpic(id, epicSubtaskIds);
+            } else if (original instanceof SubTask) {
+                backupEpic(linkedEpicId(id), epicSubtaskIds);
+            }
+        }
+        boolean deletes = false;
+        for (BatchOperation operation : operations) {
+            deletes |= operation.action() == BatchOperation.Action.DELETE;
+            if (operation.task() instanceof SubTask subtask && subtask.getEpicId() > 0) {
+                backupEpic(subtask.getEpicId(), epicSubtaskIds);
+            }
+        }
+        return new BatchBackup(originals, epicSubtaskIds, deletes ? historyManager.getHistory() : null);
+    }
+
+    private void backupEpic(int epicId, Map<Integer, List<Integer>> epicSubtaskIds) {
         Epic epic = epics.get(epicId);
-        List<SubTask> epicSubtasks = getSubtasksForEpic(epicId);
+        if (epic != null && !epicSubtaskIds.containsKey(epicId)) {
+            epicSubtaskIds.put(epicId, new ArrayList<>(epic.getSubtaskIds()));
+        }
+    }
 
-        if (epicSubtasks.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            return;
+    private Task findStored(int id) {
+        Task task = tasks.get(id);
+        if (task != null) {
+            return task;
         }
+        Epic epic = epics.get(id);
+        return epic != null ? epic : subtasks.get(id);
+    }
 
-        boolean allNew = epicSubtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.NEW);
-        boolean allDone = epicSubtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.DONE);
+    /**
+     * Возвращает доску к состоянию до пакета, прервавшегося на последней из applied операций.
+     * Сначала убирается всё, что пакет создал или затронул, затем на место ставятся прежние
+     * объекты с их интервалами и привязками, после чего восстанавливаются порядок подзадач
+     * и статусы эпиков. Прежние интервалы заведомо не пересекаются: до пакета они сосуществовали.
+     */
+    private void rollbackBatch(BatchBackup backup, List<BatchOperation> applied) {
+        Set<Integer> created = new HashSet<>();
+        for (BatchOperation operation : applied) {
+            if (operation.action() == BatchOperation.Action.CREATE && operation.task().getId() != 0) {
+                created.add(operation.task().getId());
+            }
+        }
+        for (int id : created) {
+            discardStored(id);
+            epicSubtasks.remove(id);
+            epicAggregates.remove(id);
+        }
+        for (int id : backup.originals().keySet()) {
+            discardStored(id);
+        }
+        List<SubTask> originalSubtasks = new ArrayList<>();
+        for (Task original : backup.originals().values()) {
+            if (original instanceof Epic epic) {
+                epics.put(epic.getId(), epic);
+            } else if (original instanceof SubTask subtask) {
+                originalSubtasks.add(subtask);
+            } else {
+                tasks.put(original.getId(), original);
+                addPrioritized(original);
+            }
+        }
+        for (SubTask subtask : originalSubtasks) {
+            subtasks.put(subtask.getId(), subtask);
+            addPrioritized(subtask);
+            linkSubtask(subtask);
+        }
+        backup.epicSubtaskIds().forEach((epicId, subtaskIds) -> {
+            List<Integer> current = epics.get(epicId).getSubtaskIds();
+            current.clear();
+            current.addAll(subtaskIds);
+            updateEpicStatus(epicId);
+        });
+        if (backup.history() != null) {
+            for (Task task : historyManager.getHistory()) {
+                historyManager.remove(task.getId());
+            }
+            backup.history().forEach(historyManager::add);
+        }
+        markModified();
+    }
 
-        if (allDone) epic.setStatus(TaskStatus.DONE);
-        else if (allNew) epic.setStatus(TaskStatus.NEW);
-        else epic.setStatus(TaskStatus.IN_PROGRESS);
+    // Убирает задачу любого вида вместе с интервалом и привязкой к эпику, не трогая историю
+    private void discardStored(int id) {
+        removePrioritized(id);
+        tasks.remove(id);
+        epics.remove(id);
+        subtasks.remove(id);
+        unlinkSubtask(id);
+    }
 
-        updateEpicTimeFields(epicSubtasks, epic);
+    private Task applyOperation(BatchOperation operation, List<Task> applied) {
+        if (operation.task() instanceof SubTask subtask && subtask.getEpicId() < 0) {
+            subtask.setEpicId(applied.get(-subtask.getEpicId() - 1).getId());
+        }
+        Task task = operation.task();
+        switch (operation.action()) {
+            case CREATE -> {
+                return switch (operation.type()) {
+                    case TASK -> createTask(task);
+                    case EPIC -> createEpic((Epic) task);
+                    case SUBTASK -> createSubTask((SubTask) task);
+                };
+            }
+            case UPDATE -> {
+                return switch (operation.type()) {
+                    case TASK -> updateTask(task);
+                    case EPIC -> updateEpic((Epic) task);
+                    case SUBTASK -> updateSubTask((SubTask) task);
+                };
+            }
+            default -> {
+                switch (operation.type()) {
+                    case TASK -> deleteTask(operation.id());
+                    case EPIC -> deleteEpic(operation.id());
+                    case SUBTASK -> deleteSubtask(operation.id());
+                }
+                return null;
+            }
+        }
     }
 
-    private void updateEpicTimeFields(List<SubTask> epicSubtasks, Epic epic) {
-        Optional<LocalDateTime> start = epicSubtasks.stream()
-                .map(SubTask::getStartTime)
-                .filter(Objects::nonNull)
-                .min(LocalDateTime::compareTo);
+    /**
+     * Проверяет пакет, ничего не меняя, и возвращает id существующих задач, которые
+     * пакет обновляет или удаляет (в том числе подзадачи удаляемых эпиков).
+     * <p>
+     * Задачи пакета различаются ключом: id для существующих и epicRef(номер операции)
+     * для создаваемых. Итоговые интервалы пакета сортируются по началу и проверяются
+     * одним проходом — между собой по максимальному концу уже пройденных интервалов,
+     * с остальной доской — запросом к индексу, пропускающим освобождаемые интервалы.
+     */
+    private Set<Integer> validateBatch(List<BatchOperation> operations) {
+        Set<Integer> touched = new HashSet<>();
+        Set<Integer> removed = new HashSet<>();
+        Map<Integer, Task> timed = new HashMap<>();
+        // Эпик (ключ) -> ключи подзадач, которые пакет в нём создаёт или оставляет
+        Map<Integer, List<Integer>> placedSubtasks = new HashMap<>();
 
-        Optional<LocalDateTime> end = epicSubtasks.stream()
-                .map(SubTask::getEndTime)
-                .filter(Objects::nonNull)
-                .max(LocalDateTime::compareTo);
+        for (int i = 0; i < operations.size(); i++) {
+            BatchOperation operation = operations.get(i);
+            try {
+                if (operation == null) {
+                    throw new IllegalArgumentException("Пустая операция.");
+                }
+                int key = operation.action() == BatchOperation.Action.CREATE
+                        ? BatchOperation.epicRef(i) : operation.targetId();
+                if (key > 0 && !touched.add(key)) {
+                    throw new IllegalArgumentException("Задача с ID " + key + " уже изменяется в этом пакете.");
+                }
+                if (operation.action() == BatchOperation.Action.DELETE) {
+                    releaseDeleted(operation.type(), key, touched, removed, timed, placedSubtasks);
+                    continue;
+                }
+                boolean update = operation.action() == BatchOperation.Action.UPDATE;
+                Task task = operation.task();
+                switch (operation.type()) {
+                    case TASK -> {
+                        validateTaskData(task);
+                        if (update && (!tasks.containsKey(key) || removed.contains(key))) {
+                            throw new IllegalArgumentException("Задача с ID " + key + " не найдена.");
+                        }
+                        timed.put(key, task);
+                    }
+                    case EPIC -> {
+                        if (update && (!epics.containsKey(key) || removed.contains(key))) {
+                            throw new IllegalArgumentException("Эпик с ID " + key + " не найден.");
+                        }
+                    }
+                    case SUBTASK -> {
+                        SubTask subtask = (SubTask) task;
+                        if (update && (!subtasks.containsKey(key) || removed.contains(key))) {
+                            throw new IllegalArgumentException("Подзадача с ID " + key + " не найдена.");
+                        }
+                        if (!update && subtask.getStatus() == null) {
+                            throw new IllegalArgumentException("Статус подзадачи не может быть null.");
+                        }
+                        checkBatchEpic(subtask.getEpicId(), i, operations, removed);
+                        placedSubtasks.computeIfAbsent(subtask.getEpicId(), k -> new ArrayList<>()).add(key);
+                        timed.put(key, task);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Операция " + i + ": " + e.getMessage(), e);
+            }
+        }
 
-        if (start.isPresent() && end.isPresent()) {
-            epic.setStartTime(start.get());
-            epic.setEndTime(end.get());
-            epic.setDuration(Duration.between(start.get(), end.get()).truncatedTo(ChronoUnit.MINUTES));
-        } else {
-            epic.setStartTime(null);
-            epic.setEndTime(null);
-            epic.setDuration(Duration.ZERO);
+        Set<Integer> released = new HashSet<>(touched);
+        released.addAll(removed);
+        checkBatchIntersections(timed.values(), released);
+        return released;
+    }
+
+    private void checkBatchEpic(int epicId, int index, List<BatchOperation> operations, Set<Integer> removed) {
+        if (epicId < 0) {
+            int source = -epicId - 1;
+            if (source >= index || operations.get(source).action() != BatchOperation.Action.CREATE
+                    || operations.get(source).type() != TaskType.EPIC) {
+                throw new IllegalArgumentException("Операция " + source + " не создаёт эпик.");
+            }
+        } else if (!epics.containsKey(epicId) || removed.contains(epicId)) {
+            throw new IllegalArgumentException("Эпик с ID " + epicId + " не найден.");
+        }
+    }
+
+    // Удаление эпика уносит его подзадачи — и существующие, и помещённые в него пакетом
+    private void releaseDeleted(TaskType type, int id, Set<Integer> touched, Set<Integer> removed,
+                                Map<Integer, Task> timed, Map<Integer, List<Integer>> placedSubtasks) {
+        switch (type) {
+            case TASK -> {
+                if (tasks.containsKey(id)) {
+                    removed.add(id);
+                }
+            }
+            case SUBTASK -> {
+                if (subtasks.containsKey(id)) {
+                    removed.add(id);
+                }
+            }
+            case EPIC -> {
+                if (!epics.containsKey(id)) {
+                    return;
+                }
+                removed.add(id);
+                for (int subId : epicSubtasks.getOrDefault(id, Collections.emptyNavigableMap()).keySet()) {
+                    // перенесённые пакетом подзадачи учтены в placedSubtasks
+                    if (!touched.contains(subId)) {
+                        removed.add(subId);
+                    }
+                }
+                for (int key : placedSubtasks.getOrDefault(id, Collections.emptyList())) {
+                    timed.remove(key);
+                }
+            }
+        }
+    }
+
+    private void checkBatchIntersections(Collection<Task> timed, Set<Integer> released) {
+        List<Task> sorted = new ArrayList<>(timed.size());
+        for (Task task : timed) {
+            if (task.getStartTime() != null && task.getEndTime() != null) {
+                sorted.add(task);
+            }
+        }
+        sorted.sort(Comparator.comparing(Task::getStartTime));
+        // maxEnd — наибольший конец пройденных интервалов, maxEndBefore — тех из них,
+        // что начались строго раньше текущего (интервал нулевой длины пересекается только с ними)
+        LocalDateTime groupStart = null;
+        LocalDateTime maxEnd = null;
+        LocalDateTime maxEndBefore = null;
+        for (Task task : sorted) {
+            LocalDateTime start = task.getStartTime();
+            LocalDateTime end = task.getEndTime();
+            if (!start.equals(groupStart)) {
+                groupStart = start;
+                maxEndBefore = maxEnd;
+            }
+            LocalDateTime reach = end.isAfter(start) ? maxEnd : maxEndBefore;
+            if (reach != null && reach.isAfter(start)) {
+                throw new TaskIntersectionException("Задача «" + task.getName()
+                        + "» пересекается по времени с другой задачей пакета.");
+            }
+            if (intervalIndex.overlaps(task, released::contains)) {
+                throw new TaskIntersectionException("Задача «" + task.getName()
+                        + "» пересекается по времени с другой задачей.");
+            }
+            if (maxEnd == null || end.isAfter(maxEnd)) {
+                maxEnd = end;
+            }
+        }
+    }
+
+    /**
+     * Импорт проверяется целиком до изменений. Интервалы импорта сортируются по началу
+     * и одним проходом сливаются с участком prioritizedTasks, который они покрывают;
+     * в проходе держатся только интервалы, ещё не закончившиеся к текущему началу,
+     * поэтому находится каждая пересекающаяся пара, а не только первая.
+     * Связи подзадач и агрегаты эпиков строятся в конце, по одному разу на эпик.
+     */
+    @Override
+    public List<Task> importAll(Collection<? extends Task> items) {
+        if (items == null) {
+            throw new IllegalArgumentException("Список импорта не может быть null.");
+        }
+        List<Task> imported = new ArrayList<>(items);
+        Set<Integer> importedEpicIds = new HashSet<>();
+        for (Task item : imported) {
+            if (item instanceof Epic epicItem && epicItem.getId() != 0 && !importedEpicIds.add(epicItem.getId())) {
+                throw new IllegalArgumentException("Эпик с ID " + epicItem.getId() + " импортируется дважды.");
+            }
+        }
+        List<Task> timed = new ArrayList<>();
+        for (int i = 0; i < imported.size(); i++) {
+            Task item = imported.get(i);
+            try {
+                validateImported(item, importedEpicIds);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Элемент " + i + ": " + e.getMessage(), e);
+            }
+            if (!(item instanceof Epic) && item.getStartTime() != null && item.getEndTime() != null) {
+                timed.add(item);
+            }
+        }
+        timed.sort(Comparator.comparing(Task::getStartTime));
+        List<ImportConflictException.Conflict> conflicts = findImportConflicts(timed);
+        if (!conflicts.isEmpty()) {
+            ImportConflictException.Conflict first = conflicts.get(0);
+            throw new ImportConflictException("Импорт пересекается по времени: " + conflicts.size()
+                    + " пар(ы), например «" + first.first().getName() + "» и «" + first.second().getName() + "».",
+                    conflicts);
+        }
+
+        // Id выдаются в порядке импорта; прежние id эпиков нужны, чтобы перепривязать подзадачи
+        Map<Integer, Integer> epicIdMap = new HashMap<>();
+        for (Task item : imported) {
+            int previousId = item.getId();
+            item.setId(generateId());
+            item.setVersion(1);
+            if (item instanceof Epic epicItem) {
+                if (previousId != 0) {
+                    epicIdMap.put(previousId, epicItem.getId());
+                }
+                epicItem.getSubtaskIds().clear();
+                epics.put(epicItem.getId(), epicItem);
+            }
+        }
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (Task item : imported) {
+            if (item instanceof SubTask subtask) {
+                subtask.setEpicId(epicIdMap.getOrDefault(subtask.getEpicId(), subtask.getEpicId()));
+                subtasks.put(subtask.getId(), subtask);
+                epicSubtasks.computeIfAbsent(subtask.getEpicId(), k -> new TreeMap<>()).put(subtask.getId(), subtask);
+                subtaskEpicIds.put(subtask.getId(), subtask.getEpicId());
+                epicAggregates.computeIfAbsent(subtask.getEpicId(), k -> new EpicAggregate()).add(subtask);
+                // id новые, поэтому проверка на повтор, как в linkSubtask, не нужна
+                epics.get(subtask.getEpicId()).getSubtaskIds().add(subtask.getId());
+                affectedEpics.add(subtask.getEpicId());
+            } else if (item instanceof Epic epicItem) {
+                affectedEpics.add(epicItem.getId());
+            } else {
+                tasks.put(item.getId(), item);
+            }
+        }
+        // timed уже упорядочен по началу, поэтому повторная сортировка в addAllPrioritized почти линейна
+        List<Task> scheduled = new ArrayList<>(timed);
+        for (Task item : imported) {
+            if (!(item instanceof Epic) && (item.getStartTime() == null || item.getEndTime() == null)) {
+                scheduled.add(item);
+            }
+        }
+        addAllPrioritized(scheduled, null);
+        for (int epicId : affectedEpics) {
+            updateEpicStatus(epicId);
         }
+        markModified();
+        return imported;
+    }
+
+    private void validateImported(Task item, Set<Integer> importedEpicIds) {
+        if (item == null) {
+            throw new IllegalArgumentException("Пустой элемент.");
+        }
+        if (item instanceof Epic) {
+            return;
+        }
+        if (item instanceof SubTask subtask) {
+            if (subtask.getStatus() == null) {
+                throw new IllegalArgumentException("Статус подзадачи не может быть null.");
+            }
+            if (!importedEpicIds.contains(subtask.getEpicId()) && !epics.containsKey(subtask.getEpicId())) {
+                throw new IllegalArgumentException("Эпик с ID " + subtask.getEpicId() + " не найден.");
+            }
+            return;
+        }
+        validateTaskData(item);
+    }
+
+    // Интервал в проходе по расписанию: existing — задача доски, иначе импортируемая
+    private record Span(PriorityKey key, Task task, boolean existing) {
+    }
+
+    /**
+     * Слияние отсортированных интервалов импорта с расписанием доски. Задачи доски
+     * между собой не пересекаются, поэтому среди начавшихся раньше импорта достаточно
+     * дойти назад до первой ненулевой длины, закончившейся к его началу.
+     * Сравнения идут по ключам PriorityKey, ключи доски берутся из prioritizedTasks.
+     */
+    private List<ImportConflictException.Conflict> findImportConflicts(List<Task> sorted) {
+        List<ImportConflictException.Conflict> conflicts = new ArrayList<>();
+        if (sorted.isEmpty()) {
+            return conflicts;
+        }
+        List<Span> imported = new ArrayList<>(sorted.size());
+        for (Task task : sorted) {
+            imported.add(new Span(PriorityKey.of(task), task, false));
+        }
+        PriorityKey first = imported.get(0).key();
+        PriorityKey last = first;
+        for (Span span : imported) {
+            if (span.key().compareEnd(last.endKey(), last.end()) > 0) {
+                last = span.key();
+            }
+        }
+        PriorityKey from = new PriorityKey(first.start(), null, Integer.MIN_VALUE);
+        Deque<Span> existing = new ArrayDeque<>();
+        for (Map.Entry<PriorityKey, Task> entry : prioritizedTasks.headMap(from, false).descendingMap().entrySet()) {
+            PriorityKey key = entry.getKey();
+            if (!key.timed()) {
+                continue;
+            }
+            if (key.compareEnd(first.startKey(), first.start()) > 0) {
+                existing.addFirst(new Span(key, entry.getValue(), true));
+            } else if (key.compareEnd(key.startKey(), key.start()) > 0) {
+                break;
+            }
+        }
+        for (Map.Entry<PriorityKey, Task> entry : prioritizedTasks.tailMap(from, true).entrySet()) {
+            PriorityKey key = entry.getKey();
+            if (key.start() == null || key.compareStart(last.endKey(), last.end()) >= 0) {
+                break;
+            }
+            if (key.timed()) {
+                existing.addLast(new Span(key, entry.getValue(), true));
+            }
+        }
+
+        // Интервалы, не закончившиеся к началу текущего; при равных началах доска идёт первой
+        List<Span> active = new ArrayList<>();
+        int next = 0;
+        while (next < imported.size() || !existing.isEmpty()) {
+            Span current;
+            if (!existing.isEmpty() && (next == imported.size()
+                    || existing.peekFirst().key().compareStart(imported.get(next).key().startKey(),
+                    imported.get(next).key().start()) <= 0)) {
+                current = existing.pollFirst();
+            } else {
+                current = imported.get(next++);
+            }
+            PriorityKey key = current.key();
+            active.removeIf(p -> p.key().compareEnd(key.startKey(), key.start()) <= 0);
+            for (Span p : active) {
+                if ((!p.existing() || !current.existing()) && p.key().compareStart(key.endKey(), key.end()) < 0) {
+                    conflicts.add(new ImportConflictException.Conflict(p.task(), current.task()));
+                }
+            }
+            active.add(current);
+        }
+        return conflicts;
+    }
+
+    protected void updateEpicStatus(int epicId) {
+        Epic epic = epics.get(epicId);
+        epicAggregates.computeIfAbsent(epicId, k -> new EpicAggregate()).applyTo(epic);
     }
 
     protected void recalculateEpicFields(Epic epic) {
         updateEpicStatus(epic.getId());
     }
 
+    /**
+     * Перестраивает связи подзадач с эпиками и агрегаты всех эпиков по содержимому subtasks.
+     * Используется при массовой загрузке вместо поштучного linkSubtask. Агрегаты эпиков
+     * считаются параллельно в пуле (или в текущем потоке, если pool == null); результат
+     * от числа потоков не зависит — подзадачи эпика перебираются по возрастанию id.
+     */
+    protected void rebuildEpicLinks(ForkJoinPool pool) {
+        epicSubtasks.clear();
+        subtaskEpicIds.clear();
+        epicAggregates.clear();
+        for (SubTask sub : subtasks.values()) {
+            epicSubtasks.computeIfAbsent(sub.getEpicId(), k -> new TreeMap<>()).put(sub.getId(), sub);
+            subtaskEpicIds.put(sub.getId(), sub.getEpicId());
+        }
+
+        List<Epic> epicList = new ArrayList<>(epics.values());
+        EpicAggregate[] aggregates = new EpicAggregate[epicList.size()];
+        IntConsumer rebuild = i -> {
+            Epic epic = epicList.get(i);
+            EpicAggregate aggregate = new EpicAggregate();
+            List<Integer> subtaskIds = epic.getSubtaskIds();
+            subtaskIds.clear();
+            NavigableMap<Integer, SubTask> epicMap = epicSubtasks.get(epic.getId());
+            if (epicMap != null) {
+                for (SubTask sub : epicMap.values()) {
+                    aggregate.add(sub);
+                    subtaskIds.add(sub.getId());
+                }
+            }
+            aggregate.applyTo(epic);
+            aggregates[i] = aggregate;
+        };
+
+        if (pool == null || epicList.size() < 2) {
+            for (int i = 0; i < epicList.size(); i++) {
+                rebuild.accept(i);
+            }
+        } else {
+            // только чтение общих карт и запись в свой эпик и свою ячейку массива
+            pool.submit(() -> IntStream.range(0, epicList.size()).parallel().forEach(rebuild)).join();
+        }
+        for (int i = 0; i < epicList.size(); i++) {
+            epicAggregates.put(epicList.get(i).getId(), aggregates[i]);
+        }
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount.get();
+    }
+
+    // Сумма двух растущих счётчиков растёт при изменении любого из них
+    @Override
+    public long getHistoryModificationCount() {
+        return getModificationCount() + viewCount.get();
+    }
+
+    // Вызывается после того, как изменение полностью применено
+    protected void markModified() {
+        modificationCount.incrementAndGet();
+    }
+
+    // Просмотр меняет только историю: кеши списков задач остаются действительными
+    private void countView() {
+        viewCount.incrementAndGet();
+    }
+
     @Override
     public List<Task> getHistory() {
         return historyManager.getHistory();
@@ -298,6 +1076,11 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public List<Task> getPrioritizedTasks() {
-        return List.copyOf(prioritizedTasks);
+        return List.copyOf(prioritizedTasks.values());
+    }
+
+    @Override
+    public Page<Task> getPrioritizedTasksPage(String cursor, int limit) {
+        return Pages.byPriority(prioritizedTasks, cursor, limit);
     }
 }
\ No newline at end of file
@@ -6,6 +6,31 @@ public class Managers {
         return new InMemoryTaskManager();
     }
 
+    // Менеджер для общего доступа из нескольких потоков
+    public static TaskManager getConcurrent() {
+        return getConcurrent(new InMemoryTaskManager());
+    }
+
+    public static TaskManager getConcurrent(TaskManager manager) {
+        return new ConcurrentTaskManager(manager);
+    }
+
+    // Потокобезопасный менеджер без глобальной блокировки: параллельные чтения и создание по id
+    public static TaskManager getConcurrentInMemory() {
+        return new ConcurrentInMemoryTaskManager();
+    }
+
+    /**
+     * Возвращает менеджер, безопасный для вызова из нескольких потоков: потокобезопасные
+     * реализации — как есть, остальные оборачиваются в ConcurrentTaskManager.
+     */
+    public static TaskManager threadSafe(TaskManager manager) {
+        if (manager instanceof ConcurrentTaskManager || manager instanceof ConcurrentInMemoryTaskManager) {
+            return manager;
+        }
+        return getConcurrent(manager);
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
@@ -0,0 +1,138 @@
+package manager;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.Checksum;
+
+/**
+ * Последовательное чтение диапазона файла через отображение в память.
+ * Файл отображается окнами ограниченного размера, поэтому можно читать файлы
+ * больше 2 ГБ, а данные не копируются в кучу целиком.
+ */
+class MappedInput {
+    static final long DEFAULT_WINDOW_SIZE = 256L << 20;
+
+    private final FileChannel channel;
+    private final long end;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    MappedInput(FileChannel channel, long start, long end, long windowSize) {
+        if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Некорректный размер окна: " + windowSize);
+        }
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        map(start);
+    }
+
+    long position() {
+        return windowStart + window.position();
+    }
+
+    boolean hasRemaining() {
+        return position() < end;
+    }
+
+    /**
+     * Следующий байт (0..255) или -1 в конце диапазона.
+     */
+    int read() {
+        if (!window.hasRemaining()) {
+            long next = windowStart + window.limit();
+            if (next >= end) {
+                return -1;
+            }
+            map(next);
+        }
+        return window.get() & 0xFF;
+    }
+
+    /**
+     * Читает ровно length байт; возвращает false, если диапазон закончился раньше.
+     */
+    boolean readFully(byte[] target, int offset, int length) {
+        if (end - position() < length) {
+            return false;
+        }
+        while (length > 0) {
+            if (!window.hasRemaining()) {
+                map(windowStart + window.limit());
+            }
+            int chunk = Math.min(length, window.remaining());
+            window.get(target, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+        return true;
+    }
+
+    /**
+     * Читает строку до '\n' в переиспользуемый буфер, отбрасывая '\r' в конце.
+     * Возвращает длину строки или -1, если диапазон закончился.
+     */
+    int readLine(LineBuffer line) {
+        if (!hasRemaining()) {
+            return -1;
+        }
+        line.length = 0;
+        while (true) {
+            if (!window.hasRemaining()) {
+                long next = windowStart + window.limit();
+                if (next >= end) {
+                    break;
+                }
+                map(next);
+            }
+            byte b = window.get();
+            if (b == '\n') {
+                break;
+            }
+            line.append(b);
+        }
+        if (line.length > 0 && line.bytes[line.length - 1] == '\r') {
+            line.length--;
+        }
+        return line.length;
+    }
+
+    private void map(long from) {
+        try {
+            long size = Math.min(windowSize, end - from);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.max(size, 0));
+            windowStart = from;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении файла", e);
+        }
+    }
+
+    // Считает контрольную сумму диапазона [from, to) окнами, не копируя данные в кучу
+    static void updateChecksum(FileChannel channel, long from, long to, long windowSize, Checksum checksum) {
+        try {
+            for (long position = from; position < to; position += windowSize) {
+                long size = Math.min(windowSize, to - position);
+                checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position, size));
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении файла", e);
+        }
+    }
+
+    // Переиспользуемый буфер одной строки
+    static class LineBuffer {
+        byte[] bytes = new byte[256];
+        int length;
+
+        private void append(byte b) {
+            if (length == bytes.length) {
+                byte[] grown = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, grown, 0, length);
+                bytes = grown;
+            }
+            bytes[length++] = b;
+        }
+    }
+}
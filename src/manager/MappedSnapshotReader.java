@@ -0,0 +1,524 @@
+package manager;
+
+import task.Task;
+import task.TaskStatus;
+import task.TaskType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Загрузка снимка через отображение файла в память.
+ * <p>
+ * Строки CSV не превращаются в String: каждая строка читается в переиспользуемый
+ * байтовый буфер, и поля разбираются прямо из него. Задачи передаются получателю
+ * по мере разбора, поэтому пиковая память — это сами задачи, а не копия файла.
+ * Двоичный снимок узнаётся по сигнатуре и читается {@link BinarySnapshotCodec}.
+ */
+final class MappedSnapshotReader {
+    private static final byte[][] TYPE_NAMES = names(TaskType.values());
+    private static final byte[][] STATUS_NAMES = names(TaskStatus.values());
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    // Меньшие куски не окупают передачу между потоками
+    static final long MIN_CHUNK_SIZE = 1L << 20;
+    // Строка контрольной суммы короткая; хвоста такого размера достаточно, чтобы её найти
+    private static final int TAIL_SIZE = 256;
+    // Строка формата тоже короткая и всегда первая
+    private static final int HEAD_SIZE = 64;
+    // Первая версия CSV-снимка с полем версии задачи
+    private static final int VERSIONED_CSV = 3;
+
+    private MappedSnapshotReader() {
+    }
+
+    /**
+     * Передаёт задачи снимка получателю в порядке записи и возвращает id задач истории.
+     */
+    static List<Integer> read(Path path, Consumer<Task> sink) {
+        return read(path, sink, MappedInput.DEFAULT_WINDOW_SIZE, null, 0);
+    }
+
+    static List<Integer> read(Path path, Consumer<Task> sink, long windowSize) {
+        return read(path, sink, windowSize, null, 0);
+    }
+
+    /**
+     * Если передан пул, строки задач CSV-снимка делятся на куски по границам строк
+     * (не меньше minChunkSize байт) и разбираются параллельно. Результаты кусков
+     * передаются получателю строго по порядку, поэтому итог совпадает с
+     * последовательным разбором. Двоичный снимок всегда читается последовательно:
+     * его записи переменной длины нельзя разделить без дополнительного индекса.
+     */
+    static List<Integer> read(Path path, Consumer<Task> sink, long windowSize,
+                              ForkJoinPool pool, long minChunkSize) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (isBinary(channel, size)) {
+                return BinarySnapshotCodec.read(channel, size, windowSize, sink);
+            }
+            CsvFormat format = readFormatLine(path, channel, size);
+            long contentEnd = verifyChecksum(path, channel, size, windowSize, format.version() > 0);
+            List<Long> bounds = chunkBounds(channel, format.dataStart(), contentEnd, windowSize, pool, minChunkSize);
+            return parseCsv(channel, bounds, windowSize, pool, format.version() >= VERSIONED_CSV, sink);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении файла", e);
+        }
+    }
+
+    private static boolean isBinary(FileChannel channel, long size) throws IOException {
+        if (size < BinarySnapshotCodec.MAGIC.length) {
+            return false;
+        }
+        ByteBuffer head = ByteBuffer.allocate(BinarySnapshotCodec.MAGIC.length);
+        readAt(channel, head, 0);
+        head.flip();
+        return BinarySnapshotCodec.isBinary(head);
+    }
+
+    static void readAt(FileChannel channel, ByteBuffer target, long position) throws IOException {
+        while (target.hasRemaining()) {
+            if (channel.read(target, position + target.position()) < 0) {
+                throw new ManagerSaveException("Неожиданный конец файла");
+            }
+        }
+    }
+
+    /**
+     * Поколение снимка (см. {@link SnapshotData#generation()}); 0 — у снимков, записанных до его появления.
+     */
+    static long readGeneration(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (isBinary(channel, size)) {
+                return BinarySnapshotCodec.readGeneration(channel, size);
+            }
+            return readFormatLine(path, channel, size).generation();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении файла", e);
+        }
+    }
+
+    /**
+     * Версия CSV-снимка (0 — старый файл без строки формата), позиция начала данных после строки
+     * формата и поколение снимка.
+     */
+    private record CsvFormat(int version, long dataStart, long generation) {
+    }
+
+    private static CsvFormat readFormatLine(Path path, FileChannel channel, long size) throws IOException {
+        byte[] prefix = FileBackedTaskManager.FORMAT_PREFIX.getBytes(StandardCharsets.US_ASCII);
+        CsvFormat legacy = new CsvFormat(0, 0, 0);
+        if (size < prefix.length) {
+            return legacy;
+        }
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(size, HEAD_SIZE));
+        readAt(channel, head, 0);
+        byte[] bytes = head.array();
+        if (!Arrays.equals(bytes, 0, prefix.length, prefix, 0, prefix.length)) {
+            return legacy;
+        }
+        int lineEnd = prefix.length;
+        while (lineEnd < bytes.length && bytes[lineEnd] != '\n') {
+            lineEnd++;
+        }
+        if (lineEnd == bytes.length) {
+            throw new ManagerSaveException("Снимок повреждён: некорректная строка формата: " + path);
+        }
+        String[] fields = new String(bytes, prefix.length, lineEnd - prefix.length, StandardCharsets.US_ASCII)
+                .strip().split(",");
+        int version;
+        long generation;
+        try {
+            version = Integer.parseInt(fields[0]);
+            generation = fields.length > 1 ? Long.parseLong(fields[1]) : 0;
+        } catch (NumberFormatException e) {
+            throw new ManagerSaveException("Снимок повреждён: некорректная строка формата: " + path, e);
+        }
+        if (version < 2 || version > FileBackedTaskManager.CSV_FORMAT_VERSION) {
+            throw new ManagerSaveException("Неподдерживаемая версия снимка: " + version);
+        }
+        return new CsvFormat(version, lineEnd + 1, generation);
+    }
+
+    /**
+     * Проверяет строку контрольной суммы в конце CSV-снимка и возвращает конец данных перед ней.
+     * Снимок со строкой формата обязан заканчиваться контрольной суммой: её отсутствие означает,
+     * что файл обрезан. Только файлы старого формата (без строки формата) читаются без проверки.
+     */
+    private static long verifyChecksum(Path path, FileChannel channel, long size, long windowSize,
+                                       boolean required) throws IOException {
+        int tailSize = (int) Math.min(size, TAIL_SIZE);
+        long tailStart = size - tailSize;
+        ByteBuffer tail = ByteBuffer.allocate(tailSize);
+        readAt(channel, tail, tailStart);
+        byte[] bytes = tail.array();
+
+        int end = tailSize;
+        while (end > 0 && (bytes[end - 1] == '\n' || bytes[end - 1] == '\r')) {
+            end--;
+        }
+        int lineStart = end;
+        while (lineStart > 0 && bytes[lineStart - 1] != '\n') {
+            lineStart--;
+        }
+        // последняя строка длиннее хвоста — это не строка контрольной суммы
+        String lastLine = lineStart == 0 && tailStart > 0
+                ? "" : new String(bytes, lineStart, end - lineStart, StandardCharsets.UTF_8);
+        if (!lastLine.startsWith(FileBackedTaskManager.CHECKSUM_PREFIX)) {
+            if (required) {
+                throw new ManagerSaveException("Снимок повреждён: нет строки контрольной суммы: " + path);
+            }
+            return size;
+        }
+
+        long contentEnd = tailStart + lineStart;
+        CRC32 crc = new CRC32();
+        MappedInput.updateChecksum(channel, 0, contentEnd, windowSize, crc);
+        String expected = lastLine.substring(FileBackedTaskManager.CHECKSUM_PREFIX.length()).strip();
+        if (!expected.equalsIgnoreCase(String.format("%08x", crc.getValue()))) {
+            throw new ManagerSaveException("Контрольная сумма снимка не совпадает: " + path);
+        }
+        return contentEnd;
+    }
+
+    // Границы кусков: начало данных (строка заголовка), позиции сразу после '\n' и конец данных
+    private static List<Long> chunkBounds(FileChannel channel, long dataStart, long contentEnd, long windowSize,
+                                          ForkJoinPool pool, long minChunkSize) {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(dataStart);
+        long length = contentEnd - dataStart;
+        int chunks = pool == null ? 1
+                : (int) Math.min(pool.getParallelism() * 4L, length / Math.max(minChunkSize, 1));
+        for (int i = 1; i < chunks; i++) {
+            long nominal = dataStart + length / chunks * i;
+            long bound = nextLineStart(channel, nominal, contentEnd, windowSize);
+            if (bound > bounds.get(bounds.size() - 1) && bound < contentEnd) {
+                bounds.add(bound);
+            }
+        }
+        bounds.add(contentEnd);
+        return bounds;
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long end, long windowSize) {
+        MappedInput input = new MappedInput(channel, position - 1, end, windowSize);
+        int b;
+        while ((b = input.read()) >= 0 && b != '\n') {
+            // пропускаем остаток строки
+        }
+        return input.position();
+    }
+
+    private static List<Integer> parseCsv(FileChannel channel, List<Long> bounds, long windowSize,
+                                          ForkJoinPool pool, boolean versioned, Consumer<Task> sink) {
+        List<Callable<Chunk>> work = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.size(); i++) {
+            long from = bounds.get(i);
+            long to = bounds.get(i + 1);
+            boolean header = i == 0;
+            work.add(() -> parseChunk(channel, from, to, windowSize, header, versioned));
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        if (work.size() == 1) {
+            chunks.add(call(work.get(0)));
+        } else {
+            for (Future<Chunk> future : pool.invokeAll(work)) {
+                chunks.add(join(future));
+            }
+        }
+
+        long end = bounds.get(bounds.size() - 1);
+        for (Chunk chunk : chunks) {
+            chunk.tasks.forEach(sink);
+            if (chunk.failure != null) {
+                throw chunk.failure;
+            }
+            if (chunk.historyStart >= 0) {
+                // всё после первой пустой строки — история; последующие куски уже не нужны
+                return parseHistorySection(new MappedInput(channel, chunk.historyStart, end, windowSize));
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Разбирает строки задач куска до первой пустой строки. Ошибка разбора не бросается,
+     * а запоминается: она важна, только если кусок целиком лежит до начала истории.
+     */
+    private static Chunk parseChunk(FileChannel channel, long from, long to, long windowSize, boolean header,
+                                    boolean versioned) {
+        Chunk chunk = new Chunk();
+        MappedInput input = new MappedInput(channel, from, to, windowSize);
+        MappedInput.LineBuffer line = new MappedInput.LineBuffer();
+        if (header) {
+            input.readLine(line);
+        }
+        while (input.readLine(line) >= 0) {
+            if (isBlank(line)) {
+                chunk.historyStart = input.position();
+                break;
+            }
+            try {
+                chunk.tasks.add(parseTask(line.bytes, line.length, versioned));
+            } catch (Exception e) {
+                chunk.failure = new ManagerSaveException("Ошибка при разборе строки: " + text(line), e);
+                break;
+            }
+        }
+        return chunk;
+    }
+
+    private static List<Integer> parseHistorySection(MappedInput input) {
+        MappedInput.LineBuffer line = new MappedInput.LineBuffer();
+        List<Integer> history = new ArrayList<>();
+        while (input.readLine(line) >= 0) {
+            if (isBlank(line)) {
+                continue;
+            }
+            try {
+                history = parseHistory(line.bytes, line.length);
+            } catch (Exception e) {
+                throw new ManagerSaveException("Ошибка при разборе истории: " + text(line), e);
+            }
+        }
+        return history;
+    }
+
+    private static Chunk call(Callable<Chunk> work) {
+        try {
+            return work.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ManagerSaveException("Ошибка при чтении файла", e);
+        }
+    }
+
+    private static Chunk join(Future<Chunk> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Загрузка снимка прервана", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new ManagerSaveException("Ошибка при чтении файла", e.getCause());
+        }
+    }
+
+    private static class Chunk {
+        private final List<Task> tasks = new ArrayList<>();
+        // позиция сразу после первой пустой строки или -1
+        private long historyStart = -1;
+        private ManagerSaveException failure;
+    }
+
+    /**
+     * Тот же разбор, что и TaskConversionUtils.taskFromCSV, но без промежуточных строк.
+     * Девятое поле — версия задачи — читается только в снимках, где оно есть (versioned);
+     * в старых файлах лишние поля игнорируются.
+     */
+    static Task parseTask(byte[] bytes, int length, boolean versioned) {
+        int[] commas = new int[7];
+        int found = 0;
+        for (int i = 0; i < length && found < commas.length; i++) {
+            if (bytes[i] == ',') {
+                commas[found++] = i;
+            }
+        }
+        if (found < commas.length) {
+            throw new IllegalArgumentException("Недостаточно полей: " + new String(bytes, 0, length, StandardCharsets.UTF_8));
+        }
+        int durationEnd = nextComma(bytes, commas[6] + 1, length);
+        long version = 1;
+        if (versioned && durationEnd < length) {
+            int versionEnd = nextComma(bytes, durationEnd + 1, length);
+            if (!isBlank(bytes, durationEnd + 1, versionEnd)) {
+                version = parseLong(bytes, durationEnd + 1, versionEnd, false);
+            }
+        }
+
+        int id = (int) parseLong(bytes, 0, commas[0], true);
+        TaskType type = TYPES[match(TYPE_NAMES, bytes, commas[0] + 1, commas[1], TaskType.class)];
+        String name = new String(bytes, commas[1] + 1, commas[2] - commas[1] - 1, StandardCharsets.UTF_8);
+        TaskStatus status = STATUSES[match(STATUS_NAMES, bytes, commas[2] + 1, commas[3], TaskStatus.class)];
+        String description = new String(bytes, commas[3] + 1, commas[4] - commas[3] - 1, StandardCharsets.UTF_8);
+
+        int epicId = 0;
+        if (type == TaskType.SUBTASK) {
+            if (isBlank(bytes, commas[4] + 1, commas[5])) {
+                throw new IllegalArgumentException("Subtask должен содержать ID эпика");
+            }
+            epicId = (int) parseLong(bytes, commas[4] + 1, commas[5], true);
+        }
+        LocalDateTime startTime = isBlank(bytes, commas[5] + 1, commas[6])
+                ? null : parseDateTime(bytes, commas[5] + 1, commas[6]);
+        Duration duration = isBlank(bytes, commas[6] + 1, durationEnd)
+                ? null : Duration.ofMinutes(parseLong(bytes, commas[6] + 1, durationEnd, false));
+
+        return TaskConversionUtils.buildTask(id, type, name, status, description, epicId, startTime, duration,
+                version);
+    }
+
+    private static int nextComma(byte[] bytes, int from, int length) {
+        for (int i = from; i < length; i++) {
+            if (bytes[i] == ',') {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    static List<Integer> parseHistory(byte[] bytes, int length) {
+        List<Integer> ids = new ArrayList<>();
+        while (length > 0 && bytes[length - 1] == ',') {
+            length--; // как String.split, пустые значения в конце отбрасываются
+        }
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || bytes[i] == ',') {
+                ids.add((int) parseLong(bytes, start, i, true));
+                start = i + 1;
+            }
+        }
+        return ids;
+    }
+
+    private static long parseLong(byte[] bytes, int from, int to, boolean intRange) {
+        boolean negative = from < to && bytes[from] == '-';
+        int i = negative || (from < to && bytes[from] == '+') ? from + 1 : from;
+        // длинные значения разбираются стандартно, чтобы не следить за переполнением
+        if (i == to || to - i > 18) {
+            return fallbackParse(bytes, from, to, intRange);
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return fallbackParse(bytes, from, to, intRange);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (intRange && (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)) {
+            return fallbackParse(bytes, from, to, true);
+        }
+        return value;
+    }
+
+    // Бросает то же исключение, что и стандартный разбор
+    private static long fallbackParse(byte[] bytes, int from, int to, boolean intRange) {
+        String value = new String(bytes, from, to - from, StandardCharsets.US_ASCII);
+        return intRange ? Integer.parseInt(value) : Long.parseLong(value);
+    }
+
+    /**
+     * Разбирает время вида yyyy-MM-ddTHH:mm[:ss[.n{1,9}]] — то, что пишет
+     * ISO_LOCAL_DATE_TIME. Всё остальное разбирается стандартным парсером.
+     */
+    private static LocalDateTime parseDateTime(byte[] bytes, int from, int to) {
+        int length = to - from;
+        if (length >= 16 && bytes[from + 4] == '-' && bytes[from + 7] == '-' && bytes[from + 10] == 'T'
+                && bytes[from + 13] == ':') {
+            int year = digits(bytes, from, 4);
+            int month = digits(bytes, from + 5, 2);
+            int day = digits(bytes, from + 8, 2);
+            int hour = digits(bytes, from + 11, 2);
+            int minute = digits(bytes, from + 14, 2);
+            int second = 0;
+            int nano = 0;
+            int position = from + 16;
+            boolean valid = year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0;
+            if (valid && position < to) {
+                valid = bytes[position] == ':' && to - position >= 3;
+                second = valid ? digits(bytes, position + 1, 2) : -1;
+                valid = second >= 0;
+                position += 3;
+            }
+            if (valid && position < to) {
+                int fraction = to - position - 1;
+                valid = bytes[position] == '.' && fraction >= 1 && fraction <= 9;
+                nano = valid ? digits(bytes, position + 1, fraction) : -1;
+                valid = nano >= 0;
+                for (int i = fraction; valid && i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+            if (valid) {
+                return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+            }
+        }
+        return LocalDateTime.parse(new String(bytes, from, length, StandardCharsets.US_ASCII),
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+    }
+
+    // Значение count цифр подряд или -1, если встретилась не цифра
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static <E extends Enum<E>> int match(byte[][] names, byte[] bytes, int from, int to, Class<E> type) {
+        int length = to - from;
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i];
+            if (name.length == length && Arrays.equals(name, 0, length, bytes, from, to)) {
+                return i;
+            }
+        }
+        // неизвестное значение — то же исключение, что и у valueOf
+        return Enum.valueOf(type, new String(bytes, from, length, StandardCharsets.UTF_8)).ordinal();
+    }
+
+    private static boolean isBlank(MappedInput.LineBuffer line) {
+        return isBlank(line.bytes, 0, line.length);
+    }
+
+    private static boolean isBlank(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!Character.isWhitespace(bytes[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String text(MappedInput.LineBuffer line) {
+        return new String(line.bytes, 0, line.length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+}
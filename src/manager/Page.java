@@ -0,0 +1,14 @@
+package manager;
+
+import java.util.List;
+
+/**
+ * Страница списка и непрозрачный курсор следующей страницы (null — страница последняя).
+ * Курсор передаётся обратно в тот же метод, которым получена страница.
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,235 @@
+package manager;
+
+import task.Task;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.PrimitiveIterator;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Постраничная выдача и кодирование курсоров.
+ * <p>
+ * Курсор хранит ключ последнего отданного элемента, а не номер позиции, поэтому
+ * добавление и удаление задач между запросами не приводит к пропускам и повторам.
+ * Виды курсоров: по id, по приоритету (startTime, id) и по позиции — только
+ * для истории, у которой нет устойчивого ключа.
+ */
+final class Pages {
+    private static final String BY_ID = "id";
+    private static final String BY_PRIORITY = "pri";
+    private static final String BY_POSITION = "pos";
+    private static final Comparator<Task> ID_ORDER = Comparator.comparingInt(Task::getId);
+
+    private Pages() {
+    }
+
+    /**
+     * Страница по id из неупорядоченной коллекции: в куче держатся только limit + 1
+     * наименьших подходящих элементов, коллекция целиком не сортируется.
+     */
+    static <T extends Task> Page<T> byId(Collection<T> values, String cursor, int limit) {
+        checkLimit(limit);
+        int afterId = cursor == null ? Integer.MIN_VALUE : decodeId(cursor);
+        PriorityQueue<T> smallest = new PriorityQueue<>(limit + 1, ID_ORDER.reversed());
+        for (T task : values) {
+            if (task.getId() <= afterId) {
+                continue;
+            }
+            if (smallest.size() <= limit) {
+                smallest.add(task);
+            } else if (task.getId() < smallest.peek().getId()) {
+                smallest.poll();
+                smallest.add(task);
+            }
+        }
+        List<T> items = new ArrayList<>(smallest);
+        items.sort(ID_ORDER);
+        return cut(items, limit, last -> encodeId(last.getId()));
+    }
+
+    // Страница из списка, уже упорядоченного по id: начало находится двоичным поиском
+    static <T extends Task> Page<T> bySortedId(List<T> sortedById, String cursor, int limit) {
+        checkLimit(limit);
+        int from = 0;
+        if (cursor != null) {
+            int afterId = decodeId(cursor);
+            from = firstAfter(sortedById, task -> Integer.compare(task.getId(), afterId));
+        }
+        return slice(sortedById, from, limit, last -> encodeId(last.getId()));
+    }
+
+    // Страница подзадач эпика из индекса, упорядоченного по id
+    static <T extends Task> Page<T> byId(NavigableMap<Integer, T> sortedById, String cursor, int limit) {
+        checkLimit(limit);
+        Collection<T> tail = cursor == null ? sortedById.values()
+                : sortedById.tailMap(decodeId(cursor), false).values();
+        return take(tail.iterator(), limit, last -> encodeId(last.getId()));
+    }
+
+    // Страница по упорядоченному набору id: обходятся только id после курсора
+    static <T extends Task> Page<T> byId(IntIdIndex ids, Map<Integer, T> values, String cursor, int limit) {
+        checkLimit(limit);
+        PrimitiveIterator.OfInt tail = ids.idsAfter(cursor == null ? -1 : decodeId(cursor));
+        Iterator<T> tasks = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return tail.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return values.get(tail.nextInt());
+            }
+        };
+        return take(tasks, limit, last -> encodeId(last.getId()));
+    }
+
+    static Page<Task> byPriority(NavigableMap<PriorityKey, Task> schedule, String cursor, int limit) {
+        checkLimit(limit);
+        Collection<Task> tail = cursor == null ? schedule.values()
+                : schedule.tailMap(decodePriority(cursor), false).values();
+        return take(tail.iterator(), limit, Pages::encodePriority);
+    }
+
+    // Страница из списка, уже упорядоченного как getPrioritizedTasks
+    static Page<Task> bySortedPriority(List<Task> prioritized, String cursor, int limit) {
+        checkLimit(limit);
+        int from = 0;
+        if (cursor != null) {
+            PriorityKey after = decodePriority(cursor);
+            from = firstAfter(prioritized, task -> PriorityKey.of(task).compareTo(after));
+        }
+        return slice(prioritized, from, limit, Pages::encodePriority);
+    }
+
+    static <T extends Task> Page<T> byPosition(List<T> list, String cursor, int limit) {
+        checkLimit(limit);
+        int from = cursor == null ? 0 : Math.min(decodePosition(cursor), list.size());
+        int to = (int) Math.min((long) from + limit, list.size());
+        String next = to < list.size() ? encode(BY_POSITION, String.valueOf(to)) : null;
+        return new Page<>(List.copyOf(list.subList(from, to)), next);
+    }
+
+    static void checkLimit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть больше 0");
+        }
+    }
+
+    // Индекс первого элемента, который больше курсора (compareToCursor > 0)
+    private static <T> int firstAfter(List<T> sorted, ToIntFunction<T> compareToCursor) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareToCursor.applyAsInt(sorted.get(mid)) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static <T> Page<T> slice(List<T> list, int from, int limit, Function<T, String> cursorOf) {
+        int to = (int) Math.min((long) from + limit, list.size());
+        List<T> items = List.copyOf(list.subList(from, to));
+        String next = to < list.size() ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new Page<>(items, next);
+    }
+
+    private static <T> Page<T> take(Iterator<T> iterator, int limit, Function<T, String> cursorOf) {
+        List<T> items = new ArrayList<>(Math.min(limit, 1024));
+        while (items.size() < limit && iterator.hasNext()) {
+            items.add(iterator.next());
+        }
+        String next = iterator.hasNext() && !items.isEmpty() ? cursorOf.apply(items.get(items.size() - 1)) : null;
+        return new Page<>(items, next);
+    }
+
+    // items содержит не больше limit + 1 элементов; лишний означает, что есть следующая страница
+    private static <T> Page<T> cut(List<T> items, int limit, Function<T, String> cursorOf) {
+        if (items.size() <= limit) {
+            return new Page<>(items, null);
+        }
+        List<T> page = new ArrayList<>(items.subList(0, limit));
+        return new Page<>(page, cursorOf.apply(page.get(limit - 1)));
+    }
+
+    private static String encodeId(int id) {
+        return encode(BY_ID, String.valueOf(id));
+    }
+
+    private static String encodePriority(Task task) {
+        LocalDateTime start = task.getStartTime();
+        return encode(BY_PRIORITY, (start == null ? "" : start.toString()) + "/" + task.getId());
+    }
+
+    private static int decodeId(String cursor) {
+        try {
+            return Integer.parseInt(decode(cursor, BY_ID));
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static PriorityKey decodePriority(String cursor) {
+        String value = decode(cursor, BY_PRIORITY);
+        int slash = value.lastIndexOf('/');
+        if (slash < 0) {
+            throw invalid();
+        }
+        try {
+            LocalDateTime start = slash == 0 ? null : LocalDateTime.parse(value.substring(0, slash));
+            return new PriorityKey(start, null, Integer.parseInt(value.substring(slash + 1)));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static int decodePosition(String cursor) {
+        try {
+            int position = Integer.parseInt(decode(cursor, BY_POSITION));
+            if (position < 0) {
+                throw invalid();
+            }
+            return position;
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    private static String encode(String kind, String value) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((kind + ":" + value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor, String kind) {
+        String value;
+        try {
+            value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (!value.startsWith(kind + ":")) {
+            throw invalid();
+        }
+        return value.substring(kind.length() + 1);
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Некорректный курсор страницы");
+    }
+}
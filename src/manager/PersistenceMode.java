@@ -0,0 +1,8 @@
+package manager;
+
+public enum PersistenceMode {
+    // Полная перезапись CSV-снимка после каждой операции
+    SNAPSHOT,
+    // Дописывание одной записи на операцию в журнал с периодическим сжатием в снимок
+    JOURNAL
+}
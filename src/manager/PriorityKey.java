@@ -0,0 +1,44 @@
+package manager;
+
+import task.Task;
+
+import java.time.LocalDateTime;
+
+/**
+ * Снимок интервала задачи на момент добавления в порядок по времени.
+ * <p>
+ * Упорядочивается, как и прежде, по (startTime, id), задачи без времени — в конце.
+ * Границы хранятся и целиком, и ключами {@link EpochMinutes}: сравнения идут по ключам
+ * и не вызывают getEndTime. Конец интервала в сравнении не участвует, но входит в equals:
+ * по нему видно, изменилось ли расписание задачи с момента добавления.
+ */
+record PriorityKey(long startKey, long endKey, LocalDateTime start, LocalDateTime end, int id)
+        implements Comparable<PriorityKey> {
+
+    PriorityKey(LocalDateTime start, LocalDateTime end, int id) {
+        this(EpochMinutes.of(start), EpochMinutes.of(end), start, end, id);
+    }
+
+    static PriorityKey of(Task task) {
+        return new PriorityKey(task.getStartTime(), task.getEndTime(), task.getId());
+    }
+
+    // Интервал есть только у задачи с началом и концом
+    boolean timed() {
+        return start != null && end != null;
+    }
+
+    int compareStart(long key, LocalDateTime time) {
+        return EpochMinutes.compare(startKey, start, key, time);
+    }
+
+    int compareEnd(long key, LocalDateTime time) {
+        return EpochMinutes.compare(endKey, end, key, time);
+    }
+
+    @Override
+    public int compareTo(PriorityKey other) {
+        int cmp = compareStart(other.startKey, other.start);
+        return cmp != 0 ? cmp : Integer.compare(id, other.id);
+    }
+}
@@ -0,0 +1,14 @@
+package manager;
+
+import task.Task;
+
+import java.util.List;
+
+/**
+ * Содержимое снимка независимо от формата: задачи в порядке записи
+ * (задачи, эпики, подзадачи), id задач истории просмотров и поколение снимка —
+ * номер сжатия, после которого он записан. Журнал помечен тем же номером, поэтому
+ * при загрузке видно, относится ли журнал к этому снимку или уже вошёл в него.
+ */
+record SnapshotData(List<Task> tasks, List<Integer> history, long generation) {
+}
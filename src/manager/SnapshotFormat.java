@@ -0,0 +1,8 @@
+package manager;
+
+public enum SnapshotFormat {
+    // Текстовый CSV-снимок с контрольной суммой в последней строке
+    CSV,
+    // Компактный двоичный снимок, см. BinarySnapshotCodec
+    BINARY
+}
@@ -0,0 +1,137 @@
+package manager;
+
+import java.time.Duration;
+
+/**
+ * Настройки хранения для FileBackedTaskManager.
+ * Неизменяемый объект: методы with* возвращают копию с изменённым параметром.
+ */
+public final class StorageSettings {
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 10_000;
+    private static final Duration DEFAULT_FSYNC_INTERVAL = Duration.ofMillis(100);
+    private static final Duration DEFAULT_HISTORY_MAX_STALENESS = Duration.ofSeconds(1);
+
+    private final PersistenceMode mode;
+    private final int compactionThreshold;
+    private final FsyncPolicy fsyncPolicy;
+    private final Duration fsyncInterval;
+    private final Duration historyMaxStaleness;
+    private final SnapshotFormat snapshotFormat;
+    private final int loadParallelism;
+
+    private StorageSettings(PersistenceMode mode, int compactionThreshold, FsyncPolicy fsyncPolicy,
+                            Duration fsyncInterval, Duration historyMaxStaleness, SnapshotFormat snapshotFormat,
+                            int loadParallelism) {
+        this.mode = mode;
+        this.compactionThreshold = compactionThreshold;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncInterval = fsyncInterval;
+        this.historyMaxStaleness = historyMaxStaleness;
+        this.snapshotFormat = snapshotFormat;
+        this.loadParallelism = loadParallelism;
+    }
+
+    public static StorageSettings defaults() {
+        return new StorageSettings(PersistenceMode.SNAPSHOT, DEFAULT_COMPACTION_THRESHOLD,
+                FsyncPolicy.OS_DEFAULT, DEFAULT_FSYNC_INTERVAL, DEFAULT_HISTORY_MAX_STALENESS, SnapshotFormat.CSV,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public StorageSettings withMode(PersistenceMode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("mode не может быть null");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    // Число записей журнала, после которого журнал сжимается в новый снимок
+    public StorageSettings withCompactionThreshold(int compactionThreshold) {
+        if (compactionThreshold <= 0) {
+            throw new IllegalArgumentException("compactionThreshold должен быть больше 0");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    public StorageSettings withFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        if (fsyncPolicy == null) {
+            throw new IllegalArgumentException("fsyncPolicy не может быть null");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    // Интервал между fsync для политики EVERY_N_MS
+    public StorageSettings withFsyncInterval(Duration fsyncInterval) {
+        if (fsyncInterval == null || fsyncInterval.isNegative() || fsyncInterval.isZero()) {
+            throw new IllegalArgumentException("fsyncInterval должен быть положительным");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    /**
+     * Максимальное время, в течение которого просмотры (история) могут оставаться несохранёнными.
+     * Duration.ZERO — сохранять историю сразу при каждом просмотре.
+     */
+    public StorageSettings withHistoryMaxStaleness(Duration historyMaxStaleness) {
+        if (historyMaxStaleness == null || historyMaxStaleness.isNegative()) {
+            throw new IllegalArgumentException("historyMaxStaleness не может быть отрицательным");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    /**
+     * Формат, в котором записывается снимок. При чтении формат определяется по содержимому файла,
+     * поэтому смена настройки не мешает открыть снимок, записанный в другом формате.
+     */
+    public StorageSettings withSnapshotFormat(SnapshotFormat snapshotFormat) {
+        if (snapshotFormat == null) {
+            throw new IllegalArgumentException("snapshotFormat не может быть null");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    /**
+     * Число потоков для загрузки снимка: разбор CSV по кускам и пересчёт эпиков.
+     * 1 — загрузка в текущем потоке. По умолчанию — число доступных процессоров.
+     */
+    public StorageSettings withLoadParallelism(int loadParallelism) {
+        if (loadParallelism <= 0) {
+            throw new IllegalArgumentException("loadParallelism должен быть больше 0");
+        }
+        return new StorageSettings(mode, compactionThreshold, fsyncPolicy, fsyncInterval, historyMaxStaleness,
+                snapshotFormat, loadParallelism);
+    }
+
+    public PersistenceMode getMode() {
+        return mode;
+    }
+
+    public int getCompactionThreshold() {
+        return compactionThreshold;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public Duration getFsyncInterval() {
+        return fsyncInterval;
+    }
+
+    public Duration getHistoryMaxStaleness() {
+        return historyMaxStaleness;
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+}
@@ -38,6 +38,8 @@ public class TaskConversionUtils {
             sb.append(task.getDuration().toMinutes());
         }
 
+        sb.append(",").append(task.getVersion());
+
         return sb.toString();
     }
 
@@ -55,10 +57,29 @@ public class TaskConversionUtils {
         String epicIdRaw = fields[5];
         String startTimeRaw = fields[6];
         String durationRaw = fields[7];
+        // версии нет в записях журнала, сделанных до её появления (0 — версия неизвестна)
+        long version = fields.length > 8 && !fields[8].isBlank() ? Long.parseLong(fields[8]) : 0;
 
         LocalDateTime startTime = startTimeRaw.isBlank() ? null : LocalDateTime.parse(startTimeRaw, formatter);
         Duration duration = durationRaw.isBlank() ? null : Duration.ofMinutes(Long.parseLong(durationRaw));
 
+        if (type == TaskType.SUBTASK && epicIdRaw.isBlank()) {
+            throw new IllegalArgumentException("Subtask должен содержать ID эпика");
+        }
+        int epicId = type == TaskType.SUBTASK ? Integer.parseInt(epicIdRaw) : 0;
+        return buildTask(id, type, name, status, description, epicId, startTime, duration, version);
+    }
+
+    // Общая сборка задачи из полей снимка для всех форматов
+    static Task buildTask(int id, TaskType type, String name, TaskStatus status, String description,
+                          int epicId, LocalDateTime startTime, Duration duration, long version) {
+        Task task = buildTask(id, type, name, status, description, epicId, startTime, duration);
+        task.setVersion(version);
+        return task;
+    }
+
+    private static Task buildTask(int id, TaskType type, String name, TaskStatus status, String description,
+                                  int epicId, LocalDateTime startTime, Duration duration) {
         switch (type) {
             case TASK -> {
                 Task task = new Task(name, description, duration, startTime);
@@ -70,13 +91,14 @@ public class TaskConversionUtils {
                 Epic epic = new Epic(name, description);
                 epic.setId(id);
                 epic.setStatus(status);
+                // время эпика рассчитывается по подзадачам, но сохраняется как есть, чтобы снимок читался без потерь
+                epic.setStartTime(startTime);
+                if (duration != null) {
+                    epic.setDuration(duration);
+                }
                 return epic;
             }
             case SUBTASK -> {
-                if (epicIdRaw.isBlank()) {
-                    throw new IllegalArgumentException("Subtask должен содержать ID эпика");
-                }
-                int epicId = Integer.parseInt(epicIdRaw);
                 SubTask sub = new SubTask(name, description, status, duration, startTime, epicId);
                 sub.setId(id);
                 return sub;
@@ -0,0 +1,226 @@
+package manager;
+
+import task.Task;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntPredicate;
+
+/**
+ * Индекс временных интервалов задач для проверки пересечений за O(log N).
+ * <p>
+ * Декартово дерево (treap), упорядоченное по (startTime, id), где в каждом узле
+ * хранится максимальный endTime его поддерева. Узел держит {@link PriorityKey} задачи —
+ * снимок границ на момент добавления, поэтому удаление по id корректно, даже если объект
+ * задачи был изменён снаружи. Сравнения идут по ключам {@link EpochMinutes}.
+ * Задачи без startTime или endTime в индекс не попадают — как и раньше,
+ * они ни с чем не пересекаются.
+ */
+class TaskIntervalIndex {
+    private final IntObjectMap<Node> nodesById = new IntObjectMap<>();
+    private Node root;
+
+    /**
+     * Добавляет задачу в индекс (или заменяет ранее добавленный интервал с тем же id).
+     */
+    void add(Task task) {
+        add(PriorityKey.of(task));
+    }
+
+    void add(PriorityKey key) {
+        remove(key.id());
+        if (!key.timed()) {
+            return;
+        }
+        Node node = new Node(key);
+        Node[] parts = split(root, key.startKey(), key.start(), key.id());
+        root = merge(merge(parts[0], node), parts[1]);
+        nodesById.put(key.id(), node);
+    }
+
+    void addAllSorted(Task[] sorted) {
+        PriorityKey[] keys = new PriorityKey[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            keys[i] = PriorityKey.of(sorted[i]);
+        }
+        addAllSorted(keys);
+    }
+
+    /**
+     * Строит индекс за O(N) из ключей, уже упорядоченных по (startTime, id).
+     * Используется при загрузке; если индекс не пуст, ключи добавляются по одному.
+     */
+    void addAllSorted(PriorityKey[] sorted) {
+        if (root != null) {
+            for (PriorityKey key : sorted) {
+                add(key);
+            }
+            return;
+        }
+        // правая граница декартова дерева: приоритеты убывают от корня к последнему узлу
+        Deque<Node> rightSpine = new ArrayDeque<>();
+        for (PriorityKey key : sorted) {
+            if (!key.timed()) {
+                continue;
+            }
+            Node node = new Node(key);
+            Node last = null;
+            while (!rightSpine.isEmpty() && rightSpine.peek().priority < node.priority) {
+                last = rightSpine.pop();
+            }
+            node.left = last;
+            if (!rightSpine.isEmpty()) {
+                rightSpine.peek().right = node;
+            }
+            rightSpine.push(node);
+            nodesById.put(key.id(), node);
+        }
+        root = rightSpine.peekLast();
+        updateSubtree(root);
+    }
+
+    private static void updateSubtree(Node node) {
+        if (node == null) {
+            return;
+        }
+        updateSubtree(node.left);
+        updateSubtree(node.right);
+        node.update();
+    }
+
+    void remove(int id) {
+        Node node = nodesById.remove(id);
+        if (node == null) {
+            return;
+        }
+        PriorityKey key = node.key;
+        Node[] lower = split(root, key.startKey(), key.start(), id);
+        Node[] upper = split(lower[1], key.startKey(), key.start(), id + 1);
+        root = merge(lower[0], upper[1]);
+    }
+
+    void clear() {
+        nodesById.clear();
+        root = null;
+    }
+
+    int size() {
+        return nodesById.size();
+    }
+
+    /**
+     * Проверяет, пересекается ли интервал задачи с каким-либо другим интервалом индекса.
+     * Сама задача (по id) при проверке не учитывается.
+     */
+    boolean overlaps(Task task) {
+        return overlaps(task, task.getId(), null);
+    }
+
+    /**
+     * То же, но без интервалов с id, для которых ignored возвращает true
+     * (например, задач, которые пакет изменений удаляет или переносит).
+     */
+    boolean overlaps(Task task, IntPredicate ignored) {
+        return overlaps(task, 0, ignored);
+    }
+
+    // Проверка не создаёт объектов: границы задачи переводятся в ключи один раз
+    private boolean overlaps(Task task, int selfId, IntPredicate ignored) {
+        LocalDateTime start = task.getStartTime();
+        LocalDateTime end = task.getEndTime();
+        if (start == null || end == null) {
+            return false;
+        }
+        return overlaps(root, EpochMinutes.of(start), start, EpochMinutes.of(end), end, selfId, ignored);
+    }
+
+    private boolean overlaps(Node node, long startKey, LocalDateTime start, long endKey, LocalDateTime end,
+                             int selfId, IntPredicate ignored) {
+        if (node == null || EpochMinutes.compare(node.maxEndKey, node.maxEnd, startKey, start) <= 0) {
+            return false;
+        }
+        if (overlaps(node.left, startKey, start, endKey, end, selfId, ignored)) {
+            return true;
+        }
+        PriorityKey key = node.key;
+        if (key.compareStart(endKey, end) >= 0) {
+            // правое поддерево начинается не раньше node.start, а значит не раньше end
+            return false;
+        }
+        if (key.compareEnd(startKey, start) > 0
+                && (ignored == null ? key.id() != selfId : !ignored.test(key.id()))) {
+            return true;
+        }
+        return overlaps(node.right, startKey, start, endKey, end, selfId, ignored);
+    }
+
+    // Делит дерево на узлы с ключом < (start, id) и >= (start, id)
+    private Node[] split(Node node, long startKey, LocalDateTime start, int id) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (compareKey(node, startKey, start, id) < 0) {
+            Node[] parts = split(node.right, startKey, start, id);
+            node.right = parts[0];
+            node.update();
+            return new Node[]{node, parts[1]};
+        } else {
+            Node[] parts = split(node.left, startKey, start, id);
+            node.left = parts[1];
+            node.update();
+            return new Node[]{parts[0], node};
+        }
+    }
+
+    private Node merge(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        } else {
+            right.left = merge(left, right.left);
+            right.update();
+            return right;
+        }
+    }
+
+    private static int compareKey(Node node, long startKey, LocalDateTime start, int id) {
+        int cmp = node.key.compareStart(startKey, start);
+        return cmp != 0 ? cmp : Integer.compare(node.key.id(), id);
+    }
+
+    private static class Node {
+        // Ключ из порядка по времени: границы интервала на момент добавления
+        private final PriorityKey key;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private long maxEndKey;
+        private LocalDateTime maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(PriorityKey key) {
+            this.key = key;
+            this.maxEndKey = key.endKey();
+            this.maxEnd = key.end();
+        }
+
+        void update() {
+            long maxKey = key.endKey();
+            LocalDateTime max = key.end();
+            if (left != null && EpochMinutes.compare(left.maxEndKey, left.maxEnd, maxKey, max) > 0) {
+                maxKey = left.maxEndKey;
+                max = left.maxEnd;
+            }
+            if (right != null && EpochMinutes.compare(right.maxEndKey, right.maxEnd, maxKey, max) > 0) {
+                maxKey = right.maxEndKey;
+                max = right.maxEnd;
+            }
+            maxEndKey = maxKey;
+            maxEnd = max;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package manager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Журнал операций FileBackedTaskManager: одна текстовая запись на операцию,
+ * дописываемая в конец файла. Стоимость записи не зависит от размера доски.
+ * Запись выполняет {@link GroupCommitWriter}: операции не ждут диска, а
+ * надёжность можно дождаться отдельно через {@link #awaitDurable(long)}
+ * по номеру, который вернули append и appendBatch.
+ * <p>
+ * Формат записей:
+ * <pre>
+ * PUT,&lt;строка задачи в формате CSV&gt;   — создание или обновление
+ * DEL,&lt;id&gt;                          — удаление задачи, эпика или подзадачи
+ * CLEAR,&lt;TASK|EPIC|SUBTASK&gt;          — удаление всех задач типа
+ * VIEW,&lt;id&gt;                         — просмотр (добавление в историю)
+ * BATCH,&lt;n&gt;                         — следующие n записей образуют один пакет
+ * GEN,&lt;поколение&gt;                   — первая запись: поколение снимка, поверх которого журнал пишется
+ * </pre>
+ * Пакет дописывается одной записью в файл; если после сбоя в журнале осталось
+ * меньше n записей пакета, он отбрасывается целиком.
+ * <p>
+ * Сжатие сначала записывает снимок следующего поколения и только потом очищает журнал.
+ * Если между этими шагами произошёл сбой, журнал остаётся помеченным прежним поколением,
+ * и при загрузке он пропускается: все его записи уже вошли в снимок.
+ */
+class TaskJournal implements Closeable {
+    static final String PUT = "PUT";
+    static final String DELETE = "DEL";
+    static final String CLEAR = "CLEAR";
+    static final String VIEW = "VIEW";
+    static final String BATCH = "BATCH";
+    static final String GENERATION = "GEN";
+
+    private final Path path;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    // volatile: awaitDurable читает его без блокировки менеджера, параллельно с close()
+    private volatile GroupCommitWriter writer;
+    private int size;
+
+    TaskJournal(Path path, FsyncPolicy fsyncPolicy, long fsyncIntervalNanos) {
+        this.path = path;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = fsyncIntervalNanos;
+    }
+
+    static Path pathFor(Path snapshotPath) {
+        return snapshotPath.resolveSibling(snapshotPath.getFileName() + ".journal");
+    }
+
+    // Возвращает порядковый номер записи; запись на диск выполняется в фоне
+    long append(String operation, String payload) {
+        ensureWriter();
+        String record = operation + ',' + payload + '\n';
+        long seq = writer.submit(record.getBytes(StandardCharsets.UTF_8));
+        size++;
+        return seq;
+    }
+
+    // Дописывает записи пакета (пары операция-данные) одним обращением к файлу
+    long appendBatch(List<String[]> records) {
+        if (records.size() == 1) {
+            return append(records.get(0)[0], records.get(0)[1]);
+        }
+        StringBuilder batch = new StringBuilder(BATCH).append(',').append(records.size()).append('\n');
+        for (String[] record : records) {
+            batch.append(record[0]).append(',').append(record[1]).append('\n');
+        }
+        ensureWriter();
+        long seq = writer.submit(batch.toString().getBytes(StandardCharsets.UTF_8));
+        size += records.size() + 1;
+        return seq;
+    }
+
+    private void ensureWriter() {
+        if (writer == null) {
+            try {
+                writer = new GroupCommitWriter(path, fsyncPolicy, fsyncIntervalNanos);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка при открытии журнала", e);
+            }
+        }
+    }
+
+    /**
+     * Ждёт, пока запись с номером seq (и все до неё) станет надёжной по политике fsync.
+     * После close() возвращается сразу: закрытие дописывает и сбрасывает на диск всю очередь.
+     */
+    void awaitDurable(long seq) {
+        GroupCommitWriter current = writer;
+        if (current != null) {
+            current.awaitDurable(seq);
+        }
+    }
+
+    // Число записей в журнале с момента последнего сжатия
+    int size() {
+        return size;
+    }
+
+    void setSize(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Очищает журнал после того, как его содержимое попало в снимок поколения generation,
+     * и начинает новый журнал с записи этого поколения.
+     */
+    long reset(long generation) {
+        ensureWriter();
+        writer.truncate();
+        long seq = writer.submit((GENERATION + ',' + generation + '\n').getBytes(StandardCharsets.UTF_8));
+        size = 0;
+        return seq;
+    }
+
+    // Записи операций без первой записи поколения
+    static List<String> operations(List<String> records) {
+        return generationOf(records) >= 0 ? records.subList(1, records.size()) : records;
+    }
+
+    /**
+     * Поколение снимка, к которому относятся записи, или -1, если первой записи поколения нет
+     * (журнал пуст или записан до появления поколений).
+     */
+    static long generationOf(List<String> records) {
+        if (records.isEmpty() || !records.get(0).startsWith(GENERATION + ",")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(records.get(0).substring(GENERATION.length() + 1));
+        } catch (NumberFormatException e) {
+            throw new ManagerSaveException("Некорректная запись поколения журнала: " + records.get(0), e);
+        }
+    }
+
+    /**
+     * Читает записи журнала. Последняя строка без перевода строки считается
+     * недописанной (сбой во время записи) и отбрасывается.
+     */
+    static List<String> readRecords(Path path) {
+        List<String> records = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return records;
+        }
+        String content;
+        try {
+            content = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка при чтении журнала", e);
+        }
+        int lineStart = 0;
+        int lineEnd;
+        while ((lineEnd = content.indexOf('\n', lineStart)) >= 0) {
+            String line = content.substring(lineStart, lineEnd);
+            if (line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+            if (!line.isBlank()) {
+                records.add(line);
+            }
+            lineStart = lineEnd + 1;
+        }
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import task.Epic;
 import task.SubTask;
 import task.Task;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -21,6 +22,17 @@ public interface TaskManager {
 
     Epic updateEpic(Epic epic);
 
+    /**
+     * Обновление с проверкой версии (compare-and-set): применяется, только если текущая версия
+     * сохранённой задачи равна expectedVersion, иначе бросает VersionConflictException.
+     * Проверка и обновление выполняются атомарно.
+     */
+    Task updateTask(Task task, long expectedVersion);
+
+    SubTask updateSubTask(SubTask subtask, long expectedVersion);
+
+    Epic updateEpic(Epic epic, long expectedVersion);
+
     Optional<Task> getTask(int id);
 
     Optional<Epic> getEpic(int id);
@@ -50,4 +62,93 @@ public interface TaskManager {
     List<Task> getHistory();
 
     List<Task> getPrioritizedTasks();
-}
\ No newline at end of file
+
+    /**
+     * Применяет пакет созданий, обновлений и удалений атомарно: если хоть одна операция
+     * некорректна или итоговое расписание содержит пересечения, не меняется ничего.
+     * Пересечения проверяются для итогового состояния, поэтому задачи пакета могут,
+     * например, поменяться временем. Каждая задача меняется в пакете не более одного раза.
+     * Возвращает результат каждой операции по порядку; для удалений — null.
+     * Некорректная операция — IllegalArgumentException с номером операции,
+     * пересечение — TaskIntersectionException. Если операция сорвётся уже при применении,
+     * применённая часть откатывается и исключение пробрасывается дальше.
+     */
+    List<Task> applyBatch(List<BatchOperation> operations);
+
+    /**
+     * Массовый импорт задач, эпиков и подзадач с новыми id. Импорт атомарен: при
+     * некорректных данных — IllegalArgumentException, при пересечениях по времени —
+     * ImportConflictException со всеми пересекающимися парами; в обоих случаях
+     * ничего не добавляется. Подзадача может ссылаться на эпик доски или на
+     * импортируемый эпик по его прежнему id. Возвращает импортированные объекты
+     * в порядке передачи.
+     */
+    List<Task> importAll(Collection<? extends Task> items);
+
+    /*
+     * Постраничные варианты списков. cursor — null для первой страницы или nextCursor
+     * предыдущей страницы того же списка; limit — максимальный размер страницы.
+     * Задачи, эпики и подзадачи упорядочены по id, приоритетный список — как
+     * getPrioritizedTasks, история — в порядке просмотров.
+     * Некорректный курсор или limit <= 0 — IllegalArgumentException.
+     * Реализации по умолчанию строят полный список; менеджеры переопределяют их,
+     * чтобы страница не требовала обхода всей доски.
+     */
+
+    default Page<Task> getTasksPage(String cursor, int limit) {
+        return Pages.byId(getAllTasks(), cursor, limit);
+    }
+
+    default Page<Epic> getEpicsPage(String cursor, int limit) {
+        return Pages.byId(getAllEpics(), cursor, limit);
+    }
+
+    default Page<SubTask> getSubTasksPage(String cursor, int limit) {
+        return Pages.byId(getAllSubTasks(), cursor, limit);
+    }
+
+    default Page<SubTask> getSubtasksForEpicPage(int epicId, String cursor, int limit) {
+        return Pages.byId(getSubtasksForEpic(epicId), cursor, limit);
+    }
+
+    default Page<Task> getHistoryPage(String cursor, int limit) {
+        return Pages.byPosition(getHistory(), cursor, limit);
+    }
+
+    default Page<Task> getPrioritizedTasksPage(String cursor, int limit) {
+        return Pages.bySortedPriority(getPrioritizedTasks(), cursor, limit);
+    }
+
+    /**
+     * Счётчик изменений доски: растёт после любого изменения задач, эпиков или подзадач.
+     * Пока он не изменился, списки задач остаются прежними, поэтому по нему можно
+     * кешировать ответы. Просмотры его не меняют — для истории есть
+     * {@link #getHistoryModificationCount()}. -1 — менеджер изменения не отслеживает.
+     */
+    default long getModificationCount() {
+        return -1;
+    }
+
+    /**
+     * Счётчик для истории просмотров: растёт и после просмотра, и после любого изменения,
+     * учтённого в {@link #getModificationCount()} (в истории видно содержимое задач).
+     * -1 — менеджер изменения не отслеживает.
+     */
+    default long getHistoryModificationCount() {
+        return -1;
+    }
+
+    /**
+     * Ждёт, пока изменения, уже выполненные вызывающим потоком, будут надёжно сохранены.
+     * Для менеджеров без постоянного хранилища ничего не делает.
+     */
+    default void awaitDurability() {
+    }
+
+    /**
+     * Сохраняет отложенные изменения (например, историю просмотров), не дожидаясь
+     * фоновой записи. Для менеджеров без постоянного хранилища ничего не делает.
+     */
+    default void flush() {
+    }
+}
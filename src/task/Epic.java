@@ -2,12 +2,11 @@ package task;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 public class Epic extends Task {
 
-    private final List<Integer> subtaskIds = new ArrayList<>();
+    private final IntIdList subtaskIds = new IntIdList();
 
     public Epic(String name, String description) {
         super(name, description);
@@ -30,11 +29,6 @@ public class Epic extends Task {
         this.duration = duration;
     }
 
-    @Override
-    public LocalDateTime getEndTime() {
-        return (startTime != null && duration != null) ? startTime.plus(duration) : null;
-    }
-
     public void setEndTime(LocalDateTime endTime) {
         if (startTime != null && endTime != null) {
             this.duration = Duration.between(startTime, endTime);
@@ -45,6 +39,18 @@ public class Epic extends Task {
         return subtaskIds;
     }
 
+    @Override
+    public Epic copy() {
+        Epic copy = new Epic(name, description);
+        copy.id = id;
+        copy.status = status;
+        copy.startTime = startTime;
+        copy.duration = duration;
+        copy.subtaskIds.addAll(subtaskIds);
+        copy.version = version;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Epic{" +
@@ -0,0 +1,125 @@
+package task;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Список id подзадач эпика на массиве int: 4 байта на id вместо ссылки и упакованного Integer.
+ * Поиск идёт по массиву примитивов без вызовов equals. Снаружи это обычный List&lt;Integer&gt;
+ * (так его видят вызывающий код и JSON); null в списке не допускается.
+ */
+final class IntIdList extends AbstractList<Integer> implements RandomAccess {
+    private static final int[] EMPTY = new int[0];
+
+    private int[] ids = EMPTY;
+    private int size;
+
+    IntIdList() {
+    }
+
+    @Override
+    public Integer get(int index) {
+        checkIndex(index);
+        return ids[index];
+    }
+
+    @Override
+    public Integer set(int index, Integer id) {
+        checkIndex(index);
+        int previous = ids[index];
+        ids[index] = id;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Integer id) {
+        int value = id;
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+        }
+        ids[size++] = value;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void add(int index, Integer id) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        add(id);
+        System.arraycopy(ids, index, ids, index + 1, size - 1 - index);
+        ids[index] = id;
+    }
+
+    @Override
+    public Integer remove(int index) {
+        checkIndex(index);
+        int previous = ids[index];
+        System.arraycopy(ids, index + 1, ids, index, size - 1 - index);
+        size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof Integer id)) {
+            return -1;
+        }
+        int value = id;
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        if (!(o instanceof Integer id)) {
+            return -1;
+        }
+        int value = id;
+        for (int i = size - 1; i >= 0; i--) {
+            if (ids[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+        modCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -28,6 +28,14 @@ public class SubTask extends task.Task {
         return TaskType.SUBTASK;
     }
 
+    @Override
+    public SubTask copy() {
+        SubTask copy = new SubTask(name, description, status, duration, startTime, epicId);
+        copy.id = id;
+        copy.version = version;
+        return copy;
+    }
+
     public int getEpicId() {
         return epicId;
     }
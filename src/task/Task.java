@@ -12,6 +12,10 @@ public class Task {
 
     protected Duration duration;
     protected LocalDateTime startTime;
+    // Номер версии: выставляется менеджером при создании и увеличивается при каждом обновлении
+    protected long version;
+    // Кэш конца интервала: пересчитывается, только если startTime или duration заменены
+    private transient EndTime endTime;
 
     public Task(String name, String description) {
         this.name = name;
@@ -76,15 +80,43 @@ public class Task {
     }
 
     public LocalDateTime getEndTime() {
-        return (startTime != null && duration != null)
-                ? startTime.plus(duration)
-                : null;
+        LocalDateTime start = startTime;
+        Duration length = duration;
+        if (start == null || length == null) {
+            return null;
+        }
+        // поля могут присваиваться напрямую (наследники, Gson), поэтому кэш сверяется с ними по ссылке
+        EndTime cached = endTime;
+        if (cached == null || cached.start() != start || cached.duration() != length) {
+            cached = new EndTime(start, length, start.plus(length));
+            endTime = cached;
+        }
+        return cached.end();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
     }
 
     public TaskType getType() {
         return TaskType.TASK;
     }
 
+    /**
+     * Независимая копия задачи со всеми полями.
+     */
+    public Task copy() {
+        Task copy = new Task(name, description, duration, startTime);
+        copy.id = id;
+        copy.status = status;
+        copy.version = version;
+        return copy;
+    }
+
     @Override
     public String toString() {
         return "Task{" +
@@ -114,4 +146,7 @@ public class Task {
     public int hashCode() {
         return Objects.hash(id, name, description, status, duration, startTime);
     }
+
+    private record EndTime(LocalDateTime start, Duration duration, LocalDateTime end) {
+    }
 }
\ No newline at end of file
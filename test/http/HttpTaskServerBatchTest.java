@@ -0,0 +1,87 @@
+package http;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import manager.InMemoryTaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTaskServerBatchTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private InMemoryTaskManager manager;
+    private HttpTaskServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withPort(0));
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + "/batch"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void shouldApplyBatchAndReturnResults() throws IOException, InterruptedException {
+        Task existing = manager.createTask(new Task("Старая", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2030, 1, 1, 9, 0)));
+
+        HttpResponse<String> response = post("["
+                + "{\"action\":\"CREATE\",\"type\":\"EPIC\",\"task\":{\"name\":\"Спринт\",\"description\":\"Desc\"}},"
+                + "{\"action\":\"CREATE\",\"type\":\"SUBTASK\",\"task\":{\"name\":\"S1\",\"description\":\"Desc\","
+                + "\"status\":\"NEW\",\"duration\":\"PT30M\",\"startTime\":\"2030-01-01T09:00:00\",\"epicId\":-1}},"
+                + "{\"action\":\"DELETE\",\"type\":\"TASK\",\"id\":" + existing.getId() + "}]");
+
+        assertEquals(200, response.statusCode(), response.body());
+        JsonArray results = JsonParser.parseString(response.body()).getAsJsonArray();
+        assertEquals(3, results.size());
+        assertTrue(results.get(2).isJsonNull());
+        int epicId = results.get(0).getAsJsonObject().get("id").getAsInt();
+        assertEquals(1, manager.getSubtasksForEpic(epicId).size());
+        assertTrue(manager.getAllTasks().isEmpty());
+    }
+
+    @Test
+    public void shouldRejectBatchAsWhole() throws IOException, InterruptedException {
+        manager.createTask(new Task("Занято", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2030, 1, 1, 9, 0)));
+        String create = "{\"action\":\"CREATE\",\"type\":\"TASK\",\"task\":{\"name\":\"N\",\"description\":\"Desc\","
+                + "\"status\":\"NEW\",\"duration\":\"PT30M\",\"startTime\":\"2030-01-01T%s\"}}";
+
+        HttpResponse<String> intersecting = post("[" + String.format(create, "12:00:00") + ","
+                + String.format(create, "09:15:00") + "]");
+        assertEquals(406, intersecting.statusCode());
+
+        HttpResponse<String> missing = post("[" + String.format(create, "12:00:00") + ","
+                + "{\"action\":\"UPDATE\",\"type\":\"TASK\",\"task\":{\"id\":999,\"name\":\"N\",\"description\":\"D\","
+                + "\"status\":\"NEW\",\"duration\":\"PT5M\"}}]");
+        assertEquals(409, missing.statusCode());
+
+        assertEquals(400, post("{\"action\":\"CREATE\"}").statusCode());
+        assertEquals(400, post("[{\"action\":\"MOVE\",\"type\":\"TASK\",\"id\":1}]").statusCode());
+        assertEquals(400, post("[{\"action\":\"DELETE\",\"type\":\"TASK\"}]").statusCode());
+        assertEquals(400, post("[" + String.format(create, "12:00:00").replace("PT30M", "полчаса") + "]").statusCode());
+        assertEquals(1, manager.getAllTasks().size(), "Отклонённые пакеты ничего не меняют");
+    }
+}
@@ -0,0 +1,109 @@
+package http;
+
+import manager.InMemoryTaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTaskServerCompressionTest {
+    private final HttpClient client = HttpClient.newHttpClient();
+    private InMemoryTaskManager manager;
+    private HttpTaskServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withPort(0));
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop();
+    }
+
+    private void createTasks(int count) {
+        int offset = manager.getAllTasks().size();
+        for (int i = offset; i < offset + count; i++) {
+            manager.createTask(new Task("Task " + i, "Подробное описание задачи номер " + i,
+                    Duration.ofMinutes(10), LocalDateTime.of(2030, 1, 1, 0, 0).plusMinutes(15L * i)));
+        }
+    }
+
+    private HttpResponse<byte[]> get(String path, String acceptEncoding) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + server.getPort() + path)).GET();
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static String decode(HttpResponse<byte[]> response) throws IOException {
+        String encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+        InputStream in = new ByteArrayInputStream(response.body());
+        if ("gzip".equals(encoding)) {
+            in = new GZIPInputStream(in);
+        } else if ("deflate".equals(encoding)) {
+            in = new InflaterInputStream(in);
+        }
+        return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void shouldCompressLargeListWithGzip() throws IOException, InterruptedException {
+        createTasks(500);
+        // Первый запрос не попадает в кеш и сжимается на лету
+        HttpResponse<byte[]> streamed = get("/tasks", "br, gzip;q=0.9, deflate;q=0.5");
+        String plain = decode(get("/tasks", null));
+
+        assertEquals("gzip", streamed.headers().firstValue("Content-Encoding").orElse(null));
+        assertEquals("Accept-Encoding", streamed.headers().firstValue("Vary").orElse(null));
+        assertTrue(streamed.body().length * 4 < plain.getBytes(StandardCharsets.UTF_8).length,
+                "JSON задач должен сжиматься хотя бы вчетверо");
+        assertEquals(plain, decode(streamed));
+
+        // Повторный запрос обслуживается кешем — сжатый вариант тоже
+        HttpResponse<byte[]> cached = get("/tasks", "gzip");
+        assertEquals("gzip", cached.headers().firstValue("Content-Encoding").orElse(null));
+        assertEquals(plain, decode(cached));
+    }
+
+    @Test
+    public void shouldUseDeflateWhenPreferred() throws IOException, InterruptedException {
+        createTasks(100);
+        String plain = decode(get("/tasks", null));
+
+        HttpResponse<byte[]> response = get("/tasks", "gzip;q=0.2, deflate");
+        assertEquals("deflate", response.headers().firstValue("Content-Encoding").orElse(null));
+        assertEquals(plain, decode(response));
+    }
+
+    @Test
+    public void shouldNotCompressSmallOrRefusedResponses() throws IOException, InterruptedException {
+        createTasks(1);
+        HttpResponse<byte[]> small = get("/tasks", "gzip");
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty());
+        assertTrue(small.headers().firstValue("Content-Length").isPresent(), "Маленький список уходит целиком");
+
+        createTasks(100);
+        HttpResponse<byte[]> refused = get("/tasks", "gzip;q=0, identity");
+        assertTrue(refused.headers().firstValue("Content-Encoding").isEmpty());
+    }
+}
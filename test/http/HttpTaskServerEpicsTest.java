@@ -23,6 +23,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class HttpTaskServerEpicsTest {
@@ -46,6 +47,56 @@ public class HttpTaskServerEpicsTest {
         server.stop();
     }
 
+    @Test
+    public void shouldAnswerNotModifiedWhileBoardIsUnchanged() throws IOException, InterruptedException {
+        manager.createEpic(new Epic("Epic", "Desc"));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest plain = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/epics")).GET().build();
+
+        HttpResponse<String> first = client.send(plain, HttpResponse.BodyHandlers.ofString());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        HttpResponse<String> cached = client.send(plain, HttpResponse.BodyHandlers.ofString());
+        assertEquals(etag, cached.headers().firstValue("ETag").orElseThrow());
+        assertEquals(first.body(), cached.body());
+
+        HttpRequest conditional = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/epics"))
+                .header("If-None-Match", etag).GET().build();
+        HttpResponse<String> notModified = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(304, notModified.statusCode());
+        assertEquals("", notModified.body());
+
+        manager.createEpic(new Epic("Second", "Desc"));
+        HttpResponse<String> changed = client.send(conditional, HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        List<Epic> epics = gson.fromJson(changed.body(), new TypeToken<List<Epic>>() {
+        }.getType());
+        assertEquals(2, epics.size());
+    }
+
+    @Test
+    public void shouldKeepListETagWhenEpicIsViewed() throws IOException, InterruptedException {
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest list = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/epics")).GET().build();
+        HttpRequest history = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/history")).GET().build();
+        String listTag = client.send(list, HttpResponse.BodyHandlers.ofString()).headers().firstValue("ETag").orElseThrow();
+        String historyTag = client.send(history, HttpResponse.BodyHandlers.ofString())
+                .headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest view = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/epics/" + epic.getId())).GET().build();
+        assertEquals(200, client.send(view, HttpResponse.BodyHandlers.ofString()).statusCode());
+
+        HttpRequest conditional = HttpRequest.newBuilder().uri(URI.create("http://localhost:8080/epics"))
+                .header("If-None-Match", listTag).GET().build();
+        assertEquals(304, client.send(conditional, HttpResponse.BodyHandlers.ofString()).statusCode(),
+                "Просмотр не меняет список эпиков");
+        HttpResponse<String> viewed = client.send(history, HttpResponse.BodyHandlers.ofString());
+        assertNotEquals(historyTag, viewed.headers().firstValue("ETag").orElseThrow());
+        assertTrue(viewed.body().contains("\"Epic\""), viewed.body());
+    }
+
     @Test
     public void shouldCreateEpic() throws IOException, InterruptedException {
         Epic epic = new Epic("EpicTitle", "EpicDescription");
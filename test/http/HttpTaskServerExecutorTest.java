@@ -0,0 +1,158 @@
+package http;
+
+import com.google.gson.Gson;
+import config.GsonFactory;
+import manager.InMemoryTaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTaskServerExecutorTest {
+    private final Gson gson = GsonFactory.createGson();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpTaskServer server;
+
+    // Менеджер, у которого получение списка задач «зависает» до команды теста
+    private static class SlowListManager extends InMemoryTaskManager {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<Task> getAllTasks() {
+            entered.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getAllTasks();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder().uri(URI.create("http://localhost:8080" + path)).GET().build();
+    }
+
+    private void assertSlowRequestDoesNotBlockOthers(ExecutorMode mode) throws Exception {
+        SlowListManager manager = new SlowListManager();
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withExecutorMode(mode).withPoolSize(4));
+        server.start();
+        try {
+            CompletableFuture<HttpResponse<String>> slow =
+                    client.sendAsync(get("/tasks"), HttpResponse.BodyHandlers.ofString());
+            assertTrue(manager.entered.await(10, TimeUnit.SECONDS));
+
+            HttpResponse<String> fast = client.sendAsync(get("/history"), HttpResponse.BodyHandlers.ofString())
+                    .get(10, TimeUnit.SECONDS);
+            assertEquals(200, fast.statusCode());
+            assertFalse(slow.isDone(), "Медленный запрос ещё выполняется");
+
+            manager.release.countDown();
+            assertEquals(200, slow.get(10, TimeUnit.SECONDS).statusCode());
+        } finally {
+            manager.release.countDown();
+        }
+    }
+
+    @Test
+    public void fixedPoolShouldServeRequestsWhileOneIsSlow() throws Exception {
+        assertSlowRequestDoesNotBlockOthers(ExecutorMode.FIXED_POOL);
+    }
+
+    @Test
+    public void virtualThreadsShouldServeRequestsWhileOneIsSlow() throws Exception {
+        assertSlowRequestDoesNotBlockOthers(ExecutorMode.VIRTUAL_THREADS);
+    }
+
+    @Test
+    public void shouldCreateTasksFromConcurrentClients() throws Exception {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withExecutorMode(ExecutorMode.FIXED_POOL));
+        server.start();
+
+        ExecutorService clients = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Task task = new Task("Task " + i, "Desc", Duration.ofMinutes(10),
+                        LocalDateTime.of(2030, 1, 1, 0, 0).plusMinutes(15L * i));
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create("http://localhost:8080/tasks"))
+                        .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                        .build();
+                statuses.add(clients.submit(() -> client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode()));
+            }
+            for (Future<Integer> status : statuses) {
+                assertEquals(201, (int) status.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+
+        List<Task> tasks = manager.getAllTasks();
+        assertEquals(200, tasks.size());
+        Set<Integer> ids = new HashSet<>();
+        tasks.forEach(t -> assertTrue(ids.add(t.getId())));
+    }
+
+    @Test
+    public void shouldBoundWorkerThreadsWithoutVirtualThreads() {
+        HttpServerSettings settings = HttpServerSettings.defaults();
+        if (HttpExecutors.virtualThreadsAvailable()) {
+            assertEquals(ExecutorMode.VIRTUAL_THREADS, settings.getExecutorMode());
+            return;
+        }
+        assertEquals(ExecutorMode.FIXED_POOL, settings.getExecutorMode());
+        ExecutorService executor = HttpExecutors.create(settings.withExecutorMode(ExecutorMode.VIRTUAL_THREADS)
+                .withPoolSize(3));
+        try {
+            assertTrue(executor instanceof ThreadPoolExecutor);
+            assertEquals(3, ((ThreadPoolExecutor) executor).getMaximumPoolSize(),
+                    "Без виртуальных потоков число потоков ограничено poolSize");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRejectInvalidPoolSize() {
+        assertThrows(IllegalArgumentException.class, () -> HttpServerSettings.defaults().withPoolSize(0));
+        assertThrows(IllegalArgumentException.class, () -> HttpServerSettings.defaults().withExecutorMode(null));
+    }
+
+    @Test
+    public void singleThreadModeShouldStillServeRequests() throws IOException, InterruptedException {
+        server = new HttpTaskServer(new InMemoryTaskManager(),
+                HttpServerSettings.defaults().withExecutorMode(ExecutorMode.SINGLE_THREAD));
+        server.start();
+        assertEquals(200, client.send(get("/tasks"), HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+}
@@ -0,0 +1,162 @@
+package http;
+
+import com.google.gson.Gson;
+import config.GsonFactory;
+import manager.FileBackedTaskManager;
+import manager.InMemoryTaskManager;
+import manager.StorageSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpTaskServerShutdownTest {
+    private final Gson gson = GsonFactory.createGson();
+    private final HttpClient client = HttpClient.newHttpClient();
+    private HttpTaskServer server;
+    private Path file;
+
+    // Менеджер, у которого получение списка задач «зависает» до команды теста
+    private static class SlowListManager extends InMemoryTaskManager {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public List<Task> getAllTasks() {
+            entered.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getAllTasks();
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (server != null) {
+            server.stop();
+        }
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    @Test
+    public void shouldListenOnConfiguredPort() throws IOException, InterruptedException {
+        server = new HttpTaskServer(new InMemoryTaskManager(), HttpServerSettings.defaults().withPort(0));
+        server.start();
+
+        assertNotEquals(0, server.getPort());
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder().uri(uri("/tasks")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+    }
+
+    @Test
+    public void shouldRejectTooLargeBody() throws IOException, InterruptedException {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withPort(0).withMaxRequestBodyBytes(256));
+        server.start();
+
+        Task big = new Task("Big", "x".repeat(1000), Duration.ofMinutes(5), null);
+        HttpResponse<String> rejected = client.send(HttpRequest.newBuilder().uri(uri("/tasks"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(big))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(413, rejected.statusCode());
+        assertTrue(manager.getAllTasks().isEmpty());
+
+        Task small = new Task("Small", "Desc", Duration.ofMinutes(5), null);
+        HttpResponse<String> accepted = client.send(HttpRequest.newBuilder().uri(uri("/tasks"))
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(small))).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(201, accepted.statusCode());
+        assertEquals(1, manager.getAllTasks().size());
+    }
+
+    @Test
+    public void stopShouldFinishInFlightRequestsAndRejectNewOnes() throws Exception {
+        SlowListManager manager = new SlowListManager();
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withPort(0)
+                .withExecutorMode(ExecutorMode.FIXED_POOL).withDrainTimeout(Duration.ofSeconds(10)));
+        server.start();
+
+        CompletableFuture<HttpResponse<String>> slow = client.sendAsync(
+                HttpRequest.newBuilder().uri(uri("/tasks")).GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(manager.entered.await(10, TimeUnit.SECONDS));
+
+        HttpTaskServer stopping = server;
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(stopping::stop);
+        server = null;
+
+        // Пока идёт остановка, новые запросы получают 503, а не обрыв соединения
+        HttpResponse<String> rejected = null;
+        for (int attempt = 0; attempt < 50 && rejected == null; attempt++) {
+            HttpResponse<String> response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder().uri(URI.create("http://localhost:" + stopping.getPort() + "/history"))
+                            .GET().build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 503) {
+                rejected = response;
+            } else {
+                Thread.sleep(20);
+            }
+        }
+        assertNotNull(rejected, "Новый запрос во время остановки должен получить 503");
+        assertFalse(stopped.isDone(), "stop() ждёт завершения начатого запроса");
+
+        manager.release.countDown();
+        assertEquals(200, slow.get(10, TimeUnit.SECONDS).statusCode());
+        stopped.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void stopShouldFlushFileBackedManager() throws IOException, InterruptedException {
+        file = Files.createTempFile("http_shutdown_test", ".csv");
+        StorageSettings storage = StorageSettings.defaults().withHistoryMaxStaleness(Duration.ofHours(1));
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, storage);
+        Task task = manager.createTask(new Task("Task", "Desc", Duration.ofMinutes(5), null));
+
+        server = new HttpTaskServer(manager, HttpServerSettings.defaults().withPort(0));
+        server.start();
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder().uri(uri("/tasks/" + task.getId())).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+
+        server.stop();
+        server = null;
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, storage);
+        assertEquals(1, loaded.getHistory().size());
+        assertEquals(task.getId(), loaded.getHistory().get(0).getId());
+    }
+
+    @Test
+    public void shouldRejectInvalidSettings() {
+        HttpServerSettings settings = HttpServerSettings.defaults();
+        assertThrows(IllegalArgumentException.class, () -> settings.withPort(-1));
+        assertThrows(IllegalArgumentException.class, () -> settings.withPort(70000));
+        assertThrows(IllegalArgumentException.class, () -> settings.withBacklog(-1));
+        assertThrows(IllegalArgumentException.class, () -> settings.withMaxRequestBodyBytes(0));
+        assertThrows(IllegalArgumentException.class, () -> settings.withDrainTimeout(Duration.ofSeconds(-1)));
+    }
+}
@@ -65,6 +65,66 @@ public class HttpTaskServerTasksTest {
         assertEquals(1, manager.getAllTasks().size());
     }
 
+    @Test
+    public void shouldStreamLargeTaskListChunked() throws IOException, InterruptedException {
+        for (int i = 0; i < 5000; i++) {
+            manager.createTask(new Task("Task " + i, "Описание " + i, Duration.ofMinutes(10),
+                    LocalDateTime.of(2030, 1, 1, 0, 0).plusMinutes(15L * i)));
+        }
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .GET()
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient()
+                .send(request, HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Length").isEmpty(), "Ответ должен идти чанками");
+        assertEquals(gson.toJson(manager.getAllTasks()), response.body());
+    }
+
+    @Test
+    public void shouldPageTasksWithCursorHeader() throws IOException, InterruptedException {
+        for (int i = 0; i < 5; i++) {
+            manager.createTask(new Task("Task " + i, "Desc", Duration.ofMinutes(10),
+                    LocalDateTime.of(2030, 1, 1, 0, 0).plusMinutes(15L * i)));
+        }
+        HttpClient client = HttpClient.newHttpClient();
+
+        StringBuilder ids = new StringBuilder();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String query = "?limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks" + query)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            Task[] page = gson.fromJson(response.body(), Task[].class);
+            assertTrue(page.length <= 2);
+            for (Task task : page) {
+                ids.append(task.getId()).append(',');
+            }
+            cursor = response.headers().firstValue("X-Next-Cursor").orElse(null);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals("1,2,3,4,5,", ids.toString());
+    }
+
+    @Test
+    public void shouldRejectInvalidPageParameters() throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newHttpClient();
+        for (String query : new String[]{"?limit=0", "?limit=abc", "?limit=100000", "?cursor=broken"}) {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder()
+                    .uri(URI.create("http://localhost:8080/tasks" + query)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, response.statusCode(), query);
+        }
+    }
+
     @Test
     public void shouldUpdateTaskViaPost() throws IOException, InterruptedException {
         Task task = new Task("Old", "Desc", Duration.ofMinutes(10), LocalDateTime.now());
@@ -87,6 +147,41 @@ public class HttpTaskServerTasksTest {
         assertEquals("Updated", manager.getTask(task.getId()).orElseThrow().getName());
     }
 
+    @Test
+    public void shouldRejectUpdateWithStaleETag() throws IOException, InterruptedException {
+        Task task = manager.createTask(new Task("Versioned", "Desc", Duration.ofMinutes(10), LocalDateTime.now()));
+        HttpClient client = HttpClient.newHttpClient();
+
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks/" + task.getId()))
+                .GET()
+                .build(), HttpResponse.BodyHandlers.ofString());
+        String etag = get.headers().firstValue("ETag").orElseThrow();
+        assertEquals("\"1\"", etag);
+
+        Task first = gson.fromJson(get.body(), Task.class);
+        first.setTitle("First");
+        HttpResponse<String> ok = client.send(postWithIfMatch(first, etag), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, ok.statusCode());
+        assertEquals("\"2\"", ok.headers().firstValue("ETag").orElseThrow());
+
+        Task second = gson.fromJson(get.body(), Task.class);
+        second.setTitle("Second");
+        HttpResponse<String> stale = client.send(postWithIfMatch(second, etag), HttpResponse.BodyHandlers.ofString());
+        assertEquals(412, stale.statusCode());
+        assertEquals("\"2\"", stale.headers().firstValue("ETag").orElseThrow());
+        assertEquals("First", manager.getTask(task.getId()).orElseThrow().getName());
+    }
+
+    private HttpRequest postWithIfMatch(Task task, String etag) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:8080/tasks"))
+                .header("Content-Type", "application/json")
+                .header("If-Match", etag)
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(task)))
+                .build();
+    }
+
     @Test
     public void shouldReturnTaskById() throws IOException, InterruptedException {
         Task task = new Task("FindMe", "Desc", Duration.ofMinutes(20), LocalDateTime.now());
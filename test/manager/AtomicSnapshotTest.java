@@ -0,0 +1,132 @@
+package manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicSnapshotTest {
+    private Path filePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = Files.createTempFile("task_manager_atomic", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(filePath);
+        Files.deleteIfExists(filePath.resolveSibling(filePath.getFileName() + ".tmp"));
+    }
+
+    @Test
+    void shouldKeepPreviousSnapshotWhenWriteIsKilledAtRandomOffset() throws IOException {
+        Random random = new Random(7);
+        CrashingManager manager = new CrashingManager(filePath);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < 20; i++) {
+            manager.createSubTask(new SubTask("Sub " + i, "Desc", Duration.ofMinutes(30),
+                    LocalDateTime.of(2025, 5, 2, 0, 0).plusHours(i), epic.getId()));
+        }
+        int fullSize = (int) Files.size(filePath);
+
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String before = Files.readString(filePath);
+            List<SubTask> subtasksBefore = FileBackedTaskManager.loadFromFile(filePath).getAllSubTasks();
+
+            manager.failAfterBytes = random.nextInt(fullSize + fullSize / 2);
+            boolean crashed;
+            try {
+                manager.createTask(new Task("Task " + attempt, "Desc", Duration.ofMinutes(1), null));
+                crashed = false;
+            } catch (ManagerSaveException e) {
+                crashed = true;
+            }
+            manager.failAfterBytes = -1;
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath);
+            assertEquals(subtasksBefore, loaded.getAllSubTasks());
+            if (crashed) {
+                assertEquals(before, Files.readString(filePath), "Прерванная запись не должна портить снимок");
+            } else {
+                assertEquals(manager.getAllTasks().size(), loaded.getAllTasks().size());
+            }
+            fullSize = (int) Files.size(filePath);
+        }
+    }
+
+    @Test
+    void shouldRejectSnapshotWithWrongChecksum() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath);
+        manager.createEpic(new Epic("Epic", "Desc"));
+
+        String content = Files.readString(filePath);
+        assertTrue(content.contains("#crc32,"));
+        Files.writeString(filePath, content.replace("Epic,NEW", "Epic,DONE"), StandardCharsets.UTF_8);
+
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(filePath));
+    }
+
+    @Test
+    void shouldRejectSnapshotTruncatedBeforeChecksum() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        for (int i = 0; i < 5; i++) {
+            manager.createSubTask(new SubTask("Sub " + i, "Desc", epic.getId()));
+        }
+        String content = Files.readString(filePath);
+        assertTrue(content.startsWith(FileBackedTaskManager.FORMAT_PREFIX));
+
+        for (int cut : new int[]{content.lastIndexOf("#crc32,"), content.indexOf("Sub 3")}) {
+            Files.writeString(filePath, content.substring(0, cut), StandardCharsets.UTF_8);
+            assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(filePath),
+                    "Обрезанный снимок не должен загружаться");
+        }
+
+        // файл без строки формата — старый, контрольной суммы в нём может не быть
+        String legacy = content.substring(content.indexOf('\n') + 1, content.lastIndexOf("#crc32,"));
+        Files.writeString(filePath, legacy, StandardCharsets.UTF_8);
+        assertEquals(5, FileBackedTaskManager.loadFromFile(filePath).getAllSubTasks().size());
+    }
+
+    private static class CrashingManager extends FileBackedTaskManager {
+        private int failAfterBytes = -1;
+
+        CrashingManager(Path filePath) {
+            super(filePath);
+        }
+
+        @Override
+        protected OutputStream wrapSnapshotStream(OutputStream out) {
+            if (failAfterBytes < 0) {
+                return out;
+            }
+            return new FilterOutputStream(out) {
+                private int written;
+
+                @Override
+                public void write(int b) throws IOException {
+                    if (written++ >= failAfterBytes) {
+                        throw new IOException("Имитация сбоя на байте " + failAfterBytes);
+                    }
+                    super.write(b);
+                }
+            };
+        }
+    }
+}
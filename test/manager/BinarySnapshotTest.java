@@ -0,0 +1,199 @@
+package manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+import task.TaskType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+    private static final StorageSettings BINARY = StorageSettings.defaults()
+            .withSnapshotFormat(SnapshotFormat.BINARY);
+
+    private Path filePath;
+    private Path binaryPath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = Files.createTempFile("task_manager_binary", ".csv");
+        binaryPath = Files.createTempFile("task_manager_binary", ".bin");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(filePath);
+        Files.deleteIfExists(binaryPath);
+    }
+
+    private static void fill(TaskManager manager) {
+        manager.createTask(new Task("Задача с пробелами", "Описание", Duration.ofMinutes(45),
+                LocalDateTime.of(2025, 5, 1, 10, 0)));
+        Task precise = manager.createTask(new Task("Точная", "Секунды", Duration.ofMinutes(5),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 30, 123_456_789)));
+        precise.setStatus(TaskStatus.IN_PROGRESS);
+        manager.updateTask(precise);
+        manager.createTask(new Task("Без времени", "Без даты", Duration.ofMinutes(10), null));
+
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание эпика"));
+        manager.createSubTask(new SubTask("Sub 1", "Desc", TaskStatus.DONE, Duration.ofMinutes(30),
+                LocalDateTime.of(2025, 5, 2, 9, 0), epic.getId()));
+        manager.createSubTask(new SubTask("Sub 2", "Desc", TaskStatus.NEW, Duration.ofMinutes(90),
+                LocalDateTime.of(2025, 5, 2, 12, 0), epic.getId()));
+        manager.createEpic(new Epic("Пустой эпик", "Desc"));
+
+        manager.getSubtask(epic.getId() + 2);
+        manager.getTask(1);
+        manager.getEpic(epic.getId());
+    }
+
+    private static void assertSameBoard(TaskManager expected, TaskManager actual) {
+        assertSameTasks(expected.getAllTasks(), actual.getAllTasks());
+        assertSameTasks(expected.getAllEpics(), actual.getAllEpics());
+        assertSameTasks(expected.getAllSubTasks(), actual.getAllSubTasks());
+        assertEquals(expected.getHistory().stream().map(Task::getId).toList(),
+                actual.getHistory().stream().map(Task::getId).toList());
+    }
+
+    private static void assertSameTasks(List<? extends Task> expected, List<? extends Task> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Task e = expected.get(i);
+            Task a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getDescription(), a.getDescription());
+            assertEquals(e.getStatus(), a.getStatus());
+            assertEquals(e.getStartTime(), a.getStartTime());
+            assertEquals(e.getEndTime(), a.getEndTime());
+            if (e instanceof SubTask) {
+                assertEquals(((SubTask) e).getEpicId(), ((SubTask) a).getEpicId());
+            }
+        }
+    }
+
+    @Test
+    void shouldRoundTripBoardThroughBinarySnapshot() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(binaryPath, BINARY);
+        fill(manager);
+        manager.flush();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(binaryPath, BINARY);
+        assertSameBoard(manager, loaded);
+
+        Task next = loaded.createTask(new Task("Новая", "Desc", Duration.ofMinutes(1), null));
+        assertEquals(8, next.getId(), "Счётчик id должен продолжаться после загрузки");
+    }
+
+    @Test
+    void shouldDetectFormatRegardlessOfSettings() throws IOException {
+        FileBackedTaskManager binary = new FileBackedTaskManager(binaryPath, BINARY);
+        fill(binary);
+        binary.flush();
+        assertEquals('K', Files.readAllBytes(binaryPath)[0]);
+
+        // Менеджер с настройками CSV открывает двоичный снимок и дальше пишет CSV
+        FileBackedTaskManager csv = FileBackedTaskManager.loadFromFile(binaryPath);
+        assertSameBoard(binary, csv);
+        csv.deleteTask(3);
+        assertTrue(Files.readString(binaryPath).startsWith(FileBackedTaskManager.FORMAT_PREFIX));
+        assertSameBoard(csv, FileBackedTaskManager.loadFromFile(binaryPath, BINARY));
+    }
+
+    @Test
+    void shouldConvertCsvSnapshotToSmallerBinary() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath);
+        fill(manager);
+        for (int i = 0; i < 200; i++) {
+            manager.createTask(new Task("Task " + i, "Desc " + i, Duration.ofMinutes(15),
+                    LocalDateTime.of(2026, 1, 1, 0, 0).plusMinutes(15L * i)));
+        }
+        manager.flush();
+
+        FileBackedTaskManager.convertSnapshot(filePath, binaryPath, SnapshotFormat.BINARY);
+
+        assertTrue(Files.size(binaryPath) < Files.size(filePath) / 2,
+                "Двоичный снимок должен быть заметно меньше CSV");
+        assertSameBoard(manager, FileBackedTaskManager.loadFromFile(binaryPath));
+
+        FileBackedTaskManager.convertSnapshot(binaryPath, binaryPath, SnapshotFormat.CSV);
+        assertEquals(Files.readString(filePath), Files.readString(binaryPath));
+    }
+
+    @Test
+    void shouldRejectCorruptedBinarySnapshot() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(binaryPath, BINARY);
+        fill(manager);
+
+        byte[] bytes = Files.readAllBytes(binaryPath);
+        bytes[bytes.length / 2] ^= 0x10;
+        Files.write(binaryPath, bytes);
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(binaryPath, BINARY));
+
+        byte[] truncated = new byte[8];
+        System.arraycopy(Files.readAllBytes(binaryPath), 0, truncated, 0, truncated.length);
+        Files.write(binaryPath, truncated);
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(binaryPath, BINARY));
+    }
+
+    @Test
+    void shouldResolveTypesAndStatusesByStoredNames() throws IOException {
+        // словарь в обратном порядке: коды не совпадают с ordinal текущих констант
+        Files.write(binaryPath, snapshotWithOneTask(2, 2, 1,
+                new String[]{"SUBTASK", "EPIC", "TASK"}, new String[]{"DONE", "IN_PROGRESS", "NEW"}));
+        List<Task> parsed = new ArrayList<>();
+        MappedSnapshotReader.read(binaryPath, parsed::add);
+        assertEquals(1, parsed.size());
+        assertEquals(TaskType.TASK, parsed.get(0).getType());
+        assertEquals(TaskStatus.DONE, parsed.get(0).getStatus());
+
+        // версия 1 без словаря: коды — ordinal
+        Files.write(binaryPath, snapshotWithOneTask(1, 0, TaskStatus.IN_PROGRESS.ordinal() + 1, null, null));
+        parsed.clear();
+        MappedSnapshotReader.read(binaryPath, parsed::add);
+        assertEquals(TaskStatus.IN_PROGRESS, parsed.get(0).getStatus());
+
+        Files.write(binaryPath, snapshotWithOneTask(2, 0, 1, new String[]{"TASK"}, new String[]{"ARCHIVED"}));
+        assertThrows(ManagerSaveException.class, () -> MappedSnapshotReader.read(binaryPath, parsed::add));
+    }
+
+    private static byte[] snapshotWithOneTask(int version, int typeCode, int statusCode,
+                                              String[] types, String[] statuses) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(BinarySnapshotCodec.MAGIC);
+        out.write(version);
+        if (types != null) {
+            for (String[] names : new String[][]{types, statuses}) {
+                out.write(names.length);
+                for (String name : names) {
+                    out.write(name.length() + 1);
+                    out.writeBytes(name.getBytes(StandardCharsets.US_ASCII));
+                }
+            }
+        }
+        // одна задача: тип, статус, id 5, имя "A", описание "B", без времени; пустая история
+        out.writeBytes(new byte[]{1, (byte) typeCode, (byte) statusCode, 5, 2, 'A', 2, 'B', 0, 0, 0});
+        CRC32 crc = new CRC32();
+        crc.update(out.toByteArray());
+        int checksum = (int) crc.getValue();
+        out.writeBytes(ByteBuffer.allocate(Integer.BYTES).putInt(checksum).array());
+        return out.toByteArray();
+    }
+}
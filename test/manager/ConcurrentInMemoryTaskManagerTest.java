@@ -0,0 +1,464 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentInMemoryTaskManagerTest extends InMemoryTaskManagerTest {
+
+    @Override
+    protected InMemoryTaskManager createManager() {
+        return new ConcurrentInMemoryTaskManager();
+    }
+
+    @Test
+    void shouldKeepInvariantsUnderConcurrentWritersAndReaders() throws InterruptedException {
+        ConcurrentTaskManagerTest.runStress(createManager());
+        ConcurrentTaskManagerTest.runStress(new ConcurrentInMemoryTaskManager(1));
+    }
+
+    @Test
+    void shouldIssueSequentialIdsWithinOneThread() {
+        IdAllocator allocator = new IdAllocator(1, 4);
+        for (int expected = 1; expected <= 10; expected++) {
+            assertEquals(expected, allocator.next());
+        }
+        assertThrows(IllegalArgumentException.class, () -> new IdAllocator(1, 0));
+    }
+
+    @Test
+    void shouldIssueUniqueIdsAcrossThreads() throws InterruptedException {
+        IdAllocator allocator = new IdAllocator(1, 8);
+        ConcurrentLinkedQueue<Integer> issued = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1_000; i++) {
+                    issued.add(allocator.next());
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(8_000, issued.size());
+        assertEquals(8_000, new HashSet<>(issued).size(), "id не должны повторяться");
+    }
+
+    @Test
+    void shouldNotLoseIdBlocksWithShortLivedThreads() throws InterruptedException {
+        IdAllocator allocator = new IdAllocator(1, 32);
+        Set<Integer> issued = Collections.synchronizedSet(new HashSet<>());
+        // поток на запрос: каждый поток берёт один id и завершается
+        for (int i = 0; i < 1_000; i++) {
+            Thread thread = new Thread(() -> issued.add(allocator.next()));
+            thread.start();
+            thread.join();
+        }
+        assertEquals(1_000, issued.size());
+        int maxId = issued.stream().mapToInt(Integer::intValue).max().orElseThrow();
+        assertTrue(maxId <= 1_000 + IdAllocator.STRIPES * 31,
+                "Неиспользованные id ограничены числом полос, а не потоков: " + maxId);
+    }
+
+    @Test
+    void shouldCreateEpicsConcurrentlyWithUniqueIds() throws InterruptedException {
+        ConcurrentInMemoryTaskManager shared = new ConcurrentInMemoryTaskManager();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    Epic epic = shared.createEpic(new Epic("Epic", "Desc"));
+                    shared.getEpic(epic.getId()).orElseThrow();
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Epic> epics = shared.getAllEpics();
+        Set<Integer> ids = new HashSet<>();
+        epics.forEach(e -> assertTrue(ids.add(e.getId())));
+        assertEquals(2_000, ids.size());
+        assertEquals(2_000, shared.getHistory().size());
+    }
+
+    // Эпик, пересчёт которого «зависает», пока тест его не отпустит
+    private static class BlockingManager extends ConcurrentInMemoryTaskManager {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile int slowEpicId = -1;
+
+        @Override
+        protected void updateEpicStatus(int epicId) {
+            if (epicId == slowEpicId) {
+                entered.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.updateEpicStatus(epicId);
+        }
+    }
+
+    @Test
+    void shouldUpdateSubtasksOfDifferentEpicsInParallel() throws Exception {
+        BlockingManager shared = new BlockingManager();
+        Epic slow = shared.createEpic(new Epic("Slow", "Desc"));
+        Epic fast = shared.createEpic(new Epic("Fast", "Desc"));
+        assertNotEquals(ConcurrentInMemoryTaskManager.stripeOf(slow.getId()),
+                ConcurrentInMemoryTaskManager.stripeOf(fast.getId()));
+        LocalDateTime start = LocalDateTime.of(2031, 1, 1, 10, 0);
+        SubTask slowSub = shared.createSubTask(new SubTask("S", "Desc", Duration.ofMinutes(30), start, slow.getId()));
+        SubTask fastSub = shared.createSubTask(new SubTask("F", "Desc", Duration.ofMinutes(30),
+                start.plusHours(1), fast.getId()));
+        shared.slowEpicId = slow.getId();
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            slowSub.setStatus(TaskStatus.DONE);
+            Future<?> blocked = pool.submit(() -> shared.updateSubTask(slowSub));
+            assertTrue(shared.entered.await(30, TimeUnit.SECONDS));
+
+            // эпик slow занят, но подзадачи другого эпика меняются и создаются без ожидания
+            Future<?> other = pool.submit(() -> {
+                fastSub.setStatus(TaskStatus.IN_PROGRESS);
+                shared.updateSubTask(fastSub);
+                shared.createSubTask(new SubTask("F2", "Desc", Duration.ofMinutes(30),
+                        start.plusHours(2), fast.getId()));
+                shared.deleteSubtask(fastSub.getId());
+            });
+            other.get(10, TimeUnit.SECONDS);
+            assertEquals(TaskStatus.NEW, shared.getEpic(fast.getId()).orElseThrow().getStatus());
+            assertFalse(blocked.isDone());
+
+            shared.release.countDown();
+            blocked.get(10, TimeUnit.SECONDS);
+            assertEquals(TaskStatus.DONE, shared.getEpic(slow.getId()).orElseThrow().getStatus());
+        } finally {
+            shared.release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldNotDeadlockWhenMovingSubtasksBetweenEpics() throws Exception {
+        ConcurrentInMemoryTaskManager shared = new ConcurrentInMemoryTaskManager();
+        Epic left = shared.createEpic(new Epic("Left", "Desc"));
+        Epic right = shared.createEpic(new Epic("Right", "Desc"));
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    LocalDateTime slot = LocalDateTime.of(2032, 1, 1, 0, 0).plusDays(10L * thread);
+                    for (int i = 0; i < 300; i++) {
+                        int from = (i + thread) % 2 == 0 ? left.getId() : right.getId();
+                        int to = from == left.getId() ? right.getId() : left.getId();
+                        SubTask sub = shared.createSubTask(new SubTask("Sub", "Desc", TaskStatus.NEW,
+                                Duration.ofMinutes(10), slot.plusMinutes(15L * i), from));
+                        sub.setEpicId(to);
+                        sub.setStatus(TaskStatus.DONE);
+                        try {
+                            shared.updateSubTask(sub);
+                        } catch (IllegalArgumentException e) {
+                            // подзадачу уже удалил deleteAllSubtasks из другого потока
+                            continue;
+                        }
+                        if (i % 50 == 49) {
+                            shared.deleteAllSubtasks();
+                        } else if (i % 3 == 0) {
+                            shared.deleteSubtask(sub.getId());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (Epic epic : List.of(left, right)) {
+            List<SubTask> subs = shared.getSubtasksForEpic(epic.getId());
+            assertEquals(subs.size(), shared.getEpic(epic.getId()).orElseThrow().getSubtaskIds().size());
+            subs.forEach(sub -> assertEquals(epic.getId(), sub.getEpicId()));
+            assertEquals(subs.isEmpty() ? TaskStatus.NEW : TaskStatus.DONE, epic.getStatus());
+        }
+    }
+
+    // Менеджер, в котором добавление задачи «Slow» в порядок по времени зависает под timeLock
+    private static class TimeBlockingManager extends ConcurrentInMemoryTaskManager {
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        protected void addPrioritized(Task task) {
+            if ("Slow".equals(task.getName())) {
+                entered.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.addPrioritized(task);
+        }
+    }
+
+    @Test
+    void shouldChangeTasksWithoutTimeWhileTimeLockIsHeld() throws Exception {
+        TimeBlockingManager shared = new TimeBlockingManager();
+        Task untimed = shared.createTask(new Task("Untimed", "Desc", Duration.ZERO, null));
+        LocalDateTime start = LocalDateTime.of(2032, 1, 1, 10, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> blocked = pool.submit(() -> shared.createTask(new Task("Slow", "Desc", Duration.ofMinutes(30), start)));
+            assertTrue(shared.entered.await(30, TimeUnit.SECONDS));
+
+            Future<?> other = pool.submit(() -> {
+                Task changed = untimed.copy();
+                changed.setStatus(TaskStatus.DONE);
+                shared.updateTask(changed, 1);
+                Task extra = shared.createTask(new Task("Extra", "Desc", Duration.ZERO, null));
+                shared.deleteTask(extra.getId());
+            });
+            other.get(10, TimeUnit.SECONDS);
+            assertEquals(TaskStatus.DONE, shared.getTask(untimed.getId()).orElseThrow().getStatus());
+
+            // задаче со временем timeLock нужен — она ждёт
+            Future<?> timed = pool.submit(() -> shared.createTask(new Task("Timed", "Desc",
+                    Duration.ofMinutes(30), start.plusHours(1))));
+            assertThrows(TimeoutException.class, () -> timed.get(200, TimeUnit.MILLISECONDS));
+            assertFalse(blocked.isDone());
+
+            shared.release.countDown();
+            blocked.get(10, TimeUnit.SECONDS);
+            timed.get(10, TimeUnit.SECONDS);
+            assertEquals(3, shared.getPrioritizedTasks().size());
+        } finally {
+            shared.release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldSerializeUpdatesOfOneTask() throws InterruptedException {
+        ConcurrentInMemoryTaskManager shared = new ConcurrentInMemoryTaskManager();
+        Task untimed = shared.createTask(new Task("Untimed", "Desc", Duration.ZERO, null));
+        Task timed = shared.createTask(new Task("Timed", "Desc", Duration.ofMinutes(30),
+                LocalDateTime.of(2032, 2, 1, 10, 0)));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 500; i++) {
+                    shared.updateTask(untimed.copy());
+                    Task moved = timed.copy();
+                    moved.setStartTime(LocalDateTime.of(2032, 2, 1, 10, 0).plusHours(thread));
+                    shared.updateTask(moved);
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1 + 2_000, shared.getTask(untimed.getId()).orElseThrow().getVersion());
+        Task stored = shared.getTask(timed.getId()).orElseThrow();
+        assertEquals(1 + 2_000, stored.getVersion());
+        List<Task> prioritized = shared.getPrioritizedTasks();
+        assertEquals(2, prioritized.size());
+        assertEquals(stored.getStartTime(), prioritized.get(0).getStartTime(),
+                "Порядок по времени соответствует сохранённой задаче");
+    }
+
+    // Эпик, полученный по id, — копия: писатели меняют хранимый эпик, не задевая прочитанный
+    @Test
+    void shouldReadEpicByIdWhileItsSubtasksChange() throws Exception {
+        ConcurrentInMemoryTaskManager shared = new ConcurrentInMemoryTaskManager();
+        Epic epic = shared.createEpic(new Epic("Epic", "Desc"));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        Future<?> writer = pool.submit(() -> {
+            try {
+                for (int i = 0; i < 2_000; i++) {
+                    SubTask sub = shared.createSubTask(new SubTask("Sub " + i, "Desc", TaskStatus.DONE,
+                            Duration.ofMinutes(10), LocalDateTime.of(2033, 1, 1, 0, 0).plusHours(i), epic.getId()));
+                    if (i % 2 == 0) {
+                        shared.deleteSubtask(sub.getId());
+                    }
+                }
+            } finally {
+                done.set(true);
+            }
+            return null;
+        });
+        Future<Integer> reader = pool.submit(() -> {
+            int reads = 0;
+            while (!done.get()) {
+                Epic read = shared.getEpic(epic.getId()).orElseThrow();
+                List<Integer> ids = new ArrayList<>(read.getSubtaskIds());
+                for (Task viewed : shared.getHistory()) {
+                    assertNotNull(viewed.getStatus());
+                }
+                assertEquals(ids, read.getSubtaskIds(), "Прочитанный эпик не меняется после чтения");
+                assertEquals(ids.isEmpty() ? TaskStatus.NEW : TaskStatus.DONE, read.getStatus(),
+                        "Список подзадач и статус эпика читаются согласованно");
+                reads++;
+            }
+            return reads;
+        });
+        try {
+            writer.get(30, TimeUnit.SECONDS);
+            assertTrue(reader.get(30, TimeUnit.SECONDS) > 0);
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+
+        assertEquals(1_000, shared.getEpic(epic.getId()).orElseThrow().getSubtaskIds().size());
+    }
+
+    @Test
+    void shouldServeSameSnapshotUntilBoardChanges() {
+        ConcurrentInMemoryTaskManager shared = (ConcurrentInMemoryTaskManager) manager;
+        BoardSnapshot first = shared.snapshot();
+        assertSame(first, shared.snapshot(), "Без изменений срез не пересобирается");
+        assertSame(first.tasks(), shared.getAllTasks());
+        assertThrows(UnsupportedOperationException.class, () -> shared.getAllTasks().clear());
+
+        // изменение только подзадач не копирует заново список задач
+        sub1.setStatus(TaskStatus.DONE);
+        shared.updateSubTask(sub1);
+        BoardSnapshot second = shared.snapshot();
+        assertTrue(second.version() > first.version());
+        assertSame(first.tasks(), second.tasks());
+        assertEquals(TaskStatus.DONE, second.subtasks().get(0).getStatus());
+        assertEquals(TaskStatus.NEW, first.subtasks().get(0).getStatus(), "Старый срез не меняется");
+
+        // объекты среза — копии: их изменение не влияет на менеджер
+        second.tasks().get(0).setStatus(TaskStatus.DONE);
+        assertEquals(TaskStatus.NEW, shared.getTask(task1.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void shouldReadConsistentSnapshotsWhileWritersRun() throws Exception {
+        ConcurrentInMemoryTaskManager shared = new ConcurrentInMemoryTaskManager();
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            epicIds.add(shared.createEpic(new Epic("Epic " + i, "Desc")).getId());
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                int writer = w;
+                writers.add(pool.submit(() -> {
+                    Random random = new Random(writer);
+                    LocalDateTime slot = LocalDateTime.of(2033, 1, 1, 0, 0).plusDays(30L * writer);
+                    List<SubTask> own = new ArrayList<>();
+                    for (int i = 0; i < 400; i++) {
+                        slot = slot.plusHours(1);
+                        if (own.isEmpty() || random.nextInt(3) == 0) {
+                            own.add(shared.createSubTask(new SubTask("S", "Desc", TaskStatus.NEW,
+                                    Duration.ofMinutes(20), slot, epicIds.get(random.nextInt(epicIds.size())))));
+                        } else if (random.nextInt(4) == 0) {
+                            shared.deleteSubtask(own.remove(random.nextInt(own.size())).getId());
+                        } else {
+                            // изменения передаются новым объектом, как это делает HTTP-слой
+                            int index = random.nextInt(own.size());
+                            SubTask changed = own.get(index).copy();
+                            changed.setStatus(TaskStatus.values()[random.nextInt(3)]);
+                            own.set(index, shared.updateSubTask(changed));
+                        }
+                        shared.createTask(new Task("T", "Desc", Duration.ofMinutes(20), slot.plusMinutes(30)));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> readers = new ArrayList<>();
+            for (int r = 0; r < 2; r++) {
+                readers.add(pool.submit(() -> {
+                    while (!done.get()) {
+                        assertConsistent(shared.snapshot());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            done.set(true);
+            for (Future<?> reader : readers) {
+                reader.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+        assertConsistent(shared.snapshot());
+    }
+
+    // Все части среза относятся к одному моменту времени
+    private static void assertConsistent(BoardSnapshot snapshot) {
+        Map<Integer, List<SubTask>> byEpic = new HashMap<>();
+        for (SubTask sub : snapshot.subtasks()) {
+            byEpic.computeIfAbsent(sub.getEpicId(), k -> new ArrayList<>()).add(sub);
+        }
+        for (Epic epic : snapshot.epics()) {
+            List<SubTask> subs = byEpic.getOrDefault(epic.getId(), List.of());
+            assertEquals(subs.stream().map(SubTask::getId).sorted().toList(),
+                    epic.getSubtaskIds().stream().sorted().toList(), "Подзадачи эпика " + epic.getId());
+            TaskStatus expected = subs.stream().allMatch(s -> s.getStatus() == TaskStatus.NEW) ? TaskStatus.NEW
+                    : subs.stream().allMatch(s -> s.getStatus() == TaskStatus.DONE) ? TaskStatus.DONE
+                    : TaskStatus.IN_PROGRESS;
+            assertEquals(expected, epic.getStatus(), "Статус эпика " + epic.getId());
+        }
+        Set<Integer> ids = new HashSet<>();
+        snapshot.tasks().forEach(t -> ids.add(t.getId()));
+        snapshot.subtasks().forEach(t -> ids.add(t.getId()));
+        assertEquals(ids, new HashSet<>(snapshot.prioritized().stream().map(Task::getId).toList()));
+    }
+}
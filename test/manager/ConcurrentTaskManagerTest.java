@@ -0,0 +1,205 @@
+package manager;
+
+import exception.TaskIntersectionException;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final LocalDateTime BASE = LocalDateTime.of(2030, 1, 1, 0, 0);
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int OPERATIONS = 400;
+
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager(new InMemoryTaskManager());
+    }
+
+    @Test
+    void shouldReturnCopiesThatDoNotChangeManagerState() {
+        Task fetched = manager.getTask(task1.getId()).orElseThrow();
+        fetched.setStatus(TaskStatus.DONE);
+        assertEquals(TaskStatus.NEW, manager.getTask(task1.getId()).orElseThrow().getStatus());
+
+        Epic listed = manager.getAllEpics().get(0);
+        listed.getSubtaskIds().clear();
+        assertEquals(2, manager.getEpic(epic.getId()).orElseThrow().getSubtaskIds().size());
+    }
+
+    @Test
+    void shouldKeepInvariantsUnderConcurrentWritersAndReaders() throws InterruptedException {
+        runStress(createManager());
+    }
+
+    // Общая нагрузка для потокобезопасных менеджеров: писатели и читатели одновременно
+    static void runStress(TaskManager shared) throws InterruptedException {
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            epicIds.add(shared.createEpic(new Epic("Epic " + i, "Desc")).getId());
+        }
+
+        Queue<Throwable> errors = new ConcurrentLinkedQueue<>();
+        AtomicInteger liveTasks = new AtomicInteger();
+        AtomicInteger liveSubtasks = new AtomicInteger();
+        AtomicInteger contestedWinners = new AtomicInteger();
+        AtomicBoolean writersDone = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersFinished = new CountDownLatch(WRITERS);
+        ExecutorService pool = Executors.newFixedThreadPool(WRITERS + READERS);
+
+        for (int w = 0; w < WRITERS; w++) {
+            int writer = w;
+            pool.submit(() -> guarded(errors, () -> {
+                try {
+                    start.await();
+                    runWriter(shared, writer, epicIds, liveTasks, liveSubtasks, contestedWinners);
+                } finally {
+                    writersFinished.countDown();
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            pool.submit(() -> guarded(errors, () -> {
+                start.await();
+                while (!writersDone.get()) {
+                    checkReadInvariants(shared, epicIds);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        // читатели работают, пока писатели не закончат
+        assertTrue(writersFinished.await(60, TimeUnit.SECONDS), "Писатели не завершились вовремя");
+        writersDone.set(true);
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertTrue(errors.isEmpty(), "Ошибки в потоках: " + errors);
+        assertEquals(1, contestedWinners.get(), "Ровно один поток должен занять общий интервал");
+        assertEquals(liveTasks.get() + 1, shared.getAllTasks().size());
+        assertEquals(liveSubtasks.get(), shared.getAllSubTasks().size());
+        checkReadInvariants(shared, epicIds);
+        checkFinalInvariants(shared, epicIds);
+    }
+
+    private static void runWriter(TaskManager manager, int writer, List<Integer> epicIds,
+                                  AtomicInteger liveTasks, AtomicInteger liveSubtasks,
+                                  AtomicInteger contestedWinners) {
+        Random random = new Random(writer);
+        List<Integer> ownTasks = new ArrayList<>();
+        List<SubTask> ownSubtasks = new ArrayList<>();
+        // у каждого писателя свой диапазон времени, поэтому пересечений между ними нет
+        LocalDateTime slot = BASE.plusDays(100L * (writer + 1));
+
+        try {
+            manager.createTask(new Task("Contested", "Desc", Duration.ofMinutes(30), BASE));
+            contestedWinners.incrementAndGet();
+        } catch (TaskIntersectionException ignored) {
+            // интервал уже занят другим потоком
+        }
+
+        for (int op = 0; op < OPERATIONS; op++) {
+            slot = slot.plusMinutes(60);
+            int action = random.nextInt(10);
+            if (action < 4) {
+                Task task = manager.createTask(new Task("T" + writer, "Desc", Duration.ofMinutes(30), slot));
+                ownTasks.add(task.getId());
+                liveTasks.incrementAndGet();
+            } else if (action < 7) {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                ownSubtasks.add(manager.createSubTask(new SubTask("S" + writer, "Desc", TaskStatus.NEW,
+                        Duration.ofMinutes(30), slot, epicId)));
+                liveSubtasks.incrementAndGet();
+            } else if (action < 9 && !ownSubtasks.isEmpty()) {
+                int index = random.nextInt(ownSubtasks.size());
+                SubTask changed = ownSubtasks.get(index).copy();
+                changed.setStatus(TaskStatus.values()[random.nextInt(3)]);
+                ownSubtasks.set(index, manager.updateSubTask(changed));
+            } else if (!ownTasks.isEmpty()) {
+                manager.deleteTask(ownTasks.remove(ownTasks.size() - 1));
+                liveTasks.decrementAndGet();
+            }
+        }
+    }
+
+    private static void checkReadInvariants(TaskManager manager, List<Integer> epicIds) {
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        for (int i = 0; i + 1 < prioritized.size(); i++) {
+            Task current = prioritized.get(i);
+            Task next = prioritized.get(i + 1);
+            if (current.getStartTime() != null && next.getStartTime() != null) {
+                assertFalse(current.getStartTime().isAfter(next.getStartTime()), "Нарушен порядок");
+                assertFalse(current.getEndTime().isAfter(next.getStartTime()), "Пересечение интервалов");
+            }
+        }
+
+        Set<Integer> ids = new HashSet<>();
+        for (Task task : manager.getAllTasks()) {
+            assertTrue(ids.add(task.getId()), "Повторный id " + task.getId());
+        }
+
+        int epicId = epicIds.get(ids.size() % epicIds.size());
+        for (SubTask sub : manager.getSubtasksForEpic(epicId)) {
+            assertEquals(epicId, sub.getEpicId());
+        }
+        assertTrue(manager.getEpic(epicId).isPresent());
+    }
+
+    private static void checkFinalInvariants(TaskManager manager, List<Integer> epicIds) {
+        Set<Integer> ids = new HashSet<>();
+        manager.getAllTasks().forEach(t -> assertTrue(ids.add(t.getId())));
+        manager.getAllEpics().forEach(t -> assertTrue(ids.add(t.getId())));
+        manager.getAllSubTasks().forEach(t -> assertTrue(ids.add(t.getId())));
+
+        for (int epicId : epicIds) {
+            Epic epic = manager.getEpic(epicId).orElseThrow();
+            List<SubTask> subs = manager.getSubtasksForEpic(epicId);
+            assertEquals(subs.size(), epic.getSubtaskIds().size());
+
+            TaskStatus expected;
+            if (subs.isEmpty() || subs.stream().allMatch(s -> s.getStatus() == TaskStatus.NEW)) {
+                expected = TaskStatus.NEW;
+            } else if (subs.stream().allMatch(s -> s.getStatus() == TaskStatus.DONE)) {
+                expected = TaskStatus.DONE;
+            } else {
+                expected = TaskStatus.IN_PROGRESS;
+            }
+            assertEquals(expected, epic.getStatus(), "Статус эпика " + epicId);
+        }
+    }
+
+    private interface Action {
+        Void run() throws Exception;
+    }
+
+    private static void guarded(Queue<Throwable> errors, Action action) {
+        try {
+            action.run();
+        } catch (Throwable e) {
+            errors.add(e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpicAggregateTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    @Test
+    void shouldMatchFullRecalculationAfterEachChange() {
+        Random random = new Random(42);
+        EpicAggregate aggregate = new EpicAggregate();
+        Map<Integer, SubTask> model = new HashMap<>();
+
+        for (int step = 0; step < 2_000; step++) {
+            int id = 1 + random.nextInt(50);
+            if (random.nextInt(4) == 0) {
+                aggregate.remove(id);
+                model.remove(id);
+            } else {
+                SubTask sub = randomSubtask(random, id);
+                aggregate.add(sub);
+                model.put(id, sub);
+            }
+
+            Epic actual = new Epic("Epic", "Desc");
+            aggregate.applyTo(actual);
+            Epic expected = recalculate(new ArrayList<>(model.values()));
+
+            assertEquals(expected.getStatus(), actual.getStatus(), "step " + step);
+            assertEquals(expected.getStartTime(), actual.getStartTime(), "step " + step);
+            assertEquals(expected.getEndTime(), actual.getEndTime(), "step " + step);
+            assertEquals(expected.getDuration(), actual.getDuration(), "step " + step);
+        }
+    }
+
+    @Test
+    void shouldUseRecordedValuesWhenSubtaskMutatedInPlace() {
+        EpicAggregate aggregate = new EpicAggregate();
+        SubTask sub = new SubTask("Sub", "Desc", TaskStatus.DONE, Duration.ofMinutes(30), BASE, 1);
+        sub.setId(2);
+        aggregate.add(sub);
+
+        sub.setStatus(TaskStatus.NEW);
+        sub.setStartTime(BASE.plusDays(1));
+        aggregate.add(sub);
+
+        Epic epic = new Epic("Epic", "Desc");
+        aggregate.applyTo(epic);
+        assertEquals(1, aggregate.size());
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertEquals(BASE.plusDays(1), epic.getStartTime());
+    }
+
+    private static SubTask randomSubtask(Random random, int id) {
+        TaskStatus status = TaskStatus.values()[random.nextInt(TaskStatus.values().length)];
+        LocalDateTime start = random.nextInt(5) == 0 ? null : BASE.plusMinutes(random.nextInt(10_000));
+        Duration duration = random.nextInt(5) == 0 ? null : Duration.ofMinutes(random.nextInt(120));
+        SubTask sub = new SubTask("Sub", "Desc", status, duration, start, 1);
+        sub.setId(id);
+        return sub;
+    }
+
+    // Прежний алгоритм полного пересчёта по всем подзадачам эпика
+    private static Epic recalculate(List<SubTask> subtasks) {
+        Epic epic = new Epic("Epic", "Desc");
+        if (subtasks.isEmpty()) {
+            return epic;
+        }
+        boolean allNew = subtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.NEW);
+        boolean allDone = subtasks.stream().allMatch(s -> s.getStatus() == TaskStatus.DONE);
+        epic.setStatus(allDone ? TaskStatus.DONE : allNew ? TaskStatus.NEW : TaskStatus.IN_PROGRESS);
+
+        LocalDateTime start = subtasks.stream().map(SubTask::getStartTime)
+                .filter(Objects::nonNull).min(LocalDateTime::compareTo).orElse(null);
+        LocalDateTime end = subtasks.stream().map(SubTask::getEndTime)
+                .filter(Objects::nonNull).max(LocalDateTime::compareTo).orElse(null);
+        if (start != null && end != null) {
+            epic.setStartTime(start);
+            epic.setDuration(Duration.between(start, end));
+        } else {
+            epic.setDuration(Duration.ZERO);
+        }
+        return epic;
+    }
+}
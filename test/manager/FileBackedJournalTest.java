@@ -0,0 +1,291 @@
+package manager;
+
+import exception.VersionConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileBackedJournalTest {
+    private Path filePath;
+    private Path journalPath;
+    private final StorageSettings settings = StorageSettings.defaults().withMode(PersistenceMode.JOURNAL);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = Files.createTempFile("task_manager_journal", ".csv");
+        journalPath = TaskJournal.pathFor(filePath);
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(filePath);
+        Files.deleteIfExists(journalPath);
+    }
+
+    @Test
+    void shouldRestoreStateFromSnapshotAndJournal() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Task task = manager.createTask(new Task("Task", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 10, 0)));
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        SubTask sub = manager.createSubTask(new SubTask("Sub", "Desc", TaskStatus.DONE,
+                Duration.ofMinutes(45), LocalDateTime.of(2025, 5, 2, 12, 0), epic.getId()));
+        Task removed = manager.createTask(new Task("Removed", "Desc",
+                Duration.ofMinutes(10), LocalDateTime.of(2025, 5, 3, 10, 0)));
+        manager.deleteTask(removed.getId());
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        manager.updateTask(task);
+        manager.getSubtask(sub.getId());
+        manager.getTask(task.getId());
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+
+        assertEquals(List.of(task), loaded.getAllTasks());
+        assertEquals(List.of(sub), loaded.getAllSubTasks());
+        Epic loadedEpic = loaded.getAllEpics().get(0);
+        assertEquals(TaskStatus.DONE, loadedEpic.getStatus());
+        assertEquals(sub.getStartTime(), loadedEpic.getStartTime());
+        assertEquals(List.of(sub.getId(), task.getId()),
+                loaded.getHistory().stream().map(Task::getId).toList());
+
+        Task next = loaded.createTask(new Task("Next", "Desc", Duration.ofMinutes(5), null));
+        assertTrue(next.getId() > removed.getId(), "id удалённых задач не должны переиспользоваться");
+        loaded.close();
+    }
+
+    @Test
+    void shouldKeepVersionsAcrossRestart() {
+        StorageSettings snapshot = StorageSettings.defaults();
+        for (StorageSettings mode : List.of(snapshot, snapshot.withSnapshotFormat(SnapshotFormat.BINARY), settings)) {
+            FileBackedTaskManager manager = new FileBackedTaskManager(filePath, mode);
+            Task task = manager.createTask(new Task("Task", "Desc", Duration.ofMinutes(30), null));
+            Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+            for (int i = 0; i < 3; i++) {
+                manager.updateTask(task);
+            }
+            manager.updateEpic(epic);
+            manager.close();
+
+            for (boolean compacted : new boolean[]{false, true}) {
+                FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, mode);
+                assertEquals(4, loaded.getTask(task.getId()).orElseThrow().getVersion(), mode.getMode().name());
+                assertEquals(2, loaded.getEpic(epic.getId()).orElseThrow().getVersion());
+                if (compacted) {
+                    Task stale = new Task("Stale", "Desc", Duration.ofMinutes(30), null);
+                    stale.setId(task.getId());
+                    assertThrows(VersionConflictException.class, () -> loaded.updateTask(stale, 1),
+                            "Версия, выданная до перезапуска, не должна совпасть с новой");
+                    assertEquals(5, loaded.updateTask(stale, 4).getVersion());
+                }
+                loaded.compact();
+                loaded.close();
+            }
+        }
+    }
+
+    @Test
+    void shouldAppendToJournalWithoutRewritingSnapshot() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        String snapshot = Files.readString(filePath);
+
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.getEpic(epic.getId());
+        manager.deleteAllTasks();
+        manager.close();
+
+        assertEquals(snapshot, Files.readString(filePath), "Снимок не должен перезаписываться на каждую операцию");
+        assertEquals(3, TaskJournal.operations(TaskJournal.readRecords(journalPath)).size());
+    }
+
+    @Test
+    void shouldCompactJournalAfterThreshold() {
+        StorageSettings compacting = settings.withCompactionThreshold(3);
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, compacting);
+        for (int i = 0; i < 7; i++) {
+            manager.createTask(new Task("Task " + i, "Desc",
+                    Duration.ofMinutes(10), LocalDateTime.of(2025, 5, 2, 10, 0).plusHours(i)));
+        }
+        manager.close();
+
+        assertEquals(1, TaskJournal.operations(TaskJournal.readRecords(journalPath)).size());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, compacting);
+        assertEquals(7, loaded.getAllTasks().size());
+        assertEquals(7, loaded.getPrioritizedTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void shouldSkipJournalAlreadyInSnapshotAfterCrashDuringCompaction() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Task moved = manager.createTask(new Task("B", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 12, 0)));
+        moved.setStartTime(LocalDateTime.of(2025, 5, 2, 14, 0));
+        manager.updateTask(moved);
+        Task taken = manager.createTask(new Task("C", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 12, 0)));
+        Epic epic = manager.createEpic(new Epic("E", "Desc"));
+        manager.createSubTask(new SubTask("S", "Desc", Duration.ofMinutes(10),
+                LocalDateTime.of(2025, 5, 3, 10, 0), epic.getId()));
+        manager.deleteEpic(epic.getId());
+        manager.awaitDurability();
+        byte[] journalBeforeCompaction = Files.readAllBytes(journalPath);
+
+        // сбой после записи снимка, но до очистки журнала
+        manager.compact();
+        manager.close();
+        Files.write(journalPath, journalBeforeCompaction);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertEquals(List.of(moved, taken), loaded.getAllTasks());
+        assertEquals(LocalDateTime.of(2025, 5, 2, 14, 0), loaded.getTask(moved.getId()).orElseThrow().getStartTime());
+        assertTrue(loaded.getAllEpics().isEmpty());
+        assertTrue(loaded.getAllSubTasks().isEmpty());
+        loaded.createTask(new Task("After", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2025, 5, 4, 10, 0)));
+        loaded.close();
+
+        assertEquals(3, FileBackedTaskManager.loadFromFile(filePath, settings).getAllTasks().size(),
+                "Устаревший журнал заменён журналом текущего поколения");
+    }
+
+    @Test
+    void shouldRejectJournalNewerThanSnapshot() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        manager.createTask(new Task("Task", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 12, 0)));
+        manager.close();
+        Path backup = Files.createTempFile("task_manager_backup", ".csv");
+        try {
+            Files.copy(filePath, backup, StandardCopyOption.REPLACE_EXISTING);
+            FileBackedTaskManager reopened = FileBackedTaskManager.loadFromFile(filePath, settings);
+            reopened.compact();
+            reopened.close();
+            // снимок подменён более старой копией
+            Files.copy(backup, filePath, StandardCopyOption.REPLACE_EXISTING);
+
+            assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(filePath, settings));
+        } finally {
+            Files.deleteIfExists(backup);
+        }
+    }
+
+    @Test
+    void shouldReplayJournalWrittenBeforeGenerations() throws IOException {
+        FileBackedTaskManager snapshotOnly = new FileBackedTaskManager(filePath);
+        Task task = snapshotOnly.createTask(new Task("Task", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 12, 0)));
+        snapshotOnly.close();
+        task.setTitle("Renamed");
+        Files.writeString(journalPath, TaskJournal.PUT + "," + TaskConversionUtils.taskToCSV(task) + "\n");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertEquals("Renamed", loaded.getTask(task.getId()).orElseThrow().getTitle());
+        loaded.close();
+        assertTrue(TaskJournal.generationOf(TaskJournal.readRecords(journalPath)) > 0,
+                "После загрузки журнал помечен поколением снимка");
+        assertEquals("Renamed", FileBackedTaskManager.loadFromFile(filePath, settings)
+                .getTask(task.getId()).orElseThrow().getTitle());
+    }
+
+    @Test
+    void shouldIgnoreTornLastRecord() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        manager.createEpic(new Epic("Epic", "Desc"));
+        manager.close();
+        Files.writeString(journalPath, "PUT,2,EPIC,Half", StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertEquals(1, loaded.getAllEpics().size());
+        loaded.close();
+    }
+
+    @Test
+    void shouldMergeJournalIntoSnapshotWhenLoadedInSnapshotMode() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        manager.createEpic(new Epic("Epic", "Desc"));
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath);
+        assertEquals(1, loaded.getAllEpics().size());
+        assertFalse(Files.exists(journalPath));
+        assertEquals(1, FileBackedTaskManager.loadFromFile(filePath).getAllEpics().size());
+    }
+
+    @Test
+    void shouldReplayBatchThatSwapsTimes() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Task first = manager.createTask(new Task("First", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 10, 0)));
+        Task second = manager.createTask(new Task("Second", "Desc",
+                Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 11, 0)));
+        Task firstMoved = first.copy();
+        firstMoved.setStartTime(second.getStartTime());
+        Task secondMoved = second.copy();
+        secondMoved.setStartTime(first.getStartTime());
+        manager.applyBatch(List.of(BatchOperation.update(firstMoved), BatchOperation.update(secondMoved)));
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertEquals(LocalDateTime.of(2025, 5, 2, 11, 0), loaded.getTask(first.getId()).orElseThrow().getStartTime());
+        assertEquals(List.of(secondMoved, firstMoved), loaded.getPrioritizedTasks());
+        loaded.close();
+    }
+
+    @Test
+    void shouldDropTornBatchAndKeepJournalUsable() throws IOException {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.applyBatch(List.of(
+                BatchOperation.create(new SubTask("Sub 1", "Desc", Duration.ofMinutes(10),
+                        LocalDateTime.of(2025, 5, 2, 10, 0), epic.getId())),
+                BatchOperation.create(new SubTask("Sub 2", "Desc", Duration.ofMinutes(10),
+                        LocalDateTime.of(2025, 5, 2, 11, 0), epic.getId()))));
+        manager.close();
+        List<String> lines = Files.readAllLines(journalPath);
+        assertTrue(lines.get(lines.size() - 3).startsWith("BATCH,2"), lines.toString());
+        Files.write(journalPath, lines.subList(0, lines.size() - 1));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertTrue(loaded.getAllSubTasks().isEmpty(), "Недописанный пакет не применяется даже частично");
+        loaded.createTask(new Task("After", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2025, 5, 3, 10, 0)));
+        loaded.close();
+
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertEquals(1, reloaded.getAllTasks().size());
+        assertTrue(reloaded.getAllSubTasks().isEmpty());
+        reloaded.close();
+    }
+
+    @Test
+    void shouldRestoreImportFromJournal() {
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = new Epic("Epic", "Desc");
+        epic.setId(42);
+        manager.importAll(List.of(
+                new SubTask("Sub", "Desc", TaskStatus.DONE, Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 10, 0), 42),
+                epic,
+                new Task("Task", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 11, 0))));
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath, settings);
+        assertEquals(manager.getAllSubTasks(), loaded.getAllSubTasks());
+        assertEquals(manager.getAllTasks(), loaded.getAllTasks());
+        assertEquals(TaskStatus.DONE, loaded.getEpic(epic.getId()).orElseThrow().getStatus());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+        loaded.close();
+    }
+}
@@ -7,6 +7,7 @@ import task.Epic;
 import task.SubTask;
 import task.Task;
 import task.TaskStatus;
+import task.TaskType;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -171,6 +172,7 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         manager.deleteAllTasks();
         Task task = manager.createTask(new Task("T", "D", Duration.ofMinutes(15), LocalDateTime.of(2025, 5, 1, 12, 0)));
         manager.getTask(task.getId());
+        manager.flush(); // просмотры сохраняются отложенно
 
         FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(testFilePath);
         List<Task> history = loaded.getHistory();
@@ -218,4 +220,64 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
         Epic loadedEpic = loaded.getEpic(epic.getId()).orElseThrow();
         assertEquals(LocalDateTime.of(2025, 5, 2, 12, 45), loadedEpic.getEndTime());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldSaveBatchOnce() {
+        int[] saves = {0};
+        FileBackedTaskManager counting = new FileBackedTaskManager(testFilePath) {
+            @Override
+            protected void save() {
+                saves[0]++;
+                super.save();
+            }
+        };
+        Epic batchEpic = counting.createEpic(new Epic("Epic", "Desc"));
+        saves[0] = 0;
+
+        counting.applyBatch(List.of(
+                BatchOperation.create(new Task("T1", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2025, 6, 1, 9, 0))),
+                BatchOperation.create(new Task("T2", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2025, 6, 1, 10, 0))),
+                BatchOperation.create(new SubTask("S1", "Desc", Duration.ofMinutes(10),
+                        LocalDateTime.of(2025, 6, 1, 11, 0), batchEpic.getId())),
+                BatchOperation.delete(TaskType.EPIC, 999)));
+
+        assertEquals(1, saves[0]);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(testFilePath);
+        assertEquals(2, loaded.getAllTasks().size());
+        assertEquals(1, loaded.getSubtasksForEpic(batchEpic.getId()).size());
+    }
+
+    @Test
+    void shouldNotSaveFailedBatch() {
+        int[] saves = {0};
+        FileBackedTaskManager failing = new FileBackedTaskManager(testFilePath) {
+            @Override
+            public Task createTask(Task task) {
+                Task created = super.createTask(task);
+                if ("Сбой".equals(task.getName())) {
+                    throw new IllegalStateException("Сбой при создании");
+                }
+                return created;
+            }
+
+            @Override
+            protected void save() {
+                saves[0]++;
+                super.save();
+            }
+        };
+        Epic batchEpic = failing.createEpic(new Epic("Epic", "Desc"));
+        saves[0] = 0;
+
+        assertThrows(IllegalStateException.class, () -> failing.applyBatch(List.of(
+                BatchOperation.create(new Task("T1", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2025, 6, 1, 9, 0))),
+                BatchOperation.delete(TaskType.EPIC, batchEpic.getId()),
+                BatchOperation.create(new Task("Сбой", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2025, 6, 1, 10, 0))))));
+
+        assertEquals(0, saves[0]);
+        assertTrue(failing.getAllTasks().isEmpty());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(testFilePath);
+        assertTrue(loaded.getAllTasks().isEmpty());
+        assertEquals(List.of(batchEpic), loaded.getAllEpics());
+    }
+}
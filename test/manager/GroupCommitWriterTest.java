@@ -0,0 +1,151 @@
+package manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitWriterTest {
+    private Path path;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        path = Files.createTempFile("group_commit", ".journal");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(TaskJournal.pathFor(path));
+    }
+
+    @Test
+    void shouldWriteAllRecordsFromConcurrentWriters() throws Exception {
+        GroupCommitWriter writer = new GroupCommitWriter(path, FsyncPolicy.EVERY_OP, 0);
+        int threads = 8;
+        int perThread = 200;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    long seq = writer.submit((thread + ":" + i + "\n").getBytes(StandardCharsets.UTF_8));
+                    writer.awaitDurable(seq);
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        writer.close();
+
+        List<String> lines = Files.readAllLines(path);
+        assertEquals(threads * perThread, lines.size());
+        assertEquals(threads * perThread, new HashSet<>(lines).size());
+        for (int t = 0; t < threads; t++) {
+            int previous = -1;
+            for (String line : lines) {
+                String[] parts = line.split(":");
+                if (Integer.parseInt(parts[0]) == t) {
+                    int current = Integer.parseInt(parts[1]);
+                    assertTrue(current > previous, "Записи одного потока должны идти по порядку");
+                    previous = current;
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldMakeRecordDurableWithinIntervalForEveryNMs() throws Exception {
+        GroupCommitWriter writer = new GroupCommitWriter(path, FsyncPolicy.EVERY_N_MS, TimeUnit.MILLISECONDS.toNanos(20));
+        long seq = writer.submit("record\n".getBytes(StandardCharsets.UTF_8));
+
+        writer.awaitDurable(seq);
+
+        assertEquals(List.of("record"), Files.readAllLines(path));
+        writer.close();
+    }
+
+    @Test
+    void shouldTruncateAfterPendingRecordsWritten() throws Exception {
+        GroupCommitWriter writer = new GroupCommitWriter(path, FsyncPolicy.OS_DEFAULT, 0);
+        writer.submit("first\n".getBytes(StandardCharsets.UTF_8));
+        writer.truncate();
+        writer.submit("second\n".getBytes(StandardCharsets.UTF_8));
+        writer.close();
+
+        assertEquals(List.of("second"), Files.readAllLines(path));
+    }
+
+    @Test
+    void shouldRejectRecordsAfterClose() throws Exception {
+        GroupCommitWriter writer = new GroupCommitWriter(path, FsyncPolicy.OS_DEFAULT, 0);
+        writer.close();
+        assertThrows(ManagerSaveException.class, () -> writer.submit(new byte[]{'x'}));
+    }
+
+    @Test
+    void shouldExposeJournalDurabilityThroughManager() {
+        StorageSettings settings = StorageSettings.defaults()
+                .withMode(PersistenceMode.JOURNAL)
+                .withFsyncPolicy(FsyncPolicy.EVERY_N_MS)
+                .withFsyncInterval(Duration.ofMillis(10));
+        FileBackedTaskManager manager = new FileBackedTaskManager(path, settings);
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(manager.createEpic(new Epic("Epic " + i, "Desc")).getId());
+        }
+
+        manager.awaitDurability();
+
+        assertEquals(50, TaskJournal.operations(TaskJournal.readRecords(TaskJournal.pathFor(path))).size());
+        assertEquals(ids.size(), FileBackedTaskManager.loadFromFile(path, settings).getAllEpics().size());
+        manager.close();
+    }
+
+    @Test
+    void shouldWaitOnlyForRecordsOfCallingThread() throws InterruptedException {
+        StorageSettings settings = StorageSettings.defaults()
+                .withMode(PersistenceMode.JOURNAL)
+                .withFsyncPolicy(FsyncPolicy.EVERY_N_MS)
+                .withFsyncInterval(Duration.ofMinutes(1));
+        FileBackedTaskManager manager = new FileBackedTaskManager(path, settings);
+        manager.createEpic(new Epic("Epic", "Desc"));
+
+        Thread reader = new Thread(manager::awaitDurability);
+        reader.start();
+        reader.join(5_000);
+
+        assertFalse(reader.isAlive(), "Поток без своих операций не ждёт чужого fsync");
+        manager.close();
+        reader.join();
+    }
+
+    // Запрос, завершившийся во время остановки сервера, ждёт надёжности уже после close()
+    @Test
+    void shouldReturnFromAwaitDurabilityAfterClose() {
+        StorageSettings settings = StorageSettings.defaults()
+                .withMode(PersistenceMode.JOURNAL)
+                .withFsyncPolicy(FsyncPolicy.EVERY_OP);
+        FileBackedTaskManager manager = new FileBackedTaskManager(path, settings);
+        manager.createEpic(new Epic("Epic", "Desc"));
+        manager.close();
+
+        assertDoesNotThrow(manager::awaitDurability);
+        assertEquals(1, FileBackedTaskManager.loadFromFile(path, settings).getAllEpics().size());
+    }
+}
@@ -0,0 +1,135 @@
+package manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.Task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistoryPersistenceTest {
+    private Path filePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = Files.createTempFile("task_manager_history", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(filePath);
+        Files.deleteIfExists(TaskJournal.pathFor(filePath));
+    }
+
+    @Test
+    void shouldNotRewriteSnapshotOnRead() throws IOException {
+        StorageSettings settings = StorageSettings.defaults().withHistoryMaxStaleness(Duration.ofMinutes(10));
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        String snapshot = Files.readString(filePath);
+
+        for (int i = 0; i < 100; i++) {
+            manager.getEpic(epic.getId());
+        }
+
+        assertEquals(snapshot, Files.readString(filePath), "Чтение не должно перезаписывать файл");
+        manager.close();
+        assertEquals(List.of(epic.getId()), idsOf(FileBackedTaskManager.loadFromFile(filePath).getHistory()));
+    }
+
+    @Test
+    void shouldFlushHistoryWithNextMutation() {
+        StorageSettings settings = StorageSettings.defaults().withHistoryMaxStaleness(Duration.ofMinutes(10));
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.getEpic(epic.getId());
+        manager.createEpic(new Epic("Other", "Desc"));
+
+        assertEquals(List.of(epic.getId()), idsOf(FileBackedTaskManager.loadFromFile(filePath).getHistory()));
+    }
+
+    @Test
+    void shouldFlushHistoryInBackgroundWithinMaxStaleness() throws InterruptedException {
+        StorageSettings settings = StorageSettings.defaults().withHistoryMaxStaleness(Duration.ofMillis(50));
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.getEpic(epic.getId());
+
+        List<Integer> persisted = List.of();
+        for (int i = 0; i < 100 && persisted.isEmpty(); i++) {
+            Thread.sleep(20);
+            persisted = idsOf(FileBackedTaskManager.loadFromFile(filePath).getHistory());
+        }
+        assertEquals(List.of(epic.getId()), persisted);
+        manager.close();
+    }
+
+    @Test
+    void shouldRetryFailedBackgroundFlushAndReportFailureOnFlush() throws Exception {
+        StorageSettings settings = StorageSettings.defaults().withHistoryMaxStaleness(Duration.ofMillis(20));
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        // снимок нельзя заменить, пока на его месте непустой каталог
+        Files.delete(filePath);
+        Path blocker = Files.createDirectory(filePath).resolve("blocker");
+        Files.createFile(blocker);
+        try {
+            manager.getEpic(epic.getId());
+            Thread.sleep(200);
+        } finally {
+            Files.delete(blocker);
+            Files.delete(filePath);
+        }
+
+        List<Integer> persisted = List.of();
+        for (int i = 0; i < 150 && persisted.isEmpty(); i++) {
+            Thread.sleep(20);
+            if (Files.exists(filePath)) {
+                persisted = idsOf(FileBackedTaskManager.loadFromFile(filePath).getHistory());
+            }
+        }
+        assertEquals(List.of(epic.getId()), persisted, "Фоновое сохранение повторяется после ошибки");
+        assertThrows(ManagerSaveException.class, manager::flush, "Ошибка фонового сохранения не теряется");
+        manager.flush();
+        manager.close();
+    }
+
+    @Test
+    void shouldDeferViewRecordsInJournalMode() {
+        StorageSettings settings = StorageSettings.defaults()
+                .withMode(PersistenceMode.JOURNAL)
+                .withHistoryMaxStaleness(Duration.ofMinutes(10));
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic first = manager.createEpic(new Epic("First", "Desc"));
+        Epic second = manager.createEpic(new Epic("Second", "Desc"));
+        manager.getEpic(second.getId());
+        manager.getEpic(first.getId());
+        manager.awaitDurability();
+        assertEquals(2, TaskJournal.operations(TaskJournal.readRecords(TaskJournal.pathFor(filePath))).size());
+
+        manager.close();
+        assertEquals(List.of(second.getId(), first.getId()),
+                idsOf(FileBackedTaskManager.loadFromFile(filePath, settings).getHistory()));
+    }
+
+    @Test
+    void shouldPersistEveryReadWithZeroStaleness() {
+        StorageSettings settings = StorageSettings.defaults().withHistoryMaxStaleness(Duration.ZERO);
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath, settings);
+        Epic epic = manager.createEpic(new Epic("Epic", "Desc"));
+        manager.getEpic(epic.getId());
+
+        assertEquals(List.of(epic.getId()), idsOf(FileBackedTaskManager.loadFromFile(filePath).getHistory()));
+    }
+
+    private static List<Integer> idsOf(List<Task> tasks) {
+        return tasks.stream().map(Task::getId).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdOrderedStorageTest {
+
+    @Test
+    void shouldKeepIdsInSyncWithStoredValues() {
+        Random random = new Random(7);
+        IntIdIndex ids = new IntIdIndex();
+        IdOrderedStorage<String> storage = new IdOrderedStorage<>(new HashMap<>(), ids);
+        Map<Integer, String> expected = new TreeMap<>();
+        for (int i = 0; i < 50_000; i++) {
+            int key = random.nextInt(2048) + 1;
+            int op = random.nextInt(10);
+            if (op < 5) {
+                assertEquals(expected.put(key, "v" + i), storage.put(key, "v" + i));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), storage.remove(key));
+            } else if (op == 8) {
+                // удаление через итератор представления тоже убирает id
+                Iterator<Map.Entry<Integer, String>> iterator = storage.entrySet().iterator();
+                if (iterator.hasNext()) {
+                    expected.remove(iterator.next().getKey());
+                    iterator.remove();
+                }
+            } else {
+                assertEquals(expected.get(key), storage.get(key));
+            }
+            assertEquals(expected.size(), storage.size());
+        }
+        assertEquals(new ArrayList<>(expected.keySet()), idsOf(ids));
+        assertEquals(expected, storage);
+
+        storage.clear();
+        assertEquals(0, ids.size());
+    }
+
+    @Test
+    void shouldPageByIdsWithoutSkipsAfterRemoval() {
+        IntIdIndex ids = new IntIdIndex();
+        IdOrderedStorage<Task> storage = new IdOrderedStorage<>(new IntObjectMap<>(), ids);
+        for (int id : List.of(9, 3, 7, 1, 5)) {
+            Task task = new Task("T" + id, "Desc");
+            task.setId(id);
+            storage.put(id, task);
+        }
+        Page<Task> first = Pages.byId(ids, storage, null, 2);
+        assertEquals(List.of(1, 3), first.items().stream().map(Task::getId).toList());
+        storage.remove(5);
+        Page<Task> second = Pages.byId(ids, storage, first.nextCursor(), 2);
+        assertEquals(List.of(7, 9), second.items().stream().map(Task::getId).toList());
+        assertNull(second.nextCursor());
+    }
+
+    // Id, добавленные не по порядку и повторно после удаления, выдаются упорядоченно и по одному разу
+    @Test
+    void shouldKeepIdsOrderedAfterOutOfOrderAddsAndRemovals() {
+        IntIdIndex ids = new IntIdIndex();
+        for (int id : List.of(5, 1, 9, 3, 7)) {
+            ids.add(id);
+        }
+        ids.remove(3);
+        ids.add(3);
+        ids.remove(9);
+        assertEquals(List.of(1, 3, 5, 7), idsOf(ids));
+
+        for (int id = 10; id < 1_000; id++) {
+            ids.add(id);
+        }
+        for (int id = 10; id < 990; id++) {
+            ids.remove(id);
+        }
+        ids.add(0);
+        assertEquals(List.of(0, 1, 3, 5, 7, 990, 991, 992, 993, 994, 995, 996, 997, 998, 999), idsOf(ids));
+        assertEquals(15, ids.size());
+        List<Integer> tail = new ArrayList<>();
+        ids.idsAfter(5).forEachRemaining((int id) -> tail.add(id));
+        assertEquals(List.of(7, 990, 991, 992, 993, 994, 995, 996, 997, 998, 999), tail);
+    }
+
+    private static List<Integer> idsOf(IntIdIndex ids) {
+        List<Integer> result = new ArrayList<>();
+        ids.idsAfter(-1).forEachRemaining((int id) -> result.add(id));
+        return result;
+    }
+}
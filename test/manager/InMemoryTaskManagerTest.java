@@ -1,12 +1,16 @@
 package manager;
 
+import exception.TaskIntersectionException;
 import org.junit.jupiter.api.Test;
 import task.Epic;
 import task.SubTask;
+import task.Task;
 import task.TaskStatus;
+import task.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -276,4 +280,107 @@ public class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager
         assertTrue(manager.getPrioritizedTasks().contains(subtask), "Подзадача без времени должна попадать в приоритезированный список");
     }
 
-}
\ No newline at end of file
+    // Перенос подзадачи в другой эпик должен обновлять оба эпика
+    @Test
+    void shouldMoveSubtaskBetweenEpics() {
+        Epic target = manager.createEpic(new Epic("Target", "desc"));
+        sub1.setStatus(TaskStatus.DONE);
+        sub1.setEpicId(target.getId());
+        manager.updateSubTask(sub1);
+
+        assertEquals(List.of(sub2), manager.getSubtasksForEpic(epic.getId()));
+        assertEquals(List.of(sub1), manager.getSubtasksForEpic(target.getId()));
+        assertFalse(epic.getSubtaskIds().contains(sub1.getId()));
+        assertTrue(target.getSubtaskIds().contains(sub1.getId()));
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+        assertEquals(TaskStatus.DONE, target.getStatus());
+        assertEquals(sub2.getStartTime(), epic.getStartTime());
+    }
+
+    @Test
+    void shouldRejectMovingSubtaskToMissingEpic() {
+        sub1.setEpicId(9999);
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubTask(sub1));
+    }
+
+    // Удаление подзадачи убирает её id из эпика
+    @Test
+    void shouldUnlinkDeletedSubtaskFromEpic() {
+        manager.deleteSubtask(sub1.getId());
+
+        assertFalse(epic.getSubtaskIds().contains(sub1.getId()));
+        assertEquals(List.of(sub2), manager.getSubtasksForEpic(epic.getId()));
+
+        manager.deleteAllSubtasks();
+        assertTrue(epic.getSubtaskIds().isEmpty());
+        assertTrue(manager.getSubtasksForEpic(epic.getId()).isEmpty());
+        assertEquals(TaskStatus.NEW, epic.getStatus());
+    }
+
+    // Замена объекта эпика через updateEpic сохраняет связи с подзадачами
+    @Test
+    void shouldKeepSubtaskLinksWhenEpicReplaced() {
+        Epic replacement = new Epic("Renamed", "desc");
+        replacement.setId(epic.getId());
+        manager.updateEpic(replacement);
+
+        assertEquals(List.of(sub1.getId(), sub2.getId()), replacement.getSubtaskIds());
+        assertEquals(2, manager.getSubtasksForEpic(epic.getId()).size());
+    }
+
+    // Сбой посреди пакета возвращает доску, расписание и историю к состоянию до пакета
+    @Test
+    void shouldRollBackBatchFailedAfterValidation() {
+        InMemoryTaskManager failing = new InMemoryTaskManager() {
+            @Override
+            public Task createTask(Task task) {
+                Task created = super.createTask(task);
+                if ("Сбой".equals(task.getName())) {
+                    throw new IllegalStateException("Сбой при создании");
+                }
+                return created;
+            }
+        };
+        Task task = failing.createTask(new Task("Task", "Desc", Duration.ofMinutes(30),
+                LocalDateTime.of(2025, 5, 2, 10, 0)));
+        Epic oldEpic = failing.createEpic(new Epic("Epic", "Desc"));
+        SubTask first = failing.createSubTask(new SubTask("Sub 1", "desc", Duration.ofMinutes(30),
+                LocalDateTime.of(2025, 5, 2, 12, 0), oldEpic.getId()));
+        SubTask second = failing.createSubTask(new SubTask("Sub 2", "desc", Duration.ofMinutes(45),
+                LocalDateTime.of(2025, 5, 2, 13, 0), oldEpic.getId()));
+        failing.getSubtask(second.getId());
+        failing.getTask(task.getId());
+        List<Task> tasksBefore = failing.getAllTasks();
+        List<Epic> epicsBefore = failing.getAllEpics();
+        List<SubTask> subtasksBefore = failing.getAllSubTasks();
+        List<Task> prioritizedBefore = failing.getPrioritizedTasks();
+        List<Task> historyBefore = failing.getHistory();
+
+        Task moved = task.copy();
+        moved.setStartTime(LocalDateTime.of(2026, 1, 1, 9, 0));
+        SubTask movedSub = first.copy();
+        movedSub.setEpicId(BatchOperation.epicRef(0));
+        movedSub.setStatus(TaskStatus.DONE);
+        assertThrows(IllegalStateException.class, () -> failing.applyBatch(List.of(
+                BatchOperation.create(new Epic("Новый", "Desc")),
+                BatchOperation.update(movedSub),
+                BatchOperation.delete(TaskType.SUBTASK, second.getId()),
+                BatchOperation.update(moved),
+                BatchOperation.create(new Task("Сбой", "Desc", Duration.ofMinutes(30),
+                        LocalDateTime.of(2025, 5, 2, 13, 0))))));
+
+        assertEquals(tasksBefore, failing.getAllTasks());
+        assertEquals(epicsBefore, failing.getAllEpics());
+        assertEquals(subtasksBefore, failing.getAllSubTasks());
+        assertEquals(prioritizedBefore, failing.getPrioritizedTasks());
+        assertEquals(historyBefore, failing.getHistory());
+        assertEquals(1L, failing.getAllTasks().get(0).getVersion());
+        assertEquals(List.of(first.getId(), second.getId()), oldEpic.getSubtaskIds());
+        assertEquals(List.of(first, second), failing.getSubtasksForEpic(oldEpic.getId()));
+        assertEquals(TaskStatus.NEW, oldEpic.getStatus());
+        // прежние интервалы снова заняты, а интервалы пакета свободны
+        assertThrows(TaskIntersectionException.class, () -> failing.createTask(new Task("T", "Desc",
+                Duration.ofMinutes(10), LocalDateTime.of(2025, 5, 2, 13, 10))));
+        failing.createTask(new Task("T", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 1, 1, 9, 0)));
+    }
+}
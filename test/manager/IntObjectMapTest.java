@@ -0,0 +1,78 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntObjectMapTest {
+
+    @Test
+    void shouldBehaveLikeHashMapUnderRandomOperations() {
+        Random random = new Random(42);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // узкий диапазон ключей даёт длинные цепочки и много удалений посреди них
+            int key = random.nextInt(4096) - 16;
+            int op = random.nextInt(10);
+            if (op < 5) {
+                String value = "v" + i;
+                assertEquals(expected.put(key, value), map.put(key, value));
+            } else if (op < 8) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.get(key), map.get(key));
+                assertEquals(expected.containsKey(key), map.containsKey(key));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.keySet(), map.keySet());
+        assertEquals(new ArrayList<>(expected.values()).stream().sorted().toList(),
+                new ArrayList<>(map.values()).stream().sorted().toList());
+    }
+
+    @Test
+    void shouldKeepCollidingKeysReachableAfterRemoval() {
+        IntObjectMap<Integer> map = new IntObjectMap<>();
+        // ключи с одной домашней ячейкой (кратные ёмкости) и перенос цепочки через конец таблицы
+        List<Integer> keys = List.of(16, 32, 48, 15, 31, 47, 64);
+        keys.forEach(k -> map.put(k, k));
+        map.remove(16);
+        map.remove(15);
+        for (int k : keys) {
+            if (k != 16 && k != 15) {
+                assertEquals(k, (int) map.get(k), "Ключ " + k);
+            }
+        }
+        assertEquals(5, map.size());
+    }
+
+    @Test
+    void shouldSupportZeroKeyAndMapViews() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(0, "zero");
+        map.put(1, "one");
+        map.put(2, "two");
+        assertEquals("zero", map.get(0));
+        assertEquals(List.of(0, 1, 2), new ArrayList<>(map.keySet()), "Небольшие id обходятся по возрастанию");
+        assertEquals(List.of("zero", "one", "two"), new ArrayList<>(map.values()));
+
+        map.entrySet().forEach(e -> e.setValue(e.getValue().toUpperCase()));
+        assertEquals("ONE", map.get(Integer.valueOf(1)));
+        assertNull(map.get("1"), "Ключ другого типа не находится");
+        assertEquals("ZERO", map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals("none", map.getOrDefault(7, "none"));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertThrows(NullPointerException.class, () -> map.put(3, null));
+    }
+}
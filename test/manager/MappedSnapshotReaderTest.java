@@ -0,0 +1,137 @@
+package manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedSnapshotReaderTest {
+    private Path filePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = Files.createTempFile("task_manager_mapped", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(filePath);
+    }
+
+    private static FileBackedTaskManager fill(FileBackedTaskManager manager) {
+        Random random = new Random(3);
+        Epic epic = manager.createEpic(new Epic("Эпик", "Описание"));
+        for (int i = 0; i < 100; i++) {
+            LocalDateTime start = LocalDateTime.of(2025, 1, 1, 0, 0)
+                    .plusHours(i).plusSeconds(random.nextInt(3) * 17).plusNanos(random.nextInt(3) * 1_500_000L);
+            if (i % 2 == 0) {
+                manager.createTask(new Task("Задача " + i, "Описание " + i, Duration.ofMinutes(30), start));
+            } else {
+                manager.createSubTask(new SubTask("Подзадача " + i, "Desc", TaskStatus.values()[i % 3],
+                        Duration.ofMinutes(20), start, epic.getId()));
+            }
+        }
+        manager.getTask(2);
+        manager.getEpic(epic.getId());
+        manager.flush();
+        return manager;
+    }
+
+    // Эталон — разбор строк через TaskConversionUtils.taskFromCSV
+    private static List<String> expectedLines(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                break;
+            }
+            if (!line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        lines.remove(0);
+        return lines;
+    }
+
+    @Test
+    void shouldParseSameTasksAsStringParserForAnyWindowSize() throws IOException {
+        fill(new FileBackedTaskManager(filePath));
+        List<String> expected = expectedLines(filePath);
+
+        for (long window : new long[]{1, 7, 64, 4096, MappedInput.DEFAULT_WINDOW_SIZE}) {
+            List<Task> parsed = new ArrayList<>();
+            List<Integer> history = MappedSnapshotReader.read(filePath, parsed::add, window);
+
+            assertEquals(expected.size(), parsed.size(), "window=" + window);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), TaskConversionUtils.taskToCSV(parsed.get(i)), "window=" + window);
+            }
+            assertEquals(List.of(2, 1), history);
+        }
+    }
+
+    @Test
+    void shouldReadBinarySnapshotThroughSmallWindows() {
+        StorageSettings binary = StorageSettings.defaults().withSnapshotFormat(SnapshotFormat.BINARY);
+        FileBackedTaskManager manager = fill(new FileBackedTaskManager(filePath, binary));
+
+        List<Task> parsed = new ArrayList<>();
+        List<Integer> history = MappedSnapshotReader.read(filePath, parsed::add, 5);
+
+        List<Task> expected = new ArrayList<>(manager.getAllTasks());
+        expected.addAll(manager.getAllEpics());
+        expected.addAll(manager.getAllSubTasks());
+        assertEquals(expected.size(), parsed.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(TaskConversionUtils.taskToCSV(expected.get(i)), TaskConversionUtils.taskToCSV(parsed.get(i)));
+        }
+        assertEquals(List.of(2, 1), history);
+    }
+
+    @Test
+    void shouldAcceptLegacyFileWithCrlfAndWithoutChecksum() throws IOException {
+        String content = "id,type,name,status,description,epic,startTime,duration\r\n"
+                + "1,TASK,Task,NEW,Desc,,2025-05-01T10:00,30,лишнее\r\n"
+                + "2,EPIC,Epic,NEW,Desc,,,\r\n"
+                + "3,SUBTASK,Sub,DONE,Desc,2,+10000-01-01T00:00:00,15\r\n"
+                + "\r\n"
+                + "3,1,\r\n";
+        Files.writeString(filePath, content);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(filePath);
+
+        assertEquals(LocalDateTime.of(2025, 5, 1, 10, 0), loaded.getAllTasks().get(0).getStartTime());
+        assertEquals(LocalDateTime.of(10000, 1, 1, 0, 0), loaded.getAllSubTasks().get(0).getStartTime());
+        assertEquals(TaskStatus.DONE, loaded.getAllEpics().get(0).getStatus());
+        assertEquals(List.of(3, 1), loaded.getHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void shouldReportBrokenLineLikeStringParser() throws IOException {
+        Files.writeString(filePath, "id,type,name,status,description,epic,startTime,duration\n"
+                + "1,TASK,Task,UNKNOWN,Desc,,,30\n");
+
+        ManagerSaveException e = assertThrows(ManagerSaveException.class,
+                () -> FileBackedTaskManager.loadFromFile(filePath));
+        assertTrue(e.getMessage().contains("1,TASK,Task,UNKNOWN,Desc,,,30"));
+        assertTrue(e.getCause() instanceof IllegalArgumentException);
+
+        Files.writeString(filePath, "id,type,name,status,description,epic,startTime,duration\n"
+                + "1,SUBTASK,Sub,NEW,Desc,,,30\n");
+        assertThrows(ManagerSaveException.class, () -> FileBackedTaskManager.loadFromFile(filePath));
+    }
+}
@@ -0,0 +1,136 @@
+package manager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import task.Epic;
+import task.SubTask;
+import task.Task;
+import task.TaskStatus;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelSnapshotLoadTest {
+    private static final StorageSettings SEQUENTIAL = StorageSettings.defaults().withLoadParallelism(1);
+    private static final StorageSettings PARALLEL = StorageSettings.defaults().withLoadParallelism(4);
+
+    private Path filePath;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        filePath = Files.createTempFile("task_manager_parallel", ".csv");
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        Files.deleteIfExists(filePath);
+        Files.deleteIfExists(TaskJournal.pathFor(filePath));
+    }
+
+    // Доска из нескольких эпиков с подзадачами вперемешку с задачами
+    private void fillBoard() {
+        Random random = new Random(11);
+        FileBackedTaskManager manager = new FileBackedTaskManager(filePath,
+                StorageSettings.defaults().withMode(PersistenceMode.JOURNAL));
+        List<Integer> epicIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            epicIds.add(manager.createEpic(new Epic("Эпик " + i, "Описание")).getId());
+        }
+        for (int i = 0; i < 1_000; i++) {
+            LocalDateTime start = random.nextInt(5) == 0 ? null : LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(30L * i);
+            if (random.nextBoolean()) {
+                manager.createTask(new Task("Задача " + i, "Desc", Duration.ofMinutes(20), start));
+            } else {
+                int epicId = epicIds.get(random.nextInt(epicIds.size()));
+                manager.createSubTask(new SubTask("Подзадача " + i, "Desc",
+                        TaskStatus.values()[random.nextInt(3)], Duration.ofMinutes(25), start, epicId));
+            }
+        }
+        for (int i = 0; i < 50; i++) {
+            int id = 1 + random.nextInt(1_030);
+            manager.getTask(id);
+            manager.getSubtask(id);
+        }
+        manager.compact();
+        manager.close();
+    }
+
+    private static List<String> csv(List<? extends Task> list) {
+        return list.stream().map(TaskConversionUtils::taskToCSV).toList();
+    }
+
+    @Test
+    void shouldParseChunksInSameOrderAsSequentialReader() {
+        fillBoard();
+        List<Task> expected = new ArrayList<>();
+        List<Integer> expectedHistory = MappedSnapshotReader.read(filePath, expected::add);
+        assertFalse(expectedHistory.isEmpty());
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long chunk : new long[]{1, 17, 256, 4_096}) {
+                List<Task> parsed = new ArrayList<>();
+                List<Integer> history = MappedSnapshotReader.read(filePath, parsed::add,
+                        MappedInput.DEFAULT_WINDOW_SIZE, pool, chunk);
+                assertEquals(csv(expected), csv(parsed), "chunk=" + chunk);
+                assertEquals(expectedHistory, history, "chunk=" + chunk);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void shouldBuildSameBoardAsSequentialLoad() {
+        fillBoard();
+        FileBackedTaskManager sequential = FileBackedTaskManager.loadFromFile(filePath, SEQUENTIAL);
+        FileBackedTaskManager parallel = FileBackedTaskManager.loadFromFile(filePath, PARALLEL, 64);
+
+        assertEquals(csv(sequential.getAllTasks()), csv(parallel.getAllTasks()));
+        assertEquals(csv(sequential.getAllSubTasks()), csv(parallel.getAllSubTasks()));
+        assertEquals(csv(sequential.getAllEpics()), csv(parallel.getAllEpics()));
+        assertEquals(csv(sequential.getPrioritizedTasks()), csv(parallel.getPrioritizedTasks()));
+        assertEquals(csv(sequential.getHistory()), csv(parallel.getHistory()));
+        for (Epic epic : sequential.getAllEpics()) {
+            Epic other = parallel.getAllEpics().stream().filter(e -> e.getId() == epic.getId()).findFirst().orElseThrow();
+            assertEquals(epic.getSubtaskIds(), other.getSubtaskIds());
+            assertEquals(epic.getEndTime(), other.getEndTime());
+            assertEquals(csv(sequential.getSubtasksForEpic(epic.getId())), csv(parallel.getSubtasksForEpic(epic.getId())));
+        }
+
+        // после параллельной загрузки менеджер продолжает работать как обычно
+        Epic epic = parallel.getAllEpics().get(0);
+        SubTask sub = parallel.createSubTask(new SubTask("Новая", "Desc", TaskStatus.DONE,
+                Duration.ofMinutes(5), null, epic.getId()));
+        assertTrue(parallel.getEpic(epic.getId()).orElseThrow().getSubtaskIds().contains(sub.getId()));
+    }
+
+    @Test
+    void shouldReportSameErrorAsSequentialLoad() throws IOException {
+        fillBoard();
+        List<String> lines = new ArrayList<>(Files.readAllLines(filePath));
+        // без строки формата и контрольной суммы файл читается как старый, до первой ошибки разбора
+        lines.remove(lines.size() - 1);
+        lines.remove(0);
+        lines.set(lines.size() / 2, "broken,line");
+        lines.set(lines.size() - 3, "1,TASK,Task,UNKNOWN,Desc,,,30");
+        Files.write(filePath, lines);
+
+        ManagerSaveException sequential = assertThrows(ManagerSaveException.class,
+                () -> FileBackedTaskManager.loadFromFile(filePath, SEQUENTIAL));
+        ManagerSaveException parallel = assertThrows(ManagerSaveException.class,
+                () -> FileBackedTaskManager.loadFromFile(filePath, PARALLEL, 64));
+        assertEquals(sequential.getMessage(), parallel.getMessage());
+        assertTrue(parallel.getMessage().contains("broken,line"));
+    }
+}
@@ -0,0 +1,192 @@
+package manager;
+
+import exception.TaskIntersectionException;
+import org.junit.jupiter.api.Test;
+import task.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskIntervalIndexTest {
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 5, 1, 0, 0);
+
+    // Эталонная проверка — прежняя реализация через Stream API
+    private static boolean streamOverlaps(Iterable<Task> existing, Task task) {
+        List<Task> list = new ArrayList<>();
+        existing.forEach(list::add);
+        return list.stream()
+                .filter(t -> t.getId() != task.getId())
+                .anyMatch(t -> isOverlapping(t, task));
+    }
+
+    private static boolean isOverlapping(Task t1, Task t2) {
+        LocalDateTime start1 = t1.getStartTime();
+        LocalDateTime end1 = t1.getEndTime();
+        LocalDateTime start2 = t2.getStartTime();
+        LocalDateTime end2 = t2.getEndTime();
+        if (start1 == null || end1 == null || start2 == null || end2 == null) {
+            return false;
+        }
+        return start1.isBefore(end2) && start2.isBefore(end1);
+    }
+
+    private static Task randomTask(Random random) {
+        LocalDateTime start = random.nextInt(10) == 0 ? null : BASE.plusMinutes(random.nextInt(5_000));
+        Duration duration = Duration.ofMinutes(random.nextInt(90));
+        return new Task("Task", "Desc", duration, start);
+    }
+
+    @Test
+    void shouldMakeSameDecisionsAsStreamCheckOnRandomWorkload() {
+        for (long seed = 1; seed <= 20; seed++) {
+            Random random = new Random(seed);
+            InMemoryTaskManager manager = new InMemoryTaskManager();
+            Map<Integer, Task> model = new HashMap<>();
+
+            for (int step = 0; step < 1_000; step++) {
+                int action = random.nextInt(10);
+                if (action < 6 || model.isEmpty()) {
+                    Task task = randomTask(random);
+                    boolean expectedConflict = streamOverlaps(model.values(), task);
+                    try {
+                        manager.createTask(task);
+                        assertFalse(expectedConflict, "Индекс пропустил пересечение, seed=" + seed);
+                        model.put(task.getId(), copy(task));
+                    } catch (TaskIntersectionException e) {
+                        assertTrue(expectedConflict, "Индекс нашёл ложное пересечение, seed=" + seed);
+                    }
+                } else if (action < 9) {
+                    int id = randomId(random, model);
+                    Task changed = randomTask(random);
+                    changed.setId(id);
+                    boolean expectedConflict = streamOverlaps(model.values(), changed);
+                    try {
+                        manager.updateTask(changed);
+                        assertFalse(expectedConflict, "Индекс пропустил пересечение при обновлении, seed=" + seed);
+                        model.put(id, copy(changed));
+                    } catch (TaskIntersectionException e) {
+                        assertTrue(expectedConflict, "Индекс нашёл ложное пересечение при обновлении, seed=" + seed);
+                    }
+                } else {
+                    int id = randomId(random, model);
+                    manager.deleteTask(id);
+                    model.remove(id);
+                }
+            }
+            assertEquals(model.size(), manager.getAllTasks().size());
+        }
+    }
+
+    @Test
+    void shouldIgnoreTaskItselfAndTasksWithoutTime() {
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        Task timed = new Task("Timed", "Desc", Duration.ofMinutes(60), BASE);
+        timed.setId(1);
+        Task untimed = new Task("Untimed", "Desc", Duration.ofMinutes(60), null);
+        untimed.setId(2);
+        index.add(timed);
+        index.add(untimed);
+
+        assertEquals(1, index.size());
+        assertFalse(index.overlaps(timed), "Задача не должна пересекаться сама с собой");
+
+        Task touching = new Task("Touching", "Desc", Duration.ofMinutes(30), BASE.plusMinutes(60));
+        touching.setId(3);
+        assertFalse(index.overlaps(touching), "Смежные интервалы не пересекаются");
+
+        Task inside = new Task("Inside", "Desc", Duration.ZERO, BASE.plusMinutes(30));
+        inside.setId(4);
+        assertTrue(index.overlaps(inside));
+
+        index.remove(1);
+        assertFalse(index.overlaps(inside));
+    }
+
+    @Test
+    void shouldRemoveByIdEvenIfTaskWasMutated() {
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        Task task = new Task("Task", "Desc", Duration.ofMinutes(60), BASE);
+        task.setId(1);
+        index.add(task);
+
+        task.setStartTime(BASE.plusDays(1));
+        index.remove(1);
+
+        Task probe = new Task("Probe", "Desc", Duration.ofMinutes(10), BASE.plusMinutes(10));
+        probe.setId(2);
+        assertFalse(index.overlaps(probe));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void shouldBuildFromSortedTasksSameAsIncrementalAdds() {
+        Random random = new Random(5);
+        List<Task> sorted = new ArrayList<>();
+        LocalDateTime start = BASE;
+        for (int id = 1; id <= 2_000; id++) {
+            start = start.plusMinutes(random.nextInt(60));
+            Task task = new Task("Task", "Desc", Duration.ofMinutes(random.nextInt(30)), start);
+            task.setId(id);
+            sorted.add(task);
+        }
+        TaskIntervalIndex bulk = new TaskIntervalIndex();
+        bulk.addAllSorted(sorted.toArray(new Task[0]));
+        TaskIntervalIndex incremental = new TaskIntervalIndex();
+        sorted.forEach(incremental::add);
+        assertEquals(incremental.size(), bulk.size());
+
+        for (int i = 0; i < 2_000; i++) {
+            Task probe = randomTask(random);
+            probe.setId(10_000 + i);
+            assertEquals(incremental.overlaps(probe), bulk.overlaps(probe));
+        }
+        bulk.remove(1);
+        bulk.add(sorted.get(0));
+        assertEquals(sorted.size(), bulk.size());
+    }
+
+    @Test
+    void shouldCompareTimesInsideOneMinuteExactly() {
+        TaskIntervalIndex index = new TaskIntervalIndex();
+        Task task = new Task("Task", "Desc", Duration.ofSeconds(20), BASE.plusSeconds(30));
+        task.setId(1);
+        index.add(task);
+
+        Task before = new Task("Before", "Desc", Duration.ofSeconds(30), BASE);
+        before.setId(2);
+        assertFalse(index.overlaps(before), "Заканчивается ровно в начале задачи");
+
+        Task after = new Task("After", "Desc", Duration.ofMinutes(1), BASE.plusSeconds(50));
+        after.setId(3);
+        assertFalse(index.overlaps(after), "Начинается ровно в конце задачи");
+
+        Task nanos = new Task("Nanos", "Desc", Duration.ofSeconds(1), BASE.plusSeconds(49).plusNanos(999));
+        nanos.setId(4);
+        assertTrue(index.overlaps(nanos));
+
+        Task nextMinute = new Task("Next", "Desc", Duration.ofMinutes(1), BASE.plusSeconds(60));
+        nextMinute.setId(5);
+        index.add(nextMinute);
+        index.remove(1);
+        assertTrue(index.overlaps(after));
+        assertEquals(1, index.size());
+    }
+
+    private static int randomId(Random random, Map<Integer, Task> model) {
+        List<Integer> ids = new ArrayList<>(model.keySet());
+        return ids.get(random.nextInt(ids.size()));
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task(task.getName(), task.getDescription(), task.getDuration(), task.getStartTime());
+        copy.setId(task.getId());
+        return copy;
+    }
+}
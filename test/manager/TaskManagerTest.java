@@ -1,16 +1,21 @@
 package manager;
 
+import exception.ImportConflictException;
 import exception.TaskIntersectionException;
+import exception.VersionConflictException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import task.Epic;
 import task.SubTask;
 import task.Task;
 import task.TaskStatus;
+import task.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -128,6 +133,30 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         assertEquals(TaskStatus.IN_PROGRESS, manager.getEpic(epic.getId()).orElseThrow().getStatus());
     }
 
+    @Test
+    void shouldKeepSubtaskOrderOnUpdateAndMoveBetweenEpics() {
+        Epic own = manager.createEpic(new Epic("Own", "desc"));
+        Epic other = manager.createEpic(new Epic("Other", "desc"));
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            ids.add(manager.createSubTask(new SubTask("S" + i, "desc", own.getId())).getId());
+        }
+
+        SubTask first = manager.getSubtask(ids.get(0)).orElseThrow();
+        first.setStatus(TaskStatus.DONE);
+        manager.updateSubTask(first);
+        assertEquals(ids, manager.getEpic(own.getId()).orElseThrow().getSubtaskIds(),
+                "Обновление без смены эпика не меняет порядок подзадач");
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpic(own.getId()).orElseThrow().getStatus());
+
+        first.setEpicId(other.getId());
+        manager.updateSubTask(first);
+        assertEquals(ids.subList(1, 3), manager.getEpic(own.getId()).orElseThrow().getSubtaskIds());
+        assertEquals(List.of(ids.get(0)), manager.getEpic(other.getId()).orElseThrow().getSubtaskIds());
+        assertEquals(TaskStatus.NEW, manager.getEpic(own.getId()).orElseThrow().getStatus());
+        assertEquals(TaskStatus.DONE, manager.getEpic(other.getId()).orElseThrow().getStatus());
+    }
+
     @Test
     void shouldCalculateEpicTimeFieldsCorrectly() {
         Epic updated = manager.getEpic(epic.getId()).orElseThrow();
@@ -226,4 +255,304 @@ public abstract class TaskManagerTest<T extends TaskManager> {
         manager.deleteEpic(epic.getId());
         assertTrue(manager.getHistory().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldApplyUpdateOnlyForCurrentVersion() {
+        Task created = manager.createTask(new Task("Версии", "Desc", Duration.ofMinutes(15),
+                LocalDateTime.of(2025, 6, 1, 9, 0)));
+        Task current = manager.getTask(created.getId()).orElseThrow().copy();
+        long version = current.getVersion();
+        assertTrue(version > 0, "Версия выставляется при создании");
+
+        current.setTitle("Первое изменение");
+        Task updated = manager.updateTask(current, version);
+        assertEquals(version + 1, updated.getVersion());
+
+        Task stale = current.copy();
+        stale.setTitle("Потерянное изменение");
+        VersionConflictException e = assertThrows(VersionConflictException.class,
+                () -> manager.updateTask(stale, version));
+        assertEquals(version + 1, e.getActualVersion());
+        assertEquals("Первое изменение", manager.getTask(created.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void shouldCheckVersionForSubtasksAndEpics() {
+        SubTask sub = manager.getSubtask(sub1.getId()).orElseThrow().copy();
+        long subVersion = sub.getVersion();
+        sub.setStatus(TaskStatus.DONE);
+        manager.updateSubTask(sub, subVersion);
+        SubTask staleSub = sub.copy();
+        staleSub.setStatus(TaskStatus.NEW);
+        assertThrows(VersionConflictException.class, () -> manager.updateSubTask(staleSub, subVersion));
+        assertEquals(TaskStatus.DONE, manager.getSubtask(sub1.getId()).orElseThrow().getStatus());
+
+        Epic current = manager.getEpic(epic.getId()).orElseThrow().copy();
+        long epicVersion = current.getVersion();
+        current.setTitle("Новое имя");
+        assertEquals(epicVersion + 1, manager.updateEpic(current, epicVersion).getVersion());
+        assertThrows(VersionConflictException.class, () -> manager.updateEpic(current.copy(), epicVersion));
+    }
+
+    @Test
+    void shouldPageTasksByIdWithoutGapsOrRepeats() {
+        for (int i = 0; i < 7; i++) {
+            manager.createTask(new Task("Страница " + i, "Desc", Duration.ofMinutes(10),
+                    LocalDateTime.of(2025, 7, 1, 8, 0).plusMinutes(15L * i)));
+        }
+        List<Integer> expected = manager.getAllTasks().stream().map(Task::getId).sorted().toList();
+
+        List<Integer> paged = new ArrayList<>();
+        Page<Task> page = manager.getTasksPage(null, 3);
+        paged.addAll(page.items().stream().map(Task::getId).toList());
+        // Задача, созданная между страницами, попадает в выдачу один раз
+        Task late = manager.createTask(new Task("Поздняя", "Desc", Duration.ofMinutes(10),
+                LocalDateTime.of(2025, 8, 1, 8, 0)));
+        while (page.hasNext()) {
+            assertTrue(page.items().size() <= 3);
+            page = manager.getTasksPage(page.nextCursor(), 3);
+            paged.addAll(page.items().stream().map(Task::getId).toList());
+        }
+
+        List<Integer> withLate = new ArrayList<>(expected);
+        withLate.add(late.getId());
+        assertEquals(withLate, paged);
+    }
+
+    @Test
+    void shouldPageEveryListInItsOrder() {
+        manager.getSubtask(sub2.getId());
+        manager.getEpic(epic.getId());
+        manager.getSubtask(sub1.getId());
+
+        assertEquals(manager.getAllEpics(), collect((c, l) -> manager.getEpicsPage(c, l)));
+        assertEquals(manager.getAllSubTasks().stream().map(Task::getId).sorted().toList(),
+                collect((c, l) -> manager.getSubTasksPage(c, l)).stream().map(Task::getId).toList());
+        assertEquals(List.of(sub1.getId(), sub2.getId()),
+                collect((c, l) -> manager.getSubtasksForEpicPage(epic.getId(), c, l)).stream()
+                        .map(Task::getId).toList());
+        assertEquals(manager.getHistory(), collect((c, l) -> manager.getHistoryPage(c, l)));
+        assertEquals(manager.getPrioritizedTasks(), collect((c, l) -> manager.getPrioritizedTasksPage(c, l)));
+    }
+
+    @Test
+    void shouldRejectInvalidPageRequest() {
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage("не курсор", 10));
+        String historyCursor = "cG9zOjE";
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage(historyCursor, 10),
+                "Курсор другого списка не принимается");
+    }
+
+    @Test
+    void shouldCountEveryChangeButNotPlainReads() {
+        long start = manager.getModificationCount();
+        assertTrue(start >= 0, "Встроенные менеджеры отслеживают изменения");
+
+        manager.getAllTasks();
+        manager.getPrioritizedTasks();
+        manager.getHistory();
+        assertEquals(start, manager.getModificationCount());
+
+        Task created = manager.createTask(new Task("Счётчик", "Desc", Duration.ofMinutes(5),
+                LocalDateTime.of(2025, 9, 1, 9, 0)));
+        long afterCreate = manager.getModificationCount();
+        assertTrue(afterCreate > start);
+
+        long historyBeforeView = manager.getHistoryModificationCount();
+        manager.getTask(created.getId());
+        assertEquals(afterCreate, manager.getModificationCount(), "Просмотр не меняет списки задач");
+        long historyAfterView = manager.getHistoryModificationCount();
+        assertTrue(historyAfterView > historyBeforeView, "Просмотр меняет историю");
+
+        manager.deleteTask(created.getId());
+        assertTrue(manager.getModificationCount() > afterCreate);
+        assertTrue(manager.getHistoryModificationCount() > historyAfterView, "Удаление меняет и историю");
+    }
+
+    @Test
+    void shouldApplyBatchInOrderAndReturnResults() {
+        Task first = new Task("Пакет 1", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2026, 1, 5, 9, 0));
+        Task second = new Task("Пакет 2", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2026, 1, 5, 10, 0));
+        SubTask moved = manager.getSubtask(sub1.getId()).orElseThrow().copy();
+        moved.setStatus(TaskStatus.DONE);
+
+        List<Task> results = manager.applyBatch(List.of(
+                BatchOperation.create(first),
+                BatchOperation.create(second),
+                BatchOperation.update(moved),
+                BatchOperation.delete(TaskType.SUBTASK, sub2.getId())));
+
+        assertEquals(4, results.size());
+        assertNull(results.get(3), "У удаления нет результата");
+        assertTrue(manager.getTask(results.get(0).getId()).isPresent());
+        assertEquals(first.getId(), results.get(0).getId());
+        assertTrue(manager.getSubtask(sub2.getId()).isEmpty());
+        assertEquals(TaskStatus.DONE, manager.getEpic(epic.getId()).orElseThrow().getStatus());
+    }
+
+    @Test
+    void shouldRollBackWholeBatchOnIntersection() {
+        List<Task> tasksBefore = manager.getAllTasks();
+        Task free = new Task("Свободная", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2026, 1, 5, 9, 0));
+        Task clash = new Task("Пересекается", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2025, 5, 2, 12, 15));
+
+        assertThrows(TaskIntersectionException.class, () -> manager.applyBatch(List.of(
+                BatchOperation.create(free),
+                BatchOperation.delete(TaskType.SUBTASK, sub2.getId()),
+                BatchOperation.create(clash))));
+
+        assertEquals(tasksBefore, manager.getAllTasks());
+        assertTrue(manager.getSubtask(sub2.getId()).isPresent(), "Удаление из отклонённого пакета не применяется");
+        assertEquals(2, manager.getSubtasksForEpic(epic.getId()).size());
+    }
+
+    @Test
+    void shouldRejectIntersectionsInsideBatch() {
+        int before = manager.getPrioritizedTasks().size();
+        assertThrows(TaskIntersectionException.class, () -> manager.applyBatch(List.of(
+                BatchOperation.create(new Task("A", "Desc", Duration.ofMinutes(60), LocalDateTime.of(2026, 2, 1, 9, 0))),
+                BatchOperation.create(new Task("B", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 3, 1, 9, 0))),
+                BatchOperation.create(new Task("C", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 2, 1, 9, 50))))));
+        assertEquals(before, manager.getPrioritizedTasks().size());
+
+        // Соседние интервалы и задачи без времени не пересекаются
+        manager.applyBatch(List.of(
+                BatchOperation.create(new Task("A", "Desc", Duration.ofMinutes(60), LocalDateTime.of(2026, 2, 1, 9, 0))),
+                BatchOperation.create(new Task("B", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 2, 1, 10, 0))),
+                BatchOperation.create(new Task("C", "Desc", Duration.ofMinutes(10), null))));
+        assertEquals(before + 3, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void shouldLetBatchSwapTimesAndReuseFreedSlots() {
+        SubTask first = manager.getSubtask(sub1.getId()).orElseThrow().copy();
+        SubTask second = manager.getSubtask(sub2.getId()).orElseThrow().copy();
+        LocalDateTime firstStart = first.getStartTime();
+        first.setStartTime(second.getStartTime());
+        second.setStartTime(firstStart);
+
+        manager.applyBatch(List.of(BatchOperation.update(first), BatchOperation.update(second)));
+
+        assertEquals(firstStart, manager.getSubtask(sub2.getId()).orElseThrow().getStartTime());
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertTrue(prioritized.indexOf(manager.getSubtask(sub2.getId()).orElseThrow())
+                < prioritized.indexOf(manager.getSubtask(sub1.getId()).orElseThrow()));
+
+        // Новая задача занимает время подзадач эпика, удаляемого тем же пакетом
+        Task replacement = new Task("Вместо эпика", "Desc", Duration.ofMinutes(90), firstStart);
+        manager.applyBatch(List.of(BatchOperation.create(replacement), BatchOperation.delete(TaskType.EPIC, epic.getId())));
+        assertTrue(manager.getAllSubTasks().isEmpty());
+        assertTrue(manager.getTask(replacement.getId()).isPresent());
+    }
+
+    @Test
+    void shouldCreateSubtasksOfEpicFromSameBatch() {
+        Epic newEpic = new Epic("Новый эпик", "Desc");
+        List<Task> results = manager.applyBatch(List.of(
+                BatchOperation.create(newEpic),
+                BatchOperation.create(new SubTask("S1", "Desc", Duration.ofMinutes(15),
+                        LocalDateTime.of(2026, 4, 1, 9, 0), BatchOperation.epicRef(0))),
+                BatchOperation.create(new SubTask("S2", "Desc", Duration.ofMinutes(15),
+                        LocalDateTime.of(2026, 4, 1, 10, 0), BatchOperation.epicRef(0)))));
+
+        int epicId = results.get(0).getId();
+        assertEquals(2, manager.getSubtasksForEpic(epicId).size());
+        assertEquals(epicId, ((SubTask) results.get(1)).getEpicId());
+        assertEquals(LocalDateTime.of(2026, 4, 1, 9, 0), manager.getEpic(epicId).orElseThrow().getStartTime());
+    }
+
+    @Test
+    void shouldReportInvalidOperationByIndex() {
+        SubTask sub = manager.getSubtask(sub1.getId()).orElseThrow().copy();
+        List<Task> tasksBefore = manager.getAllTasks();
+        Task missing = new Task("Нет такой", "Desc", Duration.ofMinutes(5), LocalDateTime.of(2026, 5, 1, 9, 0));
+        missing.setId(999_999);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> manager.applyBatch(List.of(
+                BatchOperation.create(new Task("Ок", "Desc", Duration.ofMinutes(5), LocalDateTime.of(2026, 5, 1, 8, 0))),
+                BatchOperation.update(missing))));
+        assertTrue(e.getMessage().startsWith("Операция 1"), e.getMessage());
+
+        assertThrows(IllegalArgumentException.class, () -> manager.applyBatch(List.of(
+                BatchOperation.delete(TaskType.SUBTASK, sub.getId()),
+                BatchOperation.update(sub))), "Задача меняется в пакете не более одного раза");
+        assertThrows(IllegalArgumentException.class, () -> manager.applyBatch(List.of(
+                BatchOperation.create(new SubTask("S", "Desc", Duration.ofMinutes(5), null, BatchOperation.epicRef(0))))));
+        assertEquals(tasksBefore, manager.getAllTasks(), "Отклонённые пакеты ничего не меняют");
+        assertEquals(2, manager.getAllSubTasks().size());
+    }
+
+    @Test
+    void shouldImportTasksEpicsAndSubtasks() {
+        Epic exported = new Epic("Импортированный эпик", "Desc");
+        exported.setId(500);
+        SubTask late = new SubTask("Поздняя", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2026, 6, 1, 11, 0), 500);
+        SubTask early = new SubTask("Ранняя", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2026, 6, 1, 9, 0), 500);
+        SubTask existingEpicSub = new SubTask("К старому эпику", "Desc", Duration.ofMinutes(10),
+                LocalDateTime.of(2026, 6, 1, 10, 0), epic.getId());
+        Task plain = new Task("Задача", "Desc", Duration.ofMinutes(30), LocalDateTime.of(2026, 6, 1, 12, 0));
+        int prioritizedBefore = manager.getPrioritizedTasks().size();
+
+        List<Task> imported = manager.importAll(List.of(late, exported, early, existingEpicSub, plain));
+
+        assertEquals(5, imported.size());
+        assertEquals(late.getId(), imported.get(0).getId(), "Id записаны в переданные объекты");
+        assertEquals("Импортированный эпик", imported.get(1).getName());
+        int epicId = imported.get(1).getId();
+        assertNotEquals(500, epicId);
+        assertEquals(epicId, ((SubTask) imported.get(0)).getEpicId(), "Подзадача перепривязана к новому id эпика");
+        assertEquals(2, manager.getSubtasksForEpic(epicId).size());
+        assertEquals(3, manager.getSubtasksForEpic(epic.getId()).size());
+        Epic importedEpic = manager.getEpic(epicId).orElseThrow();
+        assertEquals(LocalDateTime.of(2026, 6, 1, 9, 0), importedEpic.getStartTime());
+        assertEquals(LocalDateTime.of(2026, 6, 1, 11, 30), importedEpic.getEndTime());
+        assertEquals(prioritizedBefore + 4, manager.getPrioritizedTasks().size());
+        assertThrows(TaskIntersectionException.class, () -> manager.createTask(new Task("После импорта", "Desc",
+                Duration.ofMinutes(10), LocalDateTime.of(2026, 6, 1, 9, 10))), "Импорт попал в индекс пересечений");
+    }
+
+    @Test
+    void shouldReportEveryConflictingPairAndImportNothing() {
+        List<Task> tasksBefore = manager.getAllTasks();
+        SubTask existing = manager.getAllSubTasks().get(0);
+        Task overlapsBoard = new Task("С доской", "Desc", Duration.ofMinutes(10), existing.getStartTime().plusMinutes(5));
+        Task first = new Task("Первая", "Desc", Duration.ofMinutes(60), LocalDateTime.of(2026, 7, 1, 9, 0));
+        Task second = new Task("Вторая", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 7, 1, 9, 20));
+        Task third = new Task("Третья", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 7, 1, 9, 25));
+        Task adjacent = new Task("Встык", "Desc", Duration.ofMinutes(10), LocalDateTime.of(2026, 7, 1, 10, 0));
+
+        ImportConflictException e = assertThrows(ImportConflictException.class,
+                () -> manager.importAll(List.of(adjacent, third, overlapsBoard, second, first)));
+
+        assertEquals(4, e.getConflicts().size(), e.getConflicts().toString());
+        assertTrue(e.getConflicts().contains(new ImportConflictException.Conflict(existing, overlapsBoard)));
+        assertTrue(e.getConflicts().contains(new ImportConflictException.Conflict(first, second)));
+        assertTrue(e.getConflicts().contains(new ImportConflictException.Conflict(first, third)));
+        assertTrue(e.getConflicts().contains(new ImportConflictException.Conflict(second, third)));
+        assertEquals(tasksBefore, manager.getAllTasks());
+    }
+
+    @Test
+    void shouldRejectInvalidImport() {
+        int epicsBefore = manager.getAllEpics().size();
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> manager.importAll(List.of(
+                new Epic("Эпик", "Desc"),
+                new SubTask("Без эпика", "Desc", Duration.ofMinutes(5), null, 987_654))));
+        assertTrue(e.getMessage().startsWith("Элемент 1"), e.getMessage());
+        assertEquals(epicsBefore, manager.getAllEpics().size());
+    }
+
+    // Собирает все страницы по одному элементу
+    private static <E> List<E> collect(BiFunction<String, Integer, Page<E>> source) {
+        List<E> result = new ArrayList<>();
+        Page<E> page = source.apply(null, 1);
+        result.addAll(page.items());
+        while (page.hasNext()) {
+            page = source.apply(page.nextCursor(), 1);
+            assertEquals(1, page.items().size());
+            result.addAll(page.items());
+        }
+        return result;
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -43,6 +44,21 @@ class EpicTest {
         assertEquals(Duration.ZERO, epic.getDuration());
     }
 
+    @Test
+    void epicEndTimeShouldFollowChangedFields() {
+        Epic epic = new Epic("Epic", "desc");
+        LocalDateTime start = LocalDateTime.of(2025, 5, 1, 10, 0);
+        epic.setStartTime(start);
+        assertEquals(start, epic.getEndTime());
+
+        epic.setEndTime(start.plusMinutes(90));
+        assertEquals(start.plusMinutes(90), epic.getEndTime());
+        epic.setStartTime(start.plusHours(1));
+        assertEquals(start.plusMinutes(150), epic.getEndTime(), "Конец пересчитывается после смены начала");
+        epic.setStartTime(null);
+        assertNull(epic.getEndTime());
+    }
+
     @Test
     void epicTypeShouldBeEpic() {
         Epic epic = new Epic("Epic", "desc");